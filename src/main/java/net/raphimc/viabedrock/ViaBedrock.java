@@ -18,7 +18,7 @@
 package net.raphimc.viabedrock;
 
 import net.raphimc.viabedrock.api.http.ResourcePackHttpServer;
-import net.raphimc.viabedrock.api.io.LevelDB;
+import net.raphimc.viabedrock.api.io.KeyValueStore;
 import net.raphimc.viabedrock.platform.ViaBedrockPlatform;
 
 import java.net.InetSocketAddress;
@@ -32,7 +32,7 @@ public class ViaBedrock {
     private static ViaBedrockPlatform platform;
     private static ViaBedrockConfig config;
     private static ResourcePackHttpServer resourcePackServer;
-    private static LevelDB blobCache;
+    private static KeyValueStore blobCache;
 
     private ViaBedrock() {
     }
@@ -52,7 +52,7 @@ public class ViaBedrock {
             }
         }
         try {
-            ViaBedrock.blobCache = new LevelDB(platform.getBlobCacheFolder());
+            ViaBedrock.blobCache = config.getBlobCacheStorage().open(platform.getBlobCacheFolder());
 
             Runtime.getRuntime().addShutdownHook(new Thread(() -> {
                 try {
@@ -78,7 +78,7 @@ public class ViaBedrock {
         return ViaBedrock.resourcePackServer;
     }
 
-    public static LevelDB getBlobCache() {
+    public static KeyValueStore getBlobCache() {
         return ViaBedrock.blobCache;
     }
 
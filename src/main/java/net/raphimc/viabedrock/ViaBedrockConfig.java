@@ -29,12 +29,19 @@ import java.util.logging.Logger;
 public class ViaBedrockConfig extends Config implements net.raphimc.viabedrock.platform.ViaBedrockConfig {
 
     private BlobCacheMode blobCacheMode;
+    private StorageEngine blobCacheStorage;
     private boolean translateResourcePacks;
     private String resourcePackHost;
     private int resourcePackPort;
     private String resourcePackUrl;
     private PackCacheMode packCacheMode;
     private boolean translateShowCoordinatesGameRule;
+    private boolean calculateLight;
+    private int maxPendingSubChunkRequests;
+    private int chunkMemoryBudget;
+    private int chunkCompressionIdleTime;
+    private boolean coalesceEntityUpdates;
+    private int entityInterestRadius;
 
     public ViaBedrockConfig(final File configFile, final Logger logger) {
         super(configFile, logger);
@@ -48,12 +55,19 @@ public class ViaBedrockConfig extends Config implements net.raphimc.viabedrock.p
 
     private void loadFields() {
         this.blobCacheMode = BlobCacheMode.byName(this.getString("blob-cache", "disk"));
+        this.blobCacheStorage = StorageEngine.byName(this.getString("blob-cache-storage", "leveldb"));
         this.translateResourcePacks = this.getBoolean("translate-resource-packs", true);
         this.resourcePackHost = this.getString("resource-pack-host", "127.0.0.1");
         this.resourcePackPort = this.getInt("resource-pack-port", 0);
         this.resourcePackUrl = this.getString("resource-pack-url", "");
         this.packCacheMode = PackCacheMode.byName(this.getString("pack-cache", "disk"));
         this.translateShowCoordinatesGameRule = this.getBoolean("translate-show-coordinates-game-rule", false);
+        this.calculateLight = this.getBoolean("calculate-light", true);
+        this.maxPendingSubChunkRequests = Math.max(1, this.getInt("max-pending-sub-chunk-requests", 1024));
+        this.chunkMemoryBudget = Math.max(0, this.getInt("chunk-memory-budget", 0));
+        this.chunkCompressionIdleTime = Math.max(1, this.getInt("chunk-compression-idle-time", 30));
+        this.coalesceEntityUpdates = this.getBoolean("coalesce-entity-updates", false);
+        this.entityInterestRadius = Math.max(0, this.getInt("entity-interest-radius", 0));
     }
 
     @Override
@@ -75,6 +89,11 @@ public class ViaBedrockConfig extends Config implements net.raphimc.viabedrock.p
         return this.blobCacheMode;
     }
 
+    @Override
+    public StorageEngine getBlobCacheStorage() {
+        return this.blobCacheStorage;
+    }
+
     @Override
     public boolean shouldTranslateResourcePacks() {
         return this.translateResourcePacks;
@@ -105,4 +124,34 @@ public class ViaBedrockConfig extends Config implements net.raphimc.viabedrock.p
         return this.translateShowCoordinatesGameRule;
     }
 
+    @Override
+    public boolean shouldCalculateLight() {
+        return this.calculateLight;
+    }
+
+    @Override
+    public int getMaxPendingSubChunkRequests() {
+        return this.maxPendingSubChunkRequests;
+    }
+
+    @Override
+    public int getChunkMemoryBudget() {
+        return this.chunkMemoryBudget;
+    }
+
+    @Override
+    public int getChunkCompressionIdleTime() {
+        return this.chunkCompressionIdleTime;
+    }
+
+    @Override
+    public boolean shouldCoalesceEntityUpdates() {
+        return this.coalesceEntityUpdates;
+    }
+
+    @Override
+    public int getEntityInterestRadius() {
+        return this.entityInterestRadius;
+    }
+
 }
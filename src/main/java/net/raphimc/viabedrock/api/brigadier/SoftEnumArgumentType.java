@@ -0,0 +1,77 @@
+/*
+ * This file is part of ViaBedrock - https://github.com/RaphiMC/ViaBedrock
+ * Copyright (C) 2023-2024 RK_01/RaphiMC and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.raphimc.viabedrock.api.brigadier;
+
+import com.mojang.brigadier.StringReader;
+import com.mojang.brigadier.arguments.ArgumentType;
+import com.mojang.brigadier.context.CommandContext;
+import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import com.mojang.brigadier.suggestion.Suggestions;
+import com.mojang.brigadier.suggestion.SuggestionsBuilder;
+import com.viaversion.viaversion.api.connection.UserConnection;
+import net.raphimc.viabedrock.protocol.model.CommandData;
+import net.raphimc.viabedrock.protocol.storage.CommandsStorage;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Argument type for soft enums. The values are looked up from the connection on every completion, because soft enums can be updated by the server at any time and command trees are shared between connections.<br>
+ * Brigadier doesn't pass the command source to {@link #parse(StringReader)}, so any single word is parsed and the value is validated when the command is executed (See {@link Value#isValid(CommandsStorage)}).
+ * Unlike other enums, an invalid soft enum value therefore doesn't make brigadier choose a different overload of the command.
+ */
+public class SoftEnumArgumentType implements ArgumentType<SoftEnumArgumentType.Value> {
+
+    private final String name;
+
+    public SoftEnumArgumentType(final String name) {
+        this.name = name;
+    }
+
+    public static SoftEnumArgumentType softEnum(final String name) {
+        return new SoftEnumArgumentType(name);
+    }
+
+    @Override
+    public Value parse(StringReader reader) throws CommandSyntaxException {
+        return new Value(this.name, reader.readUnquotedString());
+    }
+
+    @Override
+    public <S> CompletableFuture<Suggestions> listSuggestions(CommandContext<S> context, SuggestionsBuilder builder) {
+        if (context.getSource() instanceof UserConnection user) {
+            final CommandsStorage commandsStorage = user.get(CommandsStorage.class);
+            if (commandsStorage != null) {
+                final CommandData.EnumData enumData = commandsStorage.getSoftEnum(this.name);
+                if (enumData != null) {
+                    return SuggestionsUtil.suggestMatching(enumData.values().keySet(), builder);
+                }
+            }
+        }
+        return Suggestions.empty();
+    }
+
+    public record Value(String enumName, String value) {
+
+        public boolean isValid(final CommandsStorage commandsStorage) {
+            final CommandData.EnumData enumData = commandsStorage.getSoftEnum(this.enumName);
+            return enumData != null && enumData.values().containsKey(this.value);
+        }
+
+    }
+
+}
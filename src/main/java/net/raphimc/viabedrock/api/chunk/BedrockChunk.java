@@ -21,21 +21,32 @@ import com.viaversion.nbt.tag.CompoundTag;
 import com.viaversion.viaversion.api.minecraft.BlockPosition;
 import com.viaversion.viaversion.api.minecraft.blockentity.BlockEntity;
 import com.viaversion.viaversion.api.minecraft.chunks.Chunk1_18;
+import com.viaversion.viaversion.libs.fastutil.ints.Int2ObjectLinkedOpenHashMap;
+import com.viaversion.viaversion.libs.fastutil.ints.Int2ObjectMap;
+import net.raphimc.viabedrock.api.chunk.light.ChunkLight;
 import net.raphimc.viabedrock.api.chunk.section.BedrockChunkSection;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 public class BedrockChunk extends Chunk1_18 {
 
+    private final Int2ObjectMap<BedrockBlockEntity> bedrockBlockEntities = new Int2ObjectLinkedOpenHashMap<>();
+    private List<BlockEntity> blockEntitiesView;
     private boolean requestSubChunks = false;
+    private ChunkLight light;
 
     public BedrockChunk(final int x, final int z, final BedrockChunkSection[] sections) {
-        this(x, z, sections, new CompoundTag(), new ArrayList<>());
+        this(x, z, sections, new CompoundTag(), Collections.emptyList());
     }
 
     public BedrockChunk(final int x, final int z, final BedrockChunkSection[] sections, final CompoundTag heightMap, final List<BlockEntity> blockEntities) {
-        super(x, z, sections, heightMap, blockEntities);
+        super(x, z, sections, heightMap, Collections.emptyList()); // Block entities are stored in bedrockBlockEntities
+        for (BlockEntity blockEntity : blockEntities) {
+            this.addBlockEntity((BedrockBlockEntity) blockEntity);
+        }
     }
 
     @Override
@@ -51,22 +62,60 @@ public class BedrockChunk extends Chunk1_18 {
         this.requestSubChunks = requestSubChunks;
     }
 
+    /**
+     * @return The light data which was last sent to the client or null if the chunk wasn't sent yet
+     */
+    public ChunkLight getLight() {
+        return this.light;
+    }
+
+    public void setLight(final ChunkLight light) {
+        this.light = light;
+    }
+
+    /**
+     * Returns an unmodifiable list of the block entities in this chunk. Use {@link #addBlockEntity(BedrockBlockEntity)} and {@link #removeBlockEntityAt(BlockPosition)} to modify them.<br>
+     * The list is only rebuilt after the block entities changed. Prefer {@link #bedrockBlockEntities()}, which is a live view.
+     *
+     * @return The block entities in insertion order
+     */
+    @Override
+    public List<BlockEntity> blockEntities() {
+        if (this.blockEntitiesView == null) {
+            this.blockEntitiesView = Collections.unmodifiableList(new ArrayList<>(this.bedrockBlockEntities.values()));
+        }
+        return this.blockEntitiesView;
+    }
+
+    public Collection<BedrockBlockEntity> bedrockBlockEntities() {
+        return Collections.unmodifiableCollection(this.bedrockBlockEntities.values());
+    }
+
     public BedrockBlockEntity getBlockEntityAt(final BlockPosition position) {
-        for (BlockEntity blockEntity : this.blockEntities) {
-            final BedrockBlockEntity bedrockBlockEntity = (BedrockBlockEntity) blockEntity;
-            if (bedrockBlockEntity.position().equals(position)) {
-                return bedrockBlockEntity;
-            }
+        final BedrockBlockEntity blockEntity = this.bedrockBlockEntities.get(packLocalPosition(position));
+        if (blockEntity != null && blockEntity.position().equals(position)) {
+            return blockEntity;
         }
 
         return null;
     }
 
+    public void addBlockEntity(final BedrockBlockEntity blockEntity) {
+        this.bedrockBlockEntities.put(packLocalPosition(blockEntity.position()), blockEntity);
+        this.blockEntitiesView = null;
+    }
+
     public void removeBlockEntityAt(final BlockPosition position) {
-        final BedrockBlockEntity blockEntity = this.getBlockEntityAt(position);
-        if (blockEntity != null) {
-            this.blockEntities.remove(blockEntity);
+        final int key = packLocalPosition(position);
+        final BedrockBlockEntity blockEntity = this.bedrockBlockEntities.get(key);
+        if (blockEntity != null && blockEntity.position().equals(position)) {
+            this.bedrockBlockEntities.remove(key);
+            this.blockEntitiesView = null;
         }
     }
 
+    private static int packLocalPosition(final BlockPosition position) {
+        return position.y() << 8 | (position.z() & 15) << 4 | (position.x() & 15);
+    }
+
 }
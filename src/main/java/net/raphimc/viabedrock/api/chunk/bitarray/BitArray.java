@@ -18,12 +18,75 @@
 
 package net.raphimc.viabedrock.api.chunk.bitarray;
 
+import com.google.common.base.Preconditions;
+
 public interface BitArray extends Cloneable {
 
     void set(final int index, final int value);
 
     int get(final int index);
 
+    /**
+     * Same as {@link #set(int, int)}, but without bounds and value checks.<br>
+     * Only use this in loops which already guarantee that the index and value are valid.
+     */
+    void setUnchecked(final int index, final int value);
+
+    /**
+     * Same as {@link #get(int)}, but without bounds checks.<br>
+     * Only use this in loops which already guarantee that the index is valid.
+     */
+    int getUnchecked(final int index);
+
+    /**
+     * Decodes all entries of this bit array into the given array.
+     *
+     * @param out The array to write the entries to. Must be at least {@link #size()} long.
+     */
+    default void decodeAll(final int[] out) {
+        Preconditions.checkArgument(out.length >= this.size(), "Output array is too small");
+
+        final int[] words = this.getWords();
+        final int bits = this.getVersion().getBits();
+        final int entriesPerWord = this.getVersion().getEntriesPerWord();
+        final int mask = this.getVersion().getMaxEntryValue();
+        final int size = this.size();
+        int index = 0;
+        for (int i = 0; i < words.length && index < size; i++) {
+            final int word = words[i];
+            for (int j = 0; j < entriesPerWord && index < size; j++) {
+                out[index++] = (word >>> (j * bits)) & mask;
+            }
+        }
+    }
+
+    /**
+     * Encodes all entries of the given array into this bit array.
+     *
+     * @param in The array to read the entries from. Must be at least {@link #size()} long.
+     */
+    default void encodeAll(final int[] in) {
+        Preconditions.checkArgument(in.length >= this.size(), "Input array is too small");
+
+        final int[] words = this.getWords();
+        final int bits = this.getVersion().getBits();
+        final int entriesPerWord = this.getVersion().getEntriesPerWord();
+        final int mask = this.getVersion().getMaxEntryValue();
+        final int size = this.size();
+        int invalidBits = 0;
+        int index = 0;
+        for (int i = 0; i < words.length; i++) {
+            int word = 0;
+            for (int j = 0; j < entriesPerWord && index < size; j++) {
+                final int value = in[index++];
+                invalidBits |= value & ~mask;
+                word |= (value & mask) << (j * bits);
+            }
+            words[i] = word;
+        }
+        Preconditions.checkArgument(invalidBits == 0, "Invalid value");
+    }
+
     int size();
 
     int[] getWords();
@@ -80,6 +80,49 @@ public enum BitArrayVersion {
         }
     }
 
+    /**
+     * Creates a new bit array of this version containing all entries of the given bit array.<br>
+     * The entries are unpacked and repacked word by word, so this is much faster than copying them one by one.
+     *
+     * @param source The bit array to copy the entries from. Its entries must fit into this version.
+     * @return The new bit array
+     */
+    public BitArray createArray(final BitArray source) {
+        final BitArray target = this.createArray(source.size());
+        final BitArrayVersion sourceVersion = source.getVersion();
+        if (sourceVersion == V0 || this == V0) {
+            return target;
+        }
+
+        final int[] sourceWords = source.getWords();
+        final int[] targetWords = target.getWords();
+        final int sourceBits = sourceVersion.bits;
+        final int sourceEntriesPerWord = sourceVersion.entriesPerWord;
+        final int sourceMask = sourceVersion.maxEntryValue;
+        final int targetBits = this.bits;
+        final int targetEntriesPerWord = this.entriesPerWord;
+
+        int remaining = source.size();
+        int targetWordIndex = 0;
+        int targetWord = 0;
+        int targetEntryIndex = 0;
+        for (int i = 0; i < sourceWords.length && remaining > 0; i++) {
+            final int sourceWord = sourceWords[i];
+            for (int j = 0; j < sourceEntriesPerWord && remaining > 0; j++, remaining--) {
+                targetWord |= ((sourceWord >>> (j * sourceBits)) & sourceMask) << (targetEntryIndex * targetBits);
+                if (++targetEntryIndex == targetEntriesPerWord) {
+                    targetWords[targetWordIndex++] = targetWord;
+                    targetWord = 0;
+                    targetEntryIndex = 0;
+                }
+            }
+        }
+        if (targetEntryIndex != 0) {
+            targetWords[targetWordIndex] = targetWord;
+        }
+        return target;
+    }
+
     public int getWordsForSize(final int size) {
         if (this.entriesPerWord == 0) return 0;
         return MathUtil.ceil((float) size / this.entriesPerWord);
@@ -55,7 +55,11 @@ public class PaddedBitArray implements BitArray {
     public void set(final int index, final int value) {
         Preconditions.checkElementIndex(index, this.size);
         Preconditions.checkArgument(value >= 0 && value <= this.version.getMaxEntryValue(), "Invalid value");
+        this.setUnchecked(index, value);
+    }
 
+    @Override
+    public void setUnchecked(final int index, final int value) {
         final int arrayIndex = index / this.version.getEntriesPerWord();
         final int offset = (index % this.version.getEntriesPerWord()) * this.version.getBits();
         this.words[arrayIndex] = this.words[arrayIndex] & ~(this.version.getMaxEntryValue() << offset) | (value & this.version.getMaxEntryValue()) << offset;
@@ -64,7 +68,11 @@ public class PaddedBitArray implements BitArray {
     @Override
     public int get(final int index) {
         Preconditions.checkElementIndex(index, this.size);
+        return this.getUnchecked(index);
+    }
 
+    @Override
+    public int getUnchecked(final int index) {
         final int arrayIndex = index / this.version.getEntriesPerWord();
         final int offset = (index % this.version.getEntriesPerWord()) * this.version.getBits();
         return (this.words[arrayIndex] >>> offset) & this.version.getMaxEntryValue();
@@ -57,7 +57,11 @@ public class Pow2BitArray implements BitArray {
     public void set(final int index, final int value) {
         Preconditions.checkElementIndex(index, this.size);
         Preconditions.checkArgument(value >= 0 && value <= this.version.getMaxEntryValue(), "Invalid value %s", value);
+        this.setUnchecked(index, value);
+    }
 
+    @Override
+    public void setUnchecked(final int index, final int value) {
         final int bitIndex = index * this.version.getBits();
         final int arrayIndex = bitIndex >> 5;
         final int offset = bitIndex & 31;
@@ -69,7 +73,11 @@ public class Pow2BitArray implements BitArray {
      */
     public int get(final int index) {
         Preconditions.checkElementIndex(index, this.size);
+        return this.getUnchecked(index);
+    }
 
+    @Override
+    public int getUnchecked(final int index) {
         final int bitIndex = index * this.version.getBits();
         final int arrayIndex = bitIndex >> 5;
         final int wordOffset = bitIndex & 31;
@@ -20,6 +20,8 @@ package net.raphimc.viabedrock.api.chunk.bitarray;
 
 import com.viaversion.viaversion.api.minecraft.chunks.ChunkSection;
 
+import java.util.Arrays;
+
 public class SingletonBitArray implements BitArray {
 
     public static final SingletonBitArray INSTANCE = new SingletonBitArray();
@@ -36,6 +38,24 @@ public class SingletonBitArray implements BitArray {
         return 0;
     }
 
+    @Override
+    public void setUnchecked(final int index, final int value) {
+    }
+
+    @Override
+    public int getUnchecked(final int index) {
+        return 0;
+    }
+
+    @Override
+    public void decodeAll(final int[] out) {
+        Arrays.fill(out, 0, this.size(), 0);
+    }
+
+    @Override
+    public void encodeAll(final int[] in) {
+    }
+
     @Override
     public int size() {
         return ChunkSection.SIZE;
@@ -20,6 +20,8 @@ package net.raphimc.viabedrock.api.chunk.datapalette;
 import com.viaversion.nbt.tag.Tag;
 import com.viaversion.viaversion.api.minecraft.chunks.ChunkSection;
 import com.viaversion.viaversion.api.minecraft.chunks.DataPalette;
+import com.viaversion.viaversion.libs.fastutil.ints.Int2IntMap;
+import com.viaversion.viaversion.libs.fastutil.ints.Int2IntOpenHashMap;
 import com.viaversion.viaversion.libs.fastutil.ints.IntArrayList;
 import com.viaversion.viaversion.libs.fastutil.ints.IntList;
 import com.viaversion.viaversion.libs.fastutil.objects.Object2IntFunction;
@@ -30,8 +32,14 @@ import java.util.List;
 
 public class BedrockDataPalette implements DataPalette, Cloneable {
 
+    /**
+     * Palettes larger than this use a reverse index to look up palette indices
+     */
+    private static final int REVERSE_INDEX_THRESHOLD = 16;
+
     private final IntList palette;
     private BitArray bitArray;
+    private Int2IntMap reverseIndex;
 
     private List<Tag> persistentPalette;
 
@@ -66,11 +74,20 @@ public class BedrockDataPalette implements DataPalette, Cloneable {
         return this.palette.getInt(this.bitArray.get(sectionCoordinate));
     }
 
+    @Override
+    public int idAt(final int sectionX, final int sectionY, final int sectionZ) {
+        this.checkPersistentIds();
+        return this.palette.getInt(this.bitArray.getUnchecked(this.index(sectionX & 15, sectionY & 15, sectionZ & 15)));
+    }
+
     @Override
     public void setIdAt(final int sectionCoordinate, final int id) {
         this.checkPersistentIds();
-        int index = this.palette.indexOf(id);
+        int index = this.paletteIndexOf(id);
         if (index == -1) {
+            if (this.needsResize(this.palette.size() + 1)) {
+                this.compact();
+            }
             index = this.palette.size();
             this.addId(id);
         }
@@ -88,6 +105,7 @@ public class BedrockDataPalette implements DataPalette, Cloneable {
     public void setIdByIndex(final int index, final int id) {
         this.checkPersistentIds();
         this.palette.set(index, id);
+        this.reverseIndex = null;
     }
 
     @Override
@@ -103,17 +121,12 @@ public class BedrockDataPalette implements DataPalette, Cloneable {
     @Override
     public void addId(final int id) {
         this.palette.add(id);
+        if (this.reverseIndex != null) {
+            this.reverseIndex.putIfAbsent(id, this.palette.size() - 1);
+        }
 
-        final BitArrayVersion currentVersion = this.bitArray.getVersion();
-        if (this.palette.size() >= currentVersion.getMaxEntryValue()) {
-            final BitArrayVersion nextVersion = currentVersion.getNext();
-            if (nextVersion != null) {
-                final BitArray newBitArray = nextVersion.createArray(this.bitArray.size());
-                for (int i = 0; i < this.bitArray.size(); i++) {
-                    newBitArray.set(i, this.bitArray.get(i));
-                }
-                this.bitArray = newBitArray;
-            }
+        if (this.needsResize(this.palette.size())) {
+            this.bitArray = this.bitArray.getVersion().getNext().createArray(this.bitArray);
         }
     }
 
@@ -128,6 +141,7 @@ public class BedrockDataPalette implements DataPalette, Cloneable {
                 this.palette.set(i, newId);
             }
         }
+        this.reverseIndex = null;
     }
 
     @Override
@@ -146,6 +160,7 @@ public class BedrockDataPalette implements DataPalette, Cloneable {
         }
 
         this.palette.clear();
+        this.reverseIndex = null;
     }
 
     @Override
@@ -172,7 +187,81 @@ public class BedrockDataPalette implements DataPalette, Cloneable {
                 this.palette.add(persistentToRuntimeId.getInt(tag));
             }
             this.persistentPalette = null;
+            this.reverseIndex = null;
+        }
+    }
+
+    /**
+     * Removes palette entries which are no longer referenced by any block and merges duplicate entries.<br>
+     * The palette is only rewritten if this frees up at least a quarter of its entries.
+     *
+     * @return true if the palette was compacted
+     */
+    public boolean compact() {
+        this.checkPersistentIds();
+        final int paletteSize = this.palette.size();
+        if (paletteSize <= 1 || this.bitArray.getVersion() == BitArrayVersion.V0) {
+            return false;
+        }
+
+        final int[] paletteIndices = new int[this.bitArray.size()];
+        this.bitArray.decodeAll(paletteIndices);
+        final boolean[] used = new boolean[paletteSize];
+        for (int index : paletteIndices) {
+            if (index >= paletteSize) {
+                return false;
+            }
+            used[index] = true;
         }
+
+        final Int2IntMap newIndices = new Int2IntOpenHashMap(paletteSize);
+        newIndices.defaultReturnValue(-1);
+        final IntList newPalette = new IntArrayList(paletteSize);
+        final int[] remappedIndices = new int[paletteSize];
+        for (int i = 0; i < paletteSize; i++) {
+            if (!used[i]) continue;
+
+            final int id = this.palette.getInt(i);
+            int newIndex = newIndices.get(id);
+            if (newIndex == -1) {
+                newIndex = newPalette.size();
+                newPalette.add(id);
+                newIndices.put(id, newIndex);
+            }
+            remappedIndices[i] = newIndex;
+        }
+        if (newPalette.size() > paletteSize - paletteSize / 4) {
+            return false;
+        }
+
+        for (int i = 0; i < paletteIndices.length; i++) {
+            paletteIndices[i] = remappedIndices[paletteIndices[i]];
+        }
+        this.bitArray.encodeAll(paletteIndices);
+        this.palette.clear();
+        this.palette.addAll(newPalette);
+        this.reverseIndex = null;
+        return true;
+    }
+
+    private int paletteIndexOf(final int id) {
+        if (this.palette.size() <= REVERSE_INDEX_THRESHOLD) {
+            return this.palette.indexOf(id);
+        }
+
+        if (this.reverseIndex == null) {
+            this.reverseIndex = new Int2IntOpenHashMap(this.palette.size());
+            this.reverseIndex.defaultReturnValue(-1);
+            for (int i = 0; i < this.palette.size(); i++) {
+                this.reverseIndex.putIfAbsent(this.palette.getInt(i), i);
+            }
+        }
+        return this.reverseIndex.get(id);
+    }
+
+    private boolean needsResize(final int paletteSize) {
+        final BitArrayVersion currentVersion = this.bitArray.getVersion();
+        return paletteSize >= currentVersion.getMaxEntryValue() && currentVersion.getNext() != null;
     }
 
     private void checkPersistentIds() {
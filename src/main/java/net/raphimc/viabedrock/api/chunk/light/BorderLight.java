@@ -0,0 +1,45 @@
+/*
+ * This file is part of ViaBedrock - https://github.com/RaphiMC/ViaBedrock
+ * Copyright (C) 2023-2024 RK_01/RaphiMC and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.raphimc.viabedrock.api.chunk.light;
+
+/**
+ * Light levels at the edges of the neighbour chunks which face a chunk, indexed by the side of the chunk. A null side means that there is no neighbour with calculated light.
+ *
+ * @param skyLight   The sky light edge levels (See {@link ChunkLight#edgeLevels(boolean, int)})
+ * @param blockLight The block light edge levels (See {@link ChunkLight#edgeLevels(boolean, int)})
+ */
+public record BorderLight(byte[][] skyLight, byte[][] blockLight) {
+
+    /**
+     * @param neighbours The light of the neighbour chunks indexed by the side of the chunk they are on. Null entries are skipped
+     * @param sectionCount The section count of the chunk. Neighbours with a different section count are skipped
+     */
+    public static BorderLight of(final ChunkLight[] neighbours, final int sectionCount) {
+        final byte[][] skyLight = new byte[4][];
+        final byte[][] blockLight = new byte[4][];
+        for (int side = 0; side < 4; side++) {
+            final ChunkLight neighbour = neighbours[side];
+            if (neighbour == null || neighbour.lightSectionCount() != sectionCount + 2) continue;
+
+            skyLight[side] = neighbour.edgeLevels(true, ChunkLight.oppositeSide(side));
+            blockLight[side] = neighbour.edgeLevels(false, ChunkLight.oppositeSide(side));
+        }
+        return new BorderLight(skyLight, blockLight);
+    }
+
+}
@@ -0,0 +1,163 @@
+/*
+ * This file is part of ViaBedrock - https://github.com/RaphiMC/ViaBedrock
+ * Copyright (C) 2023-2024 RK_01/RaphiMC and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.raphimc.viabedrock.api.chunk.light;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Light data of a chunk column in the java format. The sections are indexed like the java light masks: index 0 is the section below the world and the last index is the section above the world.<br>
+ * A null section means that the section contains no light at all.
+ */
+public class ChunkLight {
+
+    public static final byte[] FULL_LIGHT = new byte[2048];
+
+    public static final int NORTH = 0; // -Z
+    public static final int SOUTH = 1; // +Z
+    public static final int WEST = 2; // -X
+    public static final int EAST = 3; // +X
+
+    static {
+        Arrays.fill(FULL_LIGHT, (byte) 0xFF);
+    }
+
+    private final byte[][] skyLight;
+    private final byte[][] blockLight;
+    private final boolean calculated;
+
+    public ChunkLight(final byte[][] skyLight, final byte[][] blockLight) {
+        this(skyLight, blockLight, true);
+    }
+
+    private ChunkLight(final byte[][] skyLight, final byte[][] blockLight, final boolean calculated) {
+        if (skyLight.length != blockLight.length) {
+            throw new IllegalArgumentException("Sky light and block light section count mismatch");
+        }
+
+        this.skyLight = skyLight;
+        this.blockLight = blockLight;
+        this.calculated = calculated;
+    }
+
+    public static ChunkLight fullBright(final int sectionCount) {
+        final byte[][] skyLight = new byte[sectionCount + 2][];
+        Arrays.fill(skyLight, FULL_LIGHT);
+        return new ChunkLight(skyLight, new byte[sectionCount + 2][]);
+    }
+
+    /**
+     * @return Light without any sky or block light, which is sent until the real light has been calculated
+     */
+    public static ChunkLight unlit(final int sectionCount) {
+        return new ChunkLight(new byte[sectionCount + 2][], new byte[sectionCount + 2][], false);
+    }
+
+    /**
+     * @return A placeholder with the same light data, which is sent until the light has been recalculated. The section arrays are shared, because they are never modified
+     */
+    public ChunkLight asPlaceholder() {
+        return new ChunkLight(this.skyLight, this.blockLight, false);
+    }
+
+    /**
+     * @return false if this is a placeholder which doesn't match the blocks of the chunk
+     */
+    public boolean isCalculated() {
+        return this.calculated;
+    }
+
+    public int lightSectionCount() {
+        return this.skyLight.length;
+    }
+
+    public byte[] skyLight(final int lightSectionIndex) {
+        return this.skyLight[lightSectionIndex];
+    }
+
+    public byte[] blockLight(final int lightSectionIndex) {
+        return this.blockLight[lightSectionIndex];
+    }
+
+    /**
+     * @param side The side of the chunk ({@link #NORTH}, {@link #SOUTH}, {@link #WEST} or {@link #EAST})
+     * @return The light levels of the blocks at the given side of the chunk, indexed by {@code (sectionIndex * 16 + y) << 4 | horizontal position along the side}
+     */
+    public byte[] edgeLevels(final boolean skyLight, final int side) {
+        final int sectionCount = this.lightSectionCount() - 2;
+        final byte[] levels = new byte[sectionCount << 8];
+        for (int i = 0; i < sectionCount; i++) {
+            final byte[] nibbles = skyLight ? this.skyLight[i + 1] : this.blockLight[i + 1];
+            if (nibbles == null) continue;
+
+            for (int edgeIndex = i << 8; edgeIndex < (i + 1) << 8; edgeIndex++) {
+                final int index = edgeBlockIndex(side, edgeIndex) & 4095;
+                levels[edgeIndex] = (byte) ((nibbles[index >> 1] >> ((index & 1) << 2)) & 15);
+            }
+        }
+        return levels;
+    }
+
+    /**
+     * @return The index of the block at the given index of {@link #edgeLevels(boolean, int)} in the light engine layout
+     */
+    public static int edgeBlockIndex(final int side, final int edgeIndex) {
+        final int along = edgeIndex & 15;
+        return (edgeIndex >> 4) << 8 | switch (side) {
+            case NORTH -> along;
+            case SOUTH -> 15 << 4 | along;
+            case WEST -> along << 4;
+            case EAST -> along << 4 | 15;
+            default -> throw new IllegalArgumentException("Invalid side: " + side);
+        };
+    }
+
+    public static int oppositeSide(final int side) {
+        return side ^ 1;
+    }
+
+    public BitSet allSections() {
+        final BitSet sections = new BitSet(this.lightSectionCount());
+        sections.set(0, this.lightSectionCount());
+        return sections;
+    }
+
+    public BitSet changedSkyLightSections(final ChunkLight previous) {
+        return changedSections(this.skyLight, previous != null ? previous.skyLight : null);
+    }
+
+    public BitSet changedBlockLightSections(final ChunkLight previous) {
+        return changedSections(this.blockLight, previous != null ? previous.blockLight : null);
+    }
+
+    private static BitSet changedSections(final byte[][] current, final byte[][] previous) {
+        final BitSet changedSections = new BitSet(current.length);
+        if (previous == null || previous.length != current.length) {
+            changedSections.set(0, current.length);
+            return changedSections;
+        }
+
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] != previous[i] && !Arrays.equals(current[i], previous[i])) {
+                changedSections.set(i);
+            }
+        }
+        return changedSections;
+    }
+
+}
@@ -0,0 +1,322 @@
+/*
+ * This file is part of ViaBedrock - https://github.com/RaphiMC/ViaBedrock
+ * Copyright (C) 2023-2024 RK_01/RaphiMC and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.raphimc.viabedrock.api.chunk.light;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.viaversion.viaversion.libs.fastutil.ints.IntArrayList;
+import com.viaversion.viaversion.libs.fastutil.ints.IntConsumer;
+import com.viaversion.viaversion.libs.fastutil.longs.LongArrayList;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Calculates sky and block light for a single chunk column.<br>
+ * The input arrays contain one entry per block and are indexed by {@code (sectionIndex * 16 + y) << 8 | z << 4 | x}, which matches the java nibble array layout.<br>
+ * Light from neighbour chunks is spread into the chunk from the {@link BorderLight}. The caller relights the neighbours when the edges of a chunk change.
+ */
+public class ChunkLightEngine {
+
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors() / 2), new ThreadFactoryBuilder().setDaemon(true).setNameFormat("ViaBedrock-Light-Engine-%d").build());
+
+    public static CompletableFuture<ChunkLight> calculateAsync(final int sectionCount, final byte[] opacities, final byte[] emissions, final BorderLight borderLight) {
+        return CompletableFuture.supplyAsync(() -> calculate(sectionCount, opacities, emissions, borderLight), EXECUTOR);
+    }
+
+    /**
+     * Updates previously calculated light after the blocks at the given indices changed. Light is only removed and spread again starting at the changed blocks, and only the sections whose light changed are replaced.
+     */
+    public static CompletableFuture<ChunkLight> updateAsync(final ChunkLight previous, final int sectionCount, final byte[] opacities, final byte[] emissions, final int[] changedIndices, final BorderLight borderLight) {
+        return CompletableFuture.supplyAsync(() -> update(previous, sectionCount, opacities, emissions, changedIndices, borderLight), EXECUTOR);
+    }
+
+    public static ChunkLight calculate(final int sectionCount, final byte[] opacities, final byte[] emissions, final BorderLight borderLight) {
+        final int blockCount = sectionCount << 12;
+        if (opacities.length != blockCount || emissions.length != blockCount) {
+            throw new IllegalArgumentException("Invalid light input size");
+        }
+
+        final IntArrayList[] queues = new IntArrayList[16];
+        for (int i = 0; i < queues.length; i++) {
+            queues[i] = new IntArrayList();
+        }
+
+        final byte[] skyLevels = withBorderLight(directSkyLight(opacities), opacities, borderLight.skyLight());
+        for (int index = 0; index < blockCount; index++) { // Only cells next to a darker cell can spread sky light any further
+            final int level = skyLevels[index];
+            if (level > 1 && hasDarkerNeighbor(skyLevels, index, level - 1)) {
+                queues[level].add(index);
+            }
+        }
+        propagate(skyLevels, opacities, queues);
+
+        final byte[] blockSources = withBorderLight(emissions, opacities, borderLight.blockLight());
+        final byte[] blockLevels = new byte[blockCount];
+        for (int index = 0; index < blockCount; index++) {
+            final int emission = blockSources[index];
+            if (emission > 0) {
+                blockLevels[index] = (byte) emission;
+                queues[emission].add(index);
+            }
+        }
+        propagate(blockLevels, opacities, queues);
+
+        final byte[][] skyLight = new byte[sectionCount + 2][];
+        final byte[][] blockLight = new byte[sectionCount + 2][];
+        for (int i = 0; i < sectionCount; i++) {
+            skyLight[i + 1] = toNibbleArray(skyLevels, i << 12);
+            blockLight[i + 1] = toNibbleArray(blockLevels, i << 12);
+        }
+        skyLight[sectionCount + 1] = ChunkLight.FULL_LIGHT; // Open sky above the world
+        return new ChunkLight(skyLight, blockLight);
+    }
+
+    public static ChunkLight update(final ChunkLight previous, final int sectionCount, final byte[] opacities, final byte[] emissions, final int[] changedIndices, final BorderLight borderLight) {
+        final int blockCount = sectionCount << 12;
+        if (opacities.length != blockCount || emissions.length != blockCount || previous.lightSectionCount() != sectionCount + 2) {
+            throw new IllegalArgumentException("Invalid light input size");
+        }
+
+        final IntArrayList[] queues = new IntArrayList[16];
+        for (int i = 0; i < queues.length; i++) {
+            queues[i] = new IntArrayList();
+        }
+        final LongArrayList removalQueue = new LongArrayList();
+
+        final byte[][] skyLight = new byte[sectionCount + 2][];
+        final byte[] previousSkyLevels = fromNibbleArrays(previous, true, sectionCount);
+        final byte[] skyLevels = previousSkyLevels.clone();
+        updateLevels(skyLevels, withBorderLight(directSkyLight(opacities), opacities, borderLight.skyLight()), opacities, changedIndices, true, queues, removalQueue);
+        final byte[][] blockLight = new byte[sectionCount + 2][];
+        final byte[] previousBlockLevels = fromNibbleArrays(previous, false, sectionCount);
+        final byte[] blockLevels = previousBlockLevels.clone();
+        updateLevels(blockLevels, withBorderLight(emissions, opacities, borderLight.blockLight()), opacities, changedIndices, false, queues, removalQueue);
+
+        for (int i = 0; i < sectionCount + 2; i++) {
+            final int offset = (i - 1) << 12;
+            if (i > 0 && i <= sectionCount && !Arrays.equals(skyLevels, offset, offset + 4096, previousSkyLevels, offset, offset + 4096)) {
+                skyLight[i] = toNibbleArray(skyLevels, offset);
+            } else {
+                skyLight[i] = previous.skyLight(i);
+            }
+            if (i > 0 && i <= sectionCount && !Arrays.equals(blockLevels, offset, offset + 4096, previousBlockLevels, offset, offset + 4096)) {
+                blockLight[i] = toNibbleArray(blockLevels, offset);
+            } else {
+                blockLight[i] = previous.blockLight(i);
+            }
+        }
+        return new ChunkLight(skyLight, blockLight);
+    }
+
+    /**
+     * Removes the light which depended on the changed blocks and spreads light into the removed area again.
+     *
+     * @param levels        The light levels before the change, which are updated in place
+     * @param sourceLevels  The light level each block has on its own (direct sky light or block light emission)
+     * @param skyLight      If true, the direct sky light in the columns below the changed blocks is reset as well, because it doesn't fade downwards
+     */
+    private static void updateLevels(final byte[] levels, final byte[] sourceLevels, final byte[] opacities, final int[] changedIndices, final boolean skyLight, final IntArrayList[] queues, final LongArrayList removalQueue) {
+        for (int index : changedIndices) {
+            final int previousLevel = levels[index];
+            levels[index] = sourceLevels[index];
+            if (previousLevel > 0) {
+                removalQueue.add((long) index << 4 | previousLevel);
+            }
+            if (levels[index] > 0) {
+                queues[levels[index]].add(index);
+            }
+            forEachNeighbor(index, levels.length, neighbor -> { // The changed block might let light through now
+                if (levels[neighbor] > 0) {
+                    queues[levels[neighbor]].add(neighbor);
+                }
+            });
+            if (skyLight) { // The direct sky light below the changed block might have changed
+                for (int below = index - 256; below >= 0 && (levels[below] > 0 || sourceLevels[below] > 0); below -= 256) {
+                    final int previousBelowLevel = levels[below];
+                    if (previousBelowLevel == sourceLevels[below]) continue;
+
+                    levels[below] = sourceLevels[below];
+                    if (previousBelowLevel > levels[below]) {
+                        removalQueue.add((long) below << 4 | previousBelowLevel);
+                    }
+                    if (levels[below] > 0) {
+                        queues[levels[below]].add(below);
+                    }
+                }
+            }
+        }
+
+        for (int i = 0; i < removalQueue.size(); i++) {
+            final long entry = removalQueue.getLong(i);
+            final int index = (int) (entry >> 4);
+            final int removedLevel = (int) (entry & 15);
+            forEachNeighbor(index, levels.length, neighbor -> {
+                final int level = levels[neighbor];
+                if (level == 0) return;
+
+                if (level < removedLevel && level > sourceLevels[neighbor]) {
+                    levels[neighbor] = sourceLevels[neighbor];
+                    removalQueue.add((long) neighbor << 4 | level);
+                    if (levels[neighbor] > 0) {
+                        queues[levels[neighbor]].add(neighbor);
+                    }
+                } else { // Lit by something else, so it can spread light into the removed area again
+                    queues[level].add(neighbor);
+                }
+            });
+        }
+        removalQueue.clear();
+
+        propagate(levels, opacities, queues);
+    }
+
+    private static void forEachNeighbor(final int index, final int blockCount, final IntConsumer consumer) {
+        final int x = index & 15;
+        final int z = (index >> 4) & 15;
+        if (x > 0) consumer.accept(index - 1);
+        if (x < 15) consumer.accept(index + 1);
+        if (z > 0) consumer.accept(index - 16);
+        if (z < 15) consumer.accept(index + 16);
+        if (index >= 256) consumer.accept(index - 256);
+        if (index + 256 < blockCount) consumer.accept(index + 256);
+    }
+
+    private static byte[] directSkyLight(final byte[] opacities) {
+        final byte[] skyLevels = new byte[opacities.length];
+        for (int columnIndex = 0; columnIndex < 256; columnIndex++) {
+            int level = 15;
+            for (int index = opacities.length - 256 + columnIndex; index >= 0; index -= 256) {
+                final int opacity = opacities[index];
+                if (opacity >= 15) break;
+                level -= opacity;
+                if (level <= 0) break;
+
+                skyLevels[index] = (byte) level;
+            }
+        }
+        return skyLevels;
+    }
+
+    /**
+     * Raises the source levels of the blocks at the chunk edges to the light which spreads into them from the neighbour chunks.
+     *
+     * @return The source levels including the border light. The input array is copied before it is modified
+     */
+    private static byte[] withBorderLight(final byte[] sourceLevels, final byte[] opacities, final byte[][] borderLevels) {
+        byte[] levels = sourceLevels;
+        for (int side = 0; side < borderLevels.length; side++) {
+            final byte[] edgeLevels = borderLevels[side];
+            if (edgeLevels == null) continue;
+
+            for (int edgeIndex = 0; edgeIndex < edgeLevels.length; edgeIndex++) {
+                if (edgeLevels[edgeIndex] <= 1) continue;
+
+                final int index = ChunkLight.edgeBlockIndex(side, edgeIndex);
+                final int level = edgeLevels[edgeIndex] - Math.max(1, opacities[index]);
+                if (level > levels[index]) {
+                    if (levels == sourceLevels) {
+                        levels = sourceLevels.clone();
+                    }
+                    levels[index] = (byte) level;
+                }
+            }
+        }
+        return levels;
+    }
+
+    private static void propagate(final byte[] levels, final byte[] opacities, final IntArrayList[] queues) {
+        final int maxIndex = levels.length - 1;
+        for (int level = 15; level > 0; level--) {
+            final IntArrayList queue = queues[level];
+            if (level > 1) {
+                for (int i = 0; i < queue.size(); i++) {
+                    final int index = queue.getInt(i);
+                    if (levels[index] != level) continue; // Already reached by a brighter source
+
+                    final int x = index & 15;
+                    final int z = (index >> 4) & 15;
+                    if (x > 0) spread(levels, opacities, queues, level, index - 1);
+                    if (x < 15) spread(levels, opacities, queues, level, index + 1);
+                    if (z > 0) spread(levels, opacities, queues, level, index - 16);
+                    if (z < 15) spread(levels, opacities, queues, level, index + 16);
+                    if (index >= 256) spread(levels, opacities, queues, level, index - 256);
+                    if (index + 256 <= maxIndex) spread(levels, opacities, queues, level, index + 256);
+                }
+            }
+            queue.clear();
+        }
+    }
+
+    private static boolean hasDarkerNeighbor(final byte[] levels, final int index, final int level) {
+        final int x = index & 15;
+        final int z = (index >> 4) & 15;
+        return (x > 0 && levels[index - 1] < level)
+                || (x < 15 && levels[index + 1] < level)
+                || (z > 0 && levels[index - 16] < level)
+                || (z < 15 && levels[index + 16] < level)
+                || (index >= 256 && levels[index - 256] < level)
+                || (index + 256 < levels.length && levels[index + 256] < level);
+    }
+
+    private static void spread(final byte[] levels, final byte[] opacities, final IntArrayList[] queues, final int level, final int index) {
+        final int newLevel = level - Math.max(1, opacities[index]);
+        if (newLevel > levels[index]) {
+            levels[index] = (byte) newLevel;
+            queues[newLevel].add(index);
+        }
+    }
+
+    private static byte[] fromNibbleArrays(final ChunkLight light, final boolean skyLight, final int sectionCount) {
+        final byte[] levels = new byte[sectionCount << 12];
+        for (int i = 0; i < sectionCount; i++) {
+            final byte[] nibbles = skyLight ? light.skyLight(i + 1) : light.blockLight(i + 1);
+            if (nibbles == null) continue;
+
+            final int offset = i << 12;
+            if (nibbles == ChunkLight.FULL_LIGHT) {
+                Arrays.fill(levels, offset, offset + 4096, (byte) 15);
+                continue;
+            }
+            for (int j = 0; j < nibbles.length; j++) {
+                levels[offset + (j << 1)] = (byte) (nibbles[j] & 15);
+                levels[offset + (j << 1) + 1] = (byte) ((nibbles[j] >> 4) & 15);
+            }
+        }
+        return levels;
+    }
+
+    private static byte[] toNibbleArray(final byte[] levels, final int offset) {
+        boolean empty = true;
+        boolean full = true;
+        for (int i = offset; i < offset + 4096; i++) {
+            empty &= levels[i] == 0;
+            full &= levels[i] == 15;
+        }
+        if (empty) return null;
+        if (full) return ChunkLight.FULL_LIGHT;
+
+        final byte[] nibbles = new byte[2048];
+        for (int i = 0; i < nibbles.length; i++) {
+            nibbles[i] = (byte) (levels[offset + (i << 1)] | levels[offset + (i << 1) + 1] << 4);
+        }
+        return nibbles;
+    }
+
+}
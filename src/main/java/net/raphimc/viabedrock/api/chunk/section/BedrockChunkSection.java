@@ -74,4 +74,26 @@ public interface BedrockChunkSection extends ChunkSection, Cloneable {
 
     void applyPendingBlockUpdates(final int airId);
 
+    /**
+     * Compresses the palettes of this section to save memory. They are transparently decompressed again on the next access.
+     *
+     * @return True if the section is compressed now
+     */
+    boolean compress();
+
+    boolean isCompressed();
+
+    /**
+     * Accesses are only recorded as a flag, so the time is taken when this method is called.
+     *
+     * @param now The current time in milliseconds
+     * @return The time in milliseconds of the first call of this method after the last access of the section data
+     */
+    long lastAccessTime(final long now);
+
+    /**
+     * @return The approximate heap size of the section data in bytes
+     */
+    int estimatedMemoryUsage();
+
 }
@@ -17,9 +17,17 @@
  */
 package net.raphimc.viabedrock.api.chunk.section;
 
+import com.viaversion.viaversion.api.minecraft.chunks.ChunkSection;
 import com.viaversion.viaversion.api.minecraft.chunks.DataPalette;
 import com.viaversion.viaversion.api.minecraft.chunks.PaletteType;
+import com.viaversion.viaversion.libs.fastutil.ints.IntArrayList;
+import com.viaversion.viaversion.libs.fastutil.ints.IntList;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import net.raphimc.viabedrock.api.chunk.bitarray.BitArray;
+import net.raphimc.viabedrock.api.chunk.bitarray.BitArrayVersion;
 import net.raphimc.viabedrock.api.chunk.datapalette.BedrockDataPalette;
+import net.raphimc.viabedrock.api.util.LZ4;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -27,9 +35,16 @@ import java.util.List;
 
 public class BedrockChunkSectionImpl implements BedrockChunkSection {
 
+    private static final int SECTION_OVERHEAD = 64;
+    private static final int PALETTE_OVERHEAD = 64;
+    private static final int MIN_COMPRESSIBLE_SIZE = 512;
+
     private final List<DataPalette> blockPalettes = new ArrayList<>();
     private DataPalette biomePalette;
     private List<int[]> pendingBlockUpdates = new ArrayList<>();
+    private byte[] compressedData;
+    private boolean accessed = true;
+    private long lastAccessTime = System.currentTimeMillis();
 
     public BedrockChunkSectionImpl() {
     }
@@ -40,6 +55,7 @@ public class BedrockChunkSectionImpl implements BedrockChunkSection {
 
     @Override
     public int palettesCount(final PaletteType type) {
+        this.decompress();
         if (type == PaletteType.BLOCKS) {
             return this.blockPalettes.size();
         } else if (type == PaletteType.BIOMES) {
@@ -51,6 +67,7 @@ public class BedrockChunkSectionImpl implements BedrockChunkSection {
 
     @Override
     public List<DataPalette> palettes(final PaletteType type) {
+        this.decompress();
         if (type == PaletteType.BLOCKS) {
             return this.blockPalettes;
         } else if (type == PaletteType.BIOMES) {
@@ -62,6 +79,7 @@ public class BedrockChunkSectionImpl implements BedrockChunkSection {
 
     @Override
     public void mergeWith(final BedrockChunkSection other) {
+        this.decompress();
         if (!this.hasPendingBlockUpdates()) {
             throw new IllegalStateException("This section already has been merged with another section");
         }
@@ -90,6 +108,7 @@ public class BedrockChunkSectionImpl implements BedrockChunkSection {
 
     @Override
     public void applyPendingBlockUpdates(final int airId) {
+        this.decompress();
         if (this.hasPendingBlockUpdates()) {
             for (int[] blockUpdate : this.pendingBlockUpdates) {
                 final int layer = blockUpdate[0];
@@ -116,6 +135,7 @@ public class BedrockChunkSectionImpl implements BedrockChunkSection {
 
     @Override
     public void addPalette(final PaletteType type, final DataPalette palette) {
+        this.decompress();
         if (type == PaletteType.BLOCKS) {
             if (palette == null) throw new IllegalArgumentException("Block palette cannot be null");
 
@@ -129,8 +149,70 @@ public class BedrockChunkSectionImpl implements BedrockChunkSection {
         }
     }
 
+    @Override
+    public boolean compress() {
+        if (this.compressedData != null) return true;
+        if (this.hasPendingBlockUpdates() || this.estimatedMemoryUsage() < MIN_COMPRESSIBLE_SIZE) return false;
+        for (DataPalette palette : this.blockPalettes) {
+            if (!isCompressible(palette)) return false;
+        }
+        if (this.biomePalette != null && !isCompressible(this.biomePalette)) return false;
+
+        final ByteBuf buf = Unpooled.buffer();
+        try {
+            buf.writeByte(this.blockPalettes.size());
+            for (DataPalette palette : this.blockPalettes) {
+                writePalette(buf, (BedrockDataPalette) palette);
+            }
+            buf.writeBoolean(this.biomePalette != null);
+            if (this.biomePalette != null) {
+                writePalette(buf, (BedrockDataPalette) this.biomePalette);
+            }
+
+            final byte[] data = new byte[buf.readableBytes()];
+            buf.readBytes(data);
+            this.compressedData = LZ4.compressFast(data);
+        } finally {
+            buf.release();
+        }
+        this.blockPalettes.clear();
+        this.biomePalette = null;
+        return true;
+    }
+
+    @Override
+    public boolean isCompressed() {
+        return this.compressedData != null;
+    }
+
+    @Override
+    public long lastAccessTime(final long now) {
+        if (this.accessed) {
+            this.accessed = false;
+            this.lastAccessTime = now;
+        }
+        return this.lastAccessTime;
+    }
+
+    @Override
+    public int estimatedMemoryUsage() {
+        if (this.compressedData != null) {
+            return SECTION_OVERHEAD + this.compressedData.length;
+        }
+
+        int size = SECTION_OVERHEAD;
+        for (DataPalette palette : this.blockPalettes) {
+            size += estimatedMemoryUsage(palette);
+        }
+        if (this.biomePalette != null) {
+            size += estimatedMemoryUsage(this.biomePalette);
+        }
+        return size;
+    }
+
     @Override
     public void removePalette(final PaletteType type) {
+        this.decompress();
         if (type == PaletteType.BLOCKS) {
             this.blockPalettes.clear();
         } else if (type == PaletteType.BIOMES) {
@@ -138,4 +220,61 @@ public class BedrockChunkSectionImpl implements BedrockChunkSection {
         }
     }
 
+    private void decompress() {
+        this.accessed = true; // Every access to the section data goes through here
+        if (this.compressedData == null) return;
+
+        final ByteBuf buf = Unpooled.wrappedBuffer(LZ4.decompress(this.compressedData));
+        this.compressedData = null;
+        final int blockPaletteCount = buf.readUnsignedByte();
+        for (int i = 0; i < blockPaletteCount; i++) {
+            this.blockPalettes.add(readPalette(buf));
+        }
+        if (buf.readBoolean()) {
+            this.biomePalette = readPalette(buf);
+        }
+    }
+
+    private static boolean isCompressible(final DataPalette palette) {
+        return palette instanceof BedrockDataPalette bedrockDataPalette && !bedrockDataPalette.usesPersistentIds();
+    }
+
+    private static int estimatedMemoryUsage(final DataPalette palette) {
+        if (palette instanceof BedrockDataPalette bedrockDataPalette) {
+            return PALETTE_OVERHEAD + bedrockDataPalette.size() * Integer.BYTES + bedrockDataPalette.getBitArray().getWords().length * Integer.BYTES;
+        } else {
+            return PALETTE_OVERHEAD + ChunkSection.SIZE; // Legacy arrays store about one byte per entry
+        }
+    }
+
+    private static void writePalette(final ByteBuf buf, final BedrockDataPalette palette) {
+        final BitArray bitArray = palette.getBitArray();
+        buf.writeByte(bitArray.getVersion().getBits());
+        buf.writeInt(bitArray.size());
+        buf.writeInt(palette.size());
+        for (int i = 0; i < palette.size(); i++) {
+            buf.writeInt(palette.idByIndex(i));
+        }
+        final int[] words = bitArray.getWords();
+        buf.writeInt(words.length);
+        for (int word : words) {
+            buf.writeInt(word);
+        }
+    }
+
+    private static BedrockDataPalette readPalette(final ByteBuf buf) {
+        final BitArrayVersion version = BitArrayVersion.get(buf.readUnsignedByte(), true);
+        final int size = buf.readInt();
+        final int paletteSize = buf.readInt();
+        final IntList palette = new IntArrayList(paletteSize);
+        for (int i = 0; i < paletteSize; i++) {
+            palette.add(buf.readInt());
+        }
+        final int[] words = new int[buf.readInt()];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = buf.readInt();
+        }
+        return new BedrockDataPalette(palette, version.createArray(size, words));
+    }
+
 }
@@ -0,0 +1,39 @@
+/*
+ * This file is part of ViaBedrock - https://github.com/RaphiMC/ViaBedrock
+ * Copyright (C) 2023-2024 RK_01/RaphiMC and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.raphimc.viabedrock.api.io;
+
+import java.io.Closeable;
+
+/**
+ * Embedded persistent key-value storage engine.
+ */
+public interface KeyValueStore extends Closeable {
+
+    /**
+     * @param key The key
+     * @return The stored value or null if the key doesn't exist
+     */
+    byte[] get(final byte[] key);
+
+    void put(final byte[] key, final byte[] value);
+
+    default boolean contains(final byte[] key) {
+        return this.get(key) != null;
+    }
+
+}
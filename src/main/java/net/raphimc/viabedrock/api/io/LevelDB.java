@@ -20,16 +20,18 @@ package net.raphimc.viabedrock.api.io;
 import net.raphimc.viabedrock.ViaBedrock;
 import org.iq80.leveldb.CompressionType;
 import org.iq80.leveldb.DB;
+import org.iq80.leveldb.DBIterator;
 import org.iq80.leveldb.Options;
 import org.iq80.leveldb.impl.Iq80DBFactory;
 import org.iq80.leveldb.util.FileUtils;
 
-import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
 import java.util.logging.Level;
 
-public class LevelDB implements Closeable {
+public class LevelDB implements KeyValueStore {
 
     private final DB db;
 
@@ -55,10 +57,22 @@ public class LevelDB implements Closeable {
         this.db = db;
     }
 
+    @Override
     public byte[] get(final byte[] key) {
         return this.db.get(key);
     }
 
+    @Override
+    public boolean contains(final byte[] key) {
+        try (DBIterator iterator = this.db.iterator()) { // Seeking only reads the key, get() would copy the whole value
+            iterator.seek(key);
+            return iterator.hasNext() && Arrays.equals(iterator.peekNext().getKey(), key);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
     public void put(final byte[] key, final byte[] value) {
         this.db.put(key, value);
     }
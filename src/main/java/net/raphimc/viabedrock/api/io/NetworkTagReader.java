@@ -0,0 +1,142 @@
+/*
+ * This file is part of ViaBedrock - https://github.com/RaphiMC/ViaBedrock
+ * Copyright (C) 2023-2024 RK_01/RaphiMC and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.raphimc.viabedrock.api.io;
+
+import io.netty.buffer.ByteBuf;
+import net.raphimc.viabedrock.protocol.types.BedrockTypes;
+
+/**
+ * Allocation free scanner for network NBT (Bedrock's VarInt based NBT encoding).<br>
+ * Used to reject tags which are nested too deeply or are too big before they are decoded.
+ */
+public class NetworkTagReader {
+
+    public static final int MAX_DEPTH = 512;
+    public static final int MAX_SIZE = 8 * 1024 * 1024;
+
+    /**
+     * Checks that the named root tag at the reader index of the buffer doesn't exceed the nesting depth and size limits, without decoding it.<br>
+     * The reader index of the buffer is not changed.
+     *
+     * @param buffer The buffer to read from
+     */
+    public static void checkLimits(final ByteBuf buffer) {
+        final int start = buffer.readerIndex();
+        try {
+            skipTag(buffer);
+        } finally {
+            buffer.readerIndex(start);
+        }
+    }
+
+    /**
+     * Skips a named root tag.
+     *
+     * @param buffer The buffer to read from
+     */
+    public static void skipTag(final ByteBuf buffer) {
+        final int start = buffer.readerIndex();
+        final byte type = buffer.readByte();
+        if (type == 0) return;
+
+        skipString(buffer); // name
+        skip(buffer, type, 0);
+        final int size = buffer.readerIndex() - start;
+        if (size > MAX_SIZE) {
+            throw new IllegalStateException("NBT tag is too big (" + size + " > " + MAX_SIZE + ")");
+        }
+    }
+
+    /**
+     * Skips the payload of a tag.
+     *
+     * @param buffer The buffer to read from
+     * @param type   The tag type id
+     * @param depth  The current nesting depth
+     */
+    public static void skip(final ByteBuf buffer, final byte type, final int depth) {
+        if (depth > MAX_DEPTH) {
+            throw new IllegalStateException("NBT tag is nested too deeply (> " + MAX_DEPTH + ")");
+        }
+
+        switch (type) {
+            case 1 -> buffer.skipBytes(Byte.BYTES);
+            case 2 -> buffer.skipBytes(Short.BYTES);
+            case 3 -> skipVarInt(buffer, 5);
+            case 4 -> skipVarInt(buffer, 10);
+            case 5 -> buffer.skipBytes(Float.BYTES);
+            case 6 -> buffer.skipBytes(Double.BYTES);
+            case 7 -> buffer.skipBytes(readLength(buffer));
+            case 8 -> skipString(buffer);
+            case 9 -> {
+                final byte elementType = buffer.readByte();
+                final int length = readLength(buffer);
+                if (elementType == 0) return;
+                for (int i = 0; i < length; i++) {
+                    skip(buffer, elementType, depth + 1);
+                }
+            }
+            case 10 -> {
+                byte entryType;
+                while ((entryType = buffer.readByte()) != 0) {
+                    skipString(buffer); // name
+                    skip(buffer, entryType, depth + 1);
+                }
+            }
+            case 11 -> {
+                final int length = readLength(buffer);
+                for (int i = 0; i < length; i++) {
+                    skipVarInt(buffer, 5);
+                }
+            }
+            case 12 -> {
+                final int length = readLength(buffer);
+                for (int i = 0; i < length; i++) {
+                    skipVarInt(buffer, 10);
+                }
+            }
+            default -> throw new IllegalStateException("Unknown NBT tag type: " + type);
+        }
+    }
+
+    public static void skipString(final ByteBuf buffer) {
+        final int length = BedrockTypes.UNSIGNED_VAR_INT.readPrimitive(buffer);
+        if (length < 0) {
+            throw new IllegalStateException("Invalid NBT string length: " + (length & 0xFFFFFFFFL));
+        }
+        buffer.skipBytes(length);
+    }
+
+    private static int readLength(final ByteBuf buffer) {
+        final int length = BedrockTypes.VAR_INT.readPrimitive(buffer);
+        if (length < 0) {
+            throw new IllegalStateException("Invalid NBT array length: " + length);
+        }
+        return length;
+    }
+
+    private static void skipVarInt(final ByteBuf buffer, final int maxBytes) {
+        for (int i = 0; i < maxBytes; i++) {
+            if ((buffer.readByte() & 0x80) == 0) {
+                return;
+            }
+        }
+        throw new IllegalStateException("VarInt too big");
+    }
+
+}
@@ -0,0 +1,386 @@
+/*
+ * This file is part of ViaBedrock - https://github.com/RaphiMC/ViaBedrock
+ * Copyright (C) 2023-2024 RK_01/RaphiMC and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.raphimc.viabedrock.api.io;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.viaversion.viaversion.libs.fastutil.ints.Int2ObjectMap;
+import com.viaversion.viaversion.libs.fastutil.ints.Int2ObjectOpenHashMap;
+import com.viaversion.viaversion.libs.fastutil.ints.IntArrayList;
+import com.viaversion.viaversion.libs.fastutil.ints.IntList;
+import com.viaversion.viaversion.libs.fastutil.objects.Object2LongMap;
+import com.viaversion.viaversion.libs.fastutil.objects.Object2LongOpenHashMap;
+import net.raphimc.viabedrock.ViaBedrock;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log structured key-value store tuned for immutable content-addressed blobs.<br>
+ * Records are appended to segment files and located through an in-memory hash index. Sealed segments which mostly contain overwritten records are compacted in the background.
+ */
+public class SegmentStore implements KeyValueStore {
+
+    private static final String SEGMENT_FILE_EXTENSION = ".segment";
+    private static final long MAX_SEGMENT_SIZE = 64L * 1024 * 1024;
+    private static final int HEADER_SIZE = Integer.BYTES * 3; // key length, value length, checksum
+    private static final double MIN_LIVE_RATIO = 0.5;
+
+    private final File directory;
+    private final Object2LongMap<ByteBuffer> index = new Object2LongOpenHashMap<>(); // key -> segment id << 32 | offset
+    private final Int2ObjectMap<Segment> segments = new Int2ObjectOpenHashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ExecutorService compactionExecutor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("ViaBedrock-Segment-Compaction-%d").build());
+    private final IntList compactionQueue = new IntArrayList();
+    private Segment activeSegment;
+    private volatile boolean closed;
+
+    public SegmentStore(final File directory) throws IOException {
+        this.directory = directory;
+        this.index.defaultReturnValue(-1L);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Failed to create directory: " + directory);
+        }
+
+        final File[] files = directory.listFiles((dir, name) -> name.endsWith(SEGMENT_FILE_EXTENSION));
+        final IntList segmentIds = new IntArrayList();
+        if (files != null) {
+            for (File file : files) {
+                try {
+                    segmentIds.add(Integer.parseInt(file.getName().substring(0, file.getName().length() - SEGMENT_FILE_EXTENSION.length())));
+                } catch (NumberFormatException ignored) {
+                }
+            }
+        }
+        segmentIds.sort(null);
+        for (int i = 0; i < segmentIds.size(); i++) {
+            this.loadSegment(segmentIds.getInt(i));
+        }
+
+        if (segmentIds.isEmpty()) {
+            this.activeSegment = this.createSegment(0);
+        } else {
+            this.activeSegment = this.segments.get(segmentIds.getInt(segmentIds.size() - 1));
+            if (this.activeSegment.size >= MAX_SEGMENT_SIZE) {
+                this.activeSegment = this.createSegment(this.activeSegment.id + 1);
+            }
+        }
+        for (Segment segment : this.segments.values()) {
+            this.scheduleCompactionIfNeeded(segment);
+        }
+    }
+
+    @Override
+    public byte[] get(final byte[] key) {
+        this.lock.readLock().lock();
+        try {
+            final long location = this.index.getLong(ByteBuffer.wrap(key));
+            if (location == -1L) return null;
+
+            return this.readRecord(location).value;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean contains(final byte[] key) {
+        this.lock.readLock().lock();
+        try {
+            return this.index.containsKey(ByteBuffer.wrap(key));
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void put(final byte[] key, final byte[] value) {
+        this.lock.writeLock().lock();
+        try {
+            this.append(ByteBuffer.wrap(key.clone()), value);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return The total size of all segment files in bytes
+     */
+    public long getDiskUsage() {
+        this.lock.readLock().lock();
+        try {
+            long diskUsage = 0;
+            for (Segment segment : this.segments.values()) {
+                diskUsage += segment.size;
+            }
+            return diskUsage;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.closed = true;
+        this.compactionExecutor.shutdown();
+        try {
+            this.compactionExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ignored) {
+        }
+
+        this.lock.writeLock().lock();
+        try {
+            for (Segment segment : this.segments.values()) {
+                segment.channel.close();
+            }
+            this.segments.clear();
+            this.index.clear();
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    private void append(final ByteBuffer key, final byte[] value) throws IOException {
+        final int recordSize = HEADER_SIZE + key.remaining() + value.length;
+        final ByteBuffer record = ByteBuffer.allocate(recordSize);
+        record.putInt(key.remaining());
+        record.putInt(value.length);
+        record.putInt(checksum(key.array(), value));
+        record.put(key.array());
+        record.put(value);
+        record.flip();
+
+        final Segment segment = this.activeSegment;
+        final long offset = segment.size;
+        while (record.hasRemaining()) {
+            segment.channel.write(record, offset + record.position());
+        }
+        segment.size += recordSize;
+        segment.liveBytes += recordSize;
+
+        final long previousLocation = this.index.put(key, location(segment.id, offset));
+        if (previousLocation != -1L) {
+            this.markDead(previousLocation);
+        }
+
+        if (segment.size >= MAX_SEGMENT_SIZE) {
+            this.activeSegment = this.createSegment(segment.id + 1);
+            this.scheduleCompactionIfNeeded(segment);
+        }
+    }
+
+    private void markDead(final long location) throws IOException {
+        final Segment segment = this.segments.get(segmentId(location));
+        final ByteBuffer header = ByteBuffer.allocate(Integer.BYTES * 2);
+        readFully(segment.channel, header, offset(location));
+        segment.liveBytes -= HEADER_SIZE + header.getInt(0) + header.getInt(Integer.BYTES);
+        if (this.activeSegment != null) { // Compaction is only scheduled once all segments are loaded
+            this.scheduleCompactionIfNeeded(segment);
+        }
+    }
+
+    private Record readRecord(final long location) throws IOException {
+        final Segment segment = this.segments.get(segmentId(location));
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(segment.channel, header, offset(location));
+        final byte[] key = new byte[header.getInt(0)];
+        final byte[] value = new byte[header.getInt(Integer.BYTES)];
+        final ByteBuffer data = ByteBuffer.allocate(key.length + value.length);
+        readFully(segment.channel, data, offset(location) + HEADER_SIZE);
+        data.get(0, key);
+        data.get(key.length, value);
+        if (checksum(key, value) != header.getInt(Integer.BYTES * 2)) {
+            throw new IOException("Checksum mismatch in segment " + segment.id + " at offset " + offset(location));
+        }
+        return new Record(key, value);
+    }
+
+    private void loadSegment(final int id) throws IOException {
+        final File file = this.segmentFile(id);
+        final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        final Segment segment = new Segment(id, file, channel);
+        this.segments.put(id, segment);
+
+        final long fileSize = channel.size();
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        long offset = 0;
+        while (offset + HEADER_SIZE <= fileSize) {
+            header.clear();
+            readFully(channel, header, offset);
+            final int keyLength = header.getInt(0);
+            final int valueLength = header.getInt(Integer.BYTES);
+            if (keyLength < 0 || valueLength < 0 || offset + HEADER_SIZE + keyLength + valueLength > fileSize) {
+                break;
+            }
+            final ByteBuffer data = ByteBuffer.allocate(keyLength + valueLength);
+            readFully(channel, data, offset + HEADER_SIZE);
+            final byte[] key = new byte[keyLength];
+            final byte[] value = new byte[valueLength];
+            data.get(0, key);
+            data.get(keyLength, value);
+            if (checksum(key, value) != header.getInt(Integer.BYTES * 2)) {
+                break;
+            }
+
+            final int recordSize = HEADER_SIZE + keyLength + valueLength;
+            segment.size = offset + recordSize;
+            segment.liveBytes += recordSize;
+            final long previousLocation = this.index.put(ByteBuffer.wrap(key), location(id, offset));
+            if (previousLocation != -1L) {
+                this.markDead(previousLocation);
+            }
+            offset += recordSize;
+        }
+        if (segment.size != fileSize) { // Incomplete or corrupted write, most likely caused by a crash
+            ViaBedrock.getPlatform().getLogger().log(Level.WARNING, "Truncating segment " + file.getName() + " from " + fileSize + " to " + segment.size + " bytes");
+            channel.truncate(segment.size);
+        }
+    }
+
+    private Segment createSegment(final int id) throws IOException {
+        final File file = this.segmentFile(id);
+        final Segment segment = new Segment(id, file, FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE));
+        this.segments.put(id, segment);
+        return segment;
+    }
+
+    private File segmentFile(final int id) {
+        return new File(this.directory, String.format("%08d", id) + SEGMENT_FILE_EXTENSION);
+    }
+
+    private void scheduleCompactionIfNeeded(final Segment segment) {
+        if (segment == this.activeSegment || segment.compactionScheduled || segment.liveBytes >= segment.size * MIN_LIVE_RATIO) {
+            return;
+        }
+
+        segment.compactionScheduled = true;
+        synchronized (this.compactionQueue) {
+            this.compactionQueue.add(segment.id);
+        }
+        this.compactionExecutor.execute(this::compact);
+    }
+
+    private void compact() {
+        final int segmentId;
+        synchronized (this.compactionQueue) {
+            if (this.compactionQueue.isEmpty()) return;
+            segmentId = this.compactionQueue.removeInt(0);
+        }
+
+        try {
+            final Segment segment;
+            this.lock.readLock().lock();
+            try {
+                segment = this.segments.get(segmentId);
+            } finally {
+                this.lock.readLock().unlock();
+            }
+            if (segment == null || this.closed) return;
+
+            long offset = 0;
+            while (offset < segment.size && !this.closed) { // Sealed segments aren't written to anymore
+                final long location = location(segmentId, offset);
+                this.lock.writeLock().lock();
+                try {
+                    final Record record = this.readRecord(location);
+                    final ByteBuffer key = ByteBuffer.wrap(record.key);
+                    if (this.index.getLong(key) == location) { // Move the record if it is still live
+                        this.append(key, record.value);
+                    }
+                    offset += HEADER_SIZE + record.key.length + record.value.length;
+                } finally {
+                    this.lock.writeLock().unlock();
+                }
+            }
+            if (offset < segment.size) return;
+
+            this.lock.writeLock().lock();
+            try {
+                this.segments.remove(segmentId);
+                segment.channel.close();
+                if (!segment.file.delete()) {
+                    ViaBedrock.getPlatform().getLogger().log(Level.WARNING, "Failed to delete compacted segment " + segment.file.getName());
+                }
+            } finally {
+                this.lock.writeLock().unlock();
+            }
+        } catch (Throwable e) {
+            ViaBedrock.getPlatform().getLogger().log(Level.WARNING, "Failed to compact segment " + segmentId, e);
+        }
+    }
+
+    private static void readFully(final FileChannel channel, final ByteBuffer buffer, final long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of segment");
+            }
+        }
+    }
+
+    private static int checksum(final byte[] key, final byte[] value) {
+        final CRC32C crc = new CRC32C();
+        crc.update(key);
+        crc.update(value);
+        return (int) crc.getValue();
+    }
+
+    private static long location(final int segmentId, final long offset) {
+        return (long) segmentId << 32 | offset;
+    }
+
+    private static int segmentId(final long location) {
+        return (int) (location >>> 32);
+    }
+
+    private static long offset(final long location) {
+        return location & 0xFFFFFFFFL;
+    }
+
+    private static class Segment {
+
+        private final int id;
+        private final File file;
+        private final FileChannel channel;
+        private long size;
+        private long liveBytes;
+        private boolean compactionScheduled;
+
+        private Segment(final int id, final File file, final FileChannel channel) {
+            this.id = id;
+            this.file = file;
+            this.channel = channel;
+        }
+
+    }
+
+    private record Record(byte[] key, byte[] value) {
+    }
+
+}
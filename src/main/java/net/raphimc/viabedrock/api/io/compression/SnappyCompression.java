@@ -19,40 +19,98 @@ package net.raphimc.viabedrock.api.io.compression;
 
 import com.viaversion.viaversion.api.type.Types;
 import io.netty.buffer.ByteBuf;
-import io.netty.handler.codec.compression.Snappy;
 import net.raphimc.viabedrock.protocol.data.enums.bedrock.PacketCompressionAlgorithm;
 
+import java.util.Arrays;
+
+/**
+ * Raw (unframed) Snappy block format implementation, which unlike Netty's can compress inputs of any size.
+ * Like the reference implementation, the input is compressed in independent 64 KiB fragments, so all copy offsets fit into two bytes.
+ */
 public class SnappyCompression implements CompressionAlgorithm {
 
-    private final Snappy snappy = new Snappy();
+    private static final int FRAGMENT_SIZE = 1 << 16;
+    private static final int MAX_HASH_TABLE_BITS = 14;
+    private static final int MIN_NON_LITERAL_FRAGMENT_SIZE = 16;
+    private static final int INPUT_MARGIN = 16;
+
+    private final short[] hashTable = new short[1 << MAX_HASH_TABLE_BITS]; // Positions relative to the fragment start (unsigned)
 
     @Override
     public void compress(final ByteBuf in, final ByteBuf out) {
-        if (in.readableBytes() <= Short.MAX_VALUE) {
-            this.snappy.encode(in, out, in.readableBytes());
-            this.snappy.reset();
-        } else { // Netty's snappy implementation can't handle more than that (https://github.com/netty/netty/issues/13226)
-            Types.VAR_INT.writePrimitive(out, in.readableBytes());
-
-            int value = in.readableBytes() - 1;
-            int highestOneBit = Integer.highestOneBit(value);
-            int bitLength = 0;
-            while ((highestOneBit >>= 1) != 0) {
-                bitLength++;
-            }
-            int bytesToEncode = 1 + bitLength / 8;
-            out.writeByte(59 + bytesToEncode << 2);
-            for (int i = 0; i < bytesToEncode; i++) {
-                out.writeByte(in.readableBytes() - 1 >> i * 8 & 0x0ff);
-            }
-            out.writeBytes(in);
+        final int length = in.readableBytes();
+        Types.VAR_INT.writePrimitive(out, length); // uncompressed length
+        out.ensureWritable(maxCompressedLength(length));
+
+        final int start = in.readerIndex();
+        final int end = start + length;
+        for (int fragmentStart = start; fragmentStart < end; fragmentStart += FRAGMENT_SIZE) {
+            this.compressFragment(in, out, fragmentStart, Math.min(fragmentStart + FRAGMENT_SIZE, end));
         }
+        in.readerIndex(end);
     }
 
     @Override
     public void decompress(final ByteBuf in, final ByteBuf out) {
-        this.snappy.decode(in, out);
-        this.snappy.reset();
+        final int length = Types.VAR_INT.readPrimitive(in); // uncompressed length
+        if (length < 0) {
+            throw new IllegalStateException("Invalid snappy uncompressed length: " + length);
+        }
+        out.ensureWritable(length);
+
+        final int outStart = out.writerIndex();
+        final int outEnd = outStart + length;
+        while (in.isReadable()) {
+            final int tag = in.readUnsignedByte();
+            final int copyLength;
+            final int offset;
+            switch (tag & 3) {
+                case 0 -> { // literal
+                    int literalLength = tag >>> 2;
+                    if (literalLength >= 60) {
+                        final int lengthBytes = literalLength - 59;
+                        literalLength = 0;
+                        for (int i = 0; i < lengthBytes; i++) {
+                            literalLength |= in.readUnsignedByte() << (i << 3);
+                        }
+                    }
+                    literalLength++;
+                    if (literalLength <= 0 || literalLength > outEnd - out.writerIndex()) {
+                        throw new IllegalStateException("Snappy literal exceeds uncompressed length");
+                    }
+                    out.writeBytes(in, literalLength);
+                    continue;
+                }
+                case 1 -> {
+                    copyLength = ((tag >>> 2) & 7) + 4;
+                    offset = ((tag >>> 5) << 8) | in.readUnsignedByte();
+                }
+                case 2 -> {
+                    copyLength = (tag >>> 2) + 1;
+                    offset = in.readUnsignedShortLE();
+                }
+                default -> {
+                    copyLength = (tag >>> 2) + 1;
+                    offset = in.readIntLE();
+                }
+            }
+
+            if (offset <= 0 || offset > out.writerIndex() - outStart) {
+                throw new IllegalStateException("Invalid snappy copy offset: " + offset);
+            } else if (copyLength > outEnd - out.writerIndex()) {
+                throw new IllegalStateException("Snappy copy exceeds uncompressed length");
+            }
+            int remaining = copyLength;
+            while (remaining > 0) { // Overlapping copies repeat the pattern, so copy at most offset bytes at once
+                final int chunk = Math.min(remaining, offset);
+                out.writeBytes(out, out.writerIndex() - offset, chunk);
+                remaining -= chunk;
+            }
+        }
+
+        if (out.writerIndex() != outEnd) {
+            throw new IllegalStateException("Snappy uncompressed length mismatch: " + (out.writerIndex() - outStart) + " != " + length);
+        }
     }
 
     @Override
@@ -60,4 +118,116 @@ public class SnappyCompression implements CompressionAlgorithm {
         return PacketCompressionAlgorithm.Snappy;
     }
 
+    private void compressFragment(final ByteBuf in, final ByteBuf out, final int start, final int end) {
+        if (end - start < MIN_NON_LITERAL_FRAGMENT_SIZE) {
+            writeLiteral(in, out, start, end - start);
+            return;
+        }
+
+        int hashTableBits = 8;
+        while (hashTableBits < MAX_HASH_TABLE_BITS && (1 << hashTableBits) < end - start) {
+            hashTableBits++;
+        }
+        final int hashShift = 32 - hashTableBits;
+        Arrays.fill(this.hashTable, 0, 1 << hashTableBits, (short) 0);
+
+        final int limit = end - INPUT_MARGIN;
+        int literalStart = start;
+        int position = start + 1;
+        int skip = 32;
+        while (position < limit) {
+            final int value = in.getIntLE(position);
+            final int hash = hash(value, hashShift);
+            final int candidate = start + (this.hashTable[hash] & 0xFFFF);
+            this.hashTable[hash] = (short) (position - start);
+            if (in.getIntLE(candidate) != value) {
+                position += skip++ >>> 5; // Skip faster through incompressible data
+                continue;
+            }
+
+            if (position > literalStart) {
+                writeLiteral(in, out, literalStart, position - literalStart);
+            }
+            final int matchLength = 4 + matchLength(in, candidate + 4, position + 4, end);
+            writeCopy(out, position - candidate, matchLength);
+            position += matchLength;
+            literalStart = position;
+            skip = 32;
+
+            if (position < limit) {
+                this.hashTable[hash(in.getIntLE(position - 1), hashShift)] = (short) (position - 1 - start);
+            }
+        }
+        if (literalStart < end) {
+            writeLiteral(in, out, literalStart, end - literalStart);
+        }
+    }
+
+    private static int hash(final int value, final int shift) {
+        return (value * 0x1E35A7BD) >>> shift;
+    }
+
+    private static int matchLength(final ByteBuf in, int candidate, int position, final int end) {
+        final int start = position;
+        while (position <= end - Long.BYTES) {
+            final long diff = in.getLongLE(candidate) ^ in.getLongLE(position);
+            if (diff != 0) {
+                return position - start + (Long.numberOfTrailingZeros(diff) >>> 3);
+            }
+            candidate += Long.BYTES;
+            position += Long.BYTES;
+        }
+        while (position < end && in.getByte(candidate) == in.getByte(position)) {
+            candidate++;
+            position++;
+        }
+        return position - start;
+    }
+
+    private static void writeLiteral(final ByteBuf in, final ByteBuf out, final int start, final int length) {
+        final int n = length - 1;
+        if (n < 60) {
+            out.writeByte(n << 2);
+        } else if (n < 1 << 8) {
+            out.writeByte(60 << 2);
+            out.writeByte(n);
+        } else if (n < 1 << 16) {
+            out.writeByte(61 << 2);
+            out.writeShortLE(n);
+        } else if (n < 1 << 24) {
+            out.writeByte(62 << 2);
+            out.writeMediumLE(n);
+        } else {
+            out.writeByte(63 << 2);
+            out.writeIntLE(n);
+        }
+        out.writeBytes(in, start, length);
+    }
+
+    private static void writeCopy(final ByteBuf out, final int offset, int length) {
+        while (length >= 68) {
+            writeCopy2(out, offset, 64);
+            length -= 64;
+        }
+        if (length > 64) {
+            writeCopy2(out, offset, 60);
+            length -= 60;
+        }
+        if (length < 12 && offset < 2048) {
+            out.writeByte(1 | ((length - 4) << 2) | ((offset >>> 8) << 5));
+            out.writeByte(offset & 0xFF);
+        } else {
+            writeCopy2(out, offset, length);
+        }
+    }
+
+    private static void writeCopy2(final ByteBuf out, final int offset, final int length) {
+        out.writeByte(2 | ((length - 1) << 2));
+        out.writeShortLE(offset);
+    }
+
+    private static int maxCompressedLength(final int length) {
+        return 32 + length + length / 6;
+    }
+
 }
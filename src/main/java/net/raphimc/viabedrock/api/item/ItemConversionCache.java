@@ -0,0 +1,91 @@
+/*
+ * This file is part of ViaBedrock - https://github.com/RaphiMC/ViaBedrock
+ * Copyright (C) 2023-2024 RK_01/RaphiMC and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.raphimc.viabedrock.api.item;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.viaversion.nbt.tag.CompoundTag;
+import com.viaversion.viaversion.api.minecraft.item.Item;
+import net.raphimc.viabedrock.api.util.ItemUtil;
+import net.raphimc.viabedrock.protocol.model.BedrockItem;
+
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Bounded cache of converted Java items. Entries are independent of the item count, which is applied when an item is copied out of the cache.<br>
+ * The conversion result only depends on the item registry and the block palette, so connections with the same registry share one instance.<br>
+ * Items are deep copied in and out of the cache, so that their data components are never shared between connections.
+ */
+public class ItemConversionCache {
+
+    private static final int MAX_SIZE = 4096;
+    private static final Cache<RegistryKey, ItemConversionCache> SHARED_CACHES = CacheBuilder.newBuilder().weakValues().build();
+
+    private final Cache<ItemKey, Item> items = CacheBuilder.newBuilder().maximumSize(MAX_SIZE).recordStats().build();
+
+    public static ItemConversionCache forRegistry(final long itemRegistryHash, final long blockPaletteHash) {
+        try {
+            return SHARED_CACHES.get(new RegistryKey(itemRegistryHash, blockPaletteHash), ItemConversionCache::new);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public Item get(final BedrockItem bedrockItem) {
+        final Item javaItem = this.items.getIfPresent(ItemKey.of(bedrockItem, false));
+        if (javaItem == null) {
+            return null;
+        }
+
+        final Item copy = ItemUtil.deepCopy(javaItem);
+        copy.setAmount(bedrockItem.amount());
+        return copy;
+    }
+
+    public void put(final BedrockItem bedrockItem, final Item javaItem) {
+        final Item copy = ItemUtil.deepCopy(javaItem);
+        copy.setAmount(1);
+        this.items.put(ItemKey.of(bedrockItem, true), copy);
+    }
+
+    public CacheStats stats() {
+        return this.items.stats();
+    }
+
+    public double hitRate() {
+        return this.items.stats().hitRate();
+    }
+
+    public long size() {
+        return this.items.size();
+    }
+
+    private record RegistryKey(long itemRegistryHash, long blockPaletteHash) {
+    }
+
+    private record ItemKey(int id, short data, int blockRuntimeId, CompoundTag tag) {
+
+        private static ItemKey of(final BedrockItem bedrockItem, final boolean copyTag) {
+            final CompoundTag tag = bedrockItem.tag();
+            return new ItemKey(bedrockItem.identifier(), bedrockItem.data(), bedrockItem.blockRuntimeId(), tag != null && copyTag ? tag.copy() : tag);
+        }
+
+    }
+
+}
@@ -0,0 +1,147 @@
+/*
+ * This file is part of ViaBedrock - https://github.com/RaphiMC/ViaBedrock
+ * Copyright (C) 2023-2024 RK_01/RaphiMC and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.raphimc.viabedrock.api.item;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.BiMap;
+import com.viaversion.viaversion.libs.fastutil.ints.Int2ObjectMap;
+import com.viaversion.viaversion.libs.fastutil.ints.Int2ObjectOpenHashMap;
+import com.viaversion.viaversion.libs.fastutil.ints.IntOpenHashSet;
+import com.viaversion.viaversion.libs.fastutil.ints.IntSet;
+import com.viaversion.viaversion.libs.fastutil.objects.Object2IntMap;
+import com.viaversion.viaversion.libs.fastutil.objects.Object2IntOpenHashMap;
+import com.viaversion.viaversion.util.Key;
+import net.raphimc.viabedrock.api.util.FNV1;
+import net.raphimc.viabedrock.protocol.BedrockProtocol;
+import net.raphimc.viabedrock.protocol.model.ItemEntry;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Immutable Bedrock item registry of a server. Only the entries which differ from the vanilla item table are stored, all other lookups fall through to the shared vanilla table.<br>
+ * Registries are shared between all connections which received the same item entries.
+ */
+public class ItemRegistry {
+
+    private static final Cache<Long, ItemRegistry> SHARED_REGISTRIES = CacheBuilder.newBuilder().weakValues().build();
+
+    private final long hash;
+    private final BiMap<String, Integer> vanillaItems;
+    private final Int2ObjectMap<String> overlayIdentifiers = new Int2ObjectOpenHashMap<>();
+    private final Object2IntMap<String> overlayIds = new Object2IntOpenHashMap<>();
+    private final IntSet removedIds = new IntOpenHashSet();
+    private final Set<String> removedIdentifiers = new HashSet<>();
+    private final Set<String> componentItems = new HashSet<>();
+
+    public static ItemRegistry forEntries(final ItemEntry[] itemEntries) {
+        final long hash = hash(itemEntries);
+        try {
+            return SHARED_REGISTRIES.get(hash, () -> new ItemRegistry(hash, itemEntries));
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private ItemRegistry(final long hash, final ItemEntry[] itemEntries) {
+        this.hash = hash;
+        this.vanillaItems = BedrockProtocol.MAPPINGS.getBedrockItems();
+        this.overlayIds.defaultReturnValue(-1);
+
+        for (ItemEntry itemEntry : itemEntries) {
+            final String identifier = Key.namespaced(itemEntry.identifier());
+            final String prevIdentifier = this.identifier(itemEntry.id());
+            if (prevIdentifier != null) {
+                this.unbind(prevIdentifier, itemEntry.id());
+            }
+            final int prevId = this.id(identifier);
+            if (prevId != -1) {
+                this.unbind(identifier, prevId);
+            }
+            this.overlayIdentifiers.put(itemEntry.id(), identifier);
+            this.overlayIds.put(identifier, itemEntry.id());
+            if (itemEntry.componentBased()) {
+                this.componentItems.add(identifier);
+            }
+        }
+
+        // Drop all overlay entries which are identical to the vanilla table
+        for (Iterator<Int2ObjectMap.Entry<String>> it = this.overlayIdentifiers.int2ObjectEntrySet().iterator(); it.hasNext(); ) {
+            final Int2ObjectMap.Entry<String> entry = it.next();
+            if (Objects.equals(this.vanillaItems.get(entry.getValue()), entry.getIntKey())) {
+                it.remove();
+                this.overlayIds.removeInt(entry.getValue());
+                this.removedIds.remove(entry.getIntKey());
+                this.removedIdentifiers.remove(entry.getValue());
+            }
+        }
+    }
+
+    public String identifier(final int id) {
+        final String identifier = this.overlayIdentifiers.get(id);
+        if (identifier != null || this.removedIds.contains(id)) {
+            return identifier;
+        }
+        return this.vanillaItems.inverse().get(id);
+    }
+
+    /**
+     * @param identifier The namespaced item identifier
+     * @return The network id of the item or -1 if the item does not exist
+     */
+    public int id(final String identifier) {
+        final int id = this.overlayIds.getInt(identifier);
+        if (id != -1 || this.removedIdentifiers.contains(identifier)) {
+            return id;
+        }
+        return this.vanillaItems.getOrDefault(identifier, -1);
+    }
+
+    public Set<String> componentItems() {
+        return Collections.unmodifiableSet(this.componentItems);
+    }
+
+    public long hash() {
+        return this.hash;
+    }
+
+    /**
+     * @return The number of entries which differ from the vanilla item table
+     */
+    public int overlaySize() {
+        return this.overlayIdentifiers.size() + this.removedIds.size();
+    }
+
+    private void unbind(final String identifier, final int id) {
+        this.overlayIdentifiers.remove(id);
+        this.overlayIds.removeInt(identifier);
+        this.removedIds.add(id);
+        this.removedIdentifiers.add(identifier);
+    }
+
+    private static long hash(final ItemEntry[] itemEntries) {
+        final StringBuilder descriptor = new StringBuilder();
+        for (ItemEntry itemEntry : itemEntries) {
+            descriptor.append(itemEntry.identifier()).append('\0').append(itemEntry.id()).append('\0').append(itemEntry.componentBased()).append('\0');
+        }
+        return FNV1.fnv1_64(descriptor.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+}
@@ -22,6 +22,7 @@ import com.viaversion.viaversion.api.minecraft.BlockPosition;
 import com.viaversion.viaversion.api.minecraft.item.Item;
 import com.viaversion.viaversion.libs.mcstructs.text.ATextComponent;
 import net.raphimc.viabedrock.ViaBedrock;
+import net.raphimc.viabedrock.api.util.ItemUtil;
 import net.raphimc.viabedrock.protocol.data.enums.bedrock.ContainerType;
 import net.raphimc.viabedrock.protocol.data.enums.java.ClickType;
 import net.raphimc.viabedrock.protocol.model.BedrockItem;
@@ -39,6 +40,8 @@ public abstract class Container {
     protected final BlockPosition position;
     protected final BedrockItem[] items;
     protected final Set<String> validBlockTags;
+    private final BedrockItem[] javaItemSources;
+    private final Item[] javaItems;
 
     public Container(final UserConnection user, final byte windowId, final ContainerType type, final ATextComponent title, final BlockPosition position, final int size, final String... validBlockTags) {
         this.user = user;
@@ -48,6 +51,8 @@ public abstract class Container {
         this.position = position;
         this.items = BedrockItem.emptyArray(size);
         this.validBlockTags = Set.of(validBlockTags);
+        this.javaItemSources = new BedrockItem[size];
+        this.javaItems = new Item[size];
     }
 
     protected Container(final UserConnection user, final byte windowId, final ContainerType type, final ATextComponent title, final BlockPosition position, final BedrockItem[] items, final Set<String> validBlockTags) {
@@ -58,6 +63,8 @@ public abstract class Container {
         this.position = position;
         this.items = items;
         this.validBlockTags = validBlockTags;
+        this.javaItemSources = new BedrockItem[items.length];
+        this.javaItems = new Item[items.length];
     }
 
     public boolean handleClick(final int revision, final short slot, final byte button, final ClickType action) {
@@ -71,11 +78,20 @@ public abstract class Container {
     }
 
     public Item getJavaItem(final int slot) {
-        return this.user.get(ItemRewriter.class).javaItem(this.getItem(slot));
+        final BedrockItem item = this.getItem(slot);
+        if (this.javaItemSources[slot] != item) { // The translated item is kept until the bedrock item in the slot is replaced
+            this.javaItems[slot] = this.user.get(ItemRewriter.class).javaItem(item);
+            this.javaItemSources[slot] = item;
+        }
+        return ItemUtil.deepCopy(this.javaItems[slot]); // The cached item must not be modified through the returned one
     }
 
     public Item[] getJavaItems() {
-        return this.user.get(ItemRewriter.class).javaItems(this.items);
+        final Item[] javaItems = new Item[this.items.length];
+        for (int i = 0; i < javaItems.length; i++) {
+            javaItems[i] = this.getJavaItem(i);
+        }
+        return javaItems;
     }
 
     public BedrockItem getItem(final int slot) {
@@ -101,7 +117,9 @@ public abstract class Container {
         }
 
         for (int i = 0; i < items.length; i++) {
-            this.setItem(i, items[i]);
+            if (!this.items[i].equals(items[i])) { // Keep unchanged item objects, so that their cached java translations stay valid
+                this.setItem(i, items[i]);
+            }
         }
         return true;
     }
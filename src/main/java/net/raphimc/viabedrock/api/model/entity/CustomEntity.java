@@ -45,9 +45,31 @@ import java.util.*;
 
 public class CustomEntity extends Entity {
 
+    private static final Map<ActorDataIDs, String> DATA_QUERY_NAMES = new EnumMap<>(ActorDataIDs.class);
+    private static final Map<ActorFlags, String[]> FLAG_QUERY_NAMES = new EnumMap<>(ActorFlags.class);
+
+    static {
+        for (ActorDataIDs dataID : ActorDataIDs.values()) {
+            DATA_QUERY_NAMES.put(dataID, dataID.name().toLowerCase());
+        }
+        for (ActorFlags flag : ActorFlags.values()) {
+            String name = flag.name().replace("USING", "USING_")
+                    .replace("NO", "NO_").replace("WALL", "WALL_").
+                    replace("RETURN", "RETURN_").replace("DAMAGENEARBYMOBS",
+                            "can_damage_nearby_mobs").toLowerCase();
+
+            FLAG_QUERY_NAMES.put(flag, name.startsWith("is_") ? new String[]{name} : new String[]{name, "is_" + name});
+        }
+    }
+
     private final EntityDefinitions.EntityDefinition entityDefinition;
     private final List<ItemDisplayEntity> partEntities = new ArrayList<>();
+    private final MolangScope molangScope = new MolangScope();
+    private int modelRevision = -1;
+    private Map<String, String> modelValues = Map.of();
+    private Map<String, String> appliedModel = Map.of();
     private boolean spawned;
+    private boolean partTransformDirty;
 
     public CustomEntity(final UserConnection user, final long uniqueId, final long runtimeId, final int javaId, final EntityDefinitions.EntityDefinition entityDefinition) {
         super(user, uniqueId, runtimeId, javaId, UUID.randomUUID(), EntityTypes1_20_5.INTERACTION);
@@ -56,55 +78,44 @@ public class CustomEntity extends Entity {
 
     @Override
     public void updateEntityData(EntityData[] entityData) {
-        final ResourcePacksStorage storage = user.get(ResourcePacksStorage.class);
-
-        final EntityTracker entityTracker = user.get(EntityTracker.class);
-
-        StringBuilder builder = new StringBuilder();
-        EnumSet<ActorFlags> flags = EnumSet.noneOf(ActorFlags.class);
         for (EntityData data : entityData) {
             ActorDataIDs dataID = ActorDataIDs.getByValue(data.id());
             if (dataID == null) continue;
 
             if (dataID == ActorDataIDs.RESERVED_0) {
-                flags.addAll(EntityUtil.getActorFlags(data.value()));
+                final EnumSet<ActorFlags> flags = EntityUtil.getActorFlags(data.value());
+                for (Map.Entry<ActorFlags, String[]> entry : FLAG_QUERY_NAMES.entrySet()) {
+                    for (String name : entry.getValue()) {
+                        this.molangScope.setQuery(name, flags.contains(entry.getKey()));
+                    }
+                }
                 continue;
             }
 
             // We can just handle these.
-            if (!(data.value() instanceof Number) && !(data.value() instanceof Boolean))
-                continue;
-
-            Object value = data.value();
-            if (data.value() instanceof Double)
-                value = StringUtil.toDecimal(data.value()); // mocha can't handle scientific notation
-
-            builder.append("query." + dataID.name().toLowerCase() + "=" + value + ";");
+            if (data.value() instanceof Number number) {
+                this.molangScope.setQuery(DATA_QUERY_NAMES.get(dataID), number.doubleValue());
+            } else if (data.value() instanceof Boolean bool) {
+                this.molangScope.setQuery(DATA_QUERY_NAMES.get(dataID), bool);
+            }
         }
 
-        for (ActorFlags flag : ActorFlags.values()) {
-            String value = flags.contains(flag) ? "true" : "false";
-            String name = flag.name().replace("USING", "USING_")
-                    .replace("NO", "NO_").replace("WALL", "WALL_").
-                    replace("RETURN", "RETURN_").replace("DAMAGENEARBYMOBS",
-                            "can_damage_nearby_mobs").toLowerCase();
-
-            if (name.startsWith("IN"))
-                name = name.replace("IN", "IN_");
-            else if (name.startsWith("ON"))
-                name = name.replace("ON", "ON_");
-            else if (name.startsWith("CAN"))
-                name = name.replace("ON", "ON_");
-
-            if (name.startsWith("is_"))
-                builder.append("q." + name + "=" + value + ";");
-            else {
-                builder.append("q." + name + "=" + value + ";");
-                builder.append("q.is_" + name + "=" + value + ";");
+        if (this.modelRevision != this.molangScope.getRevision()) { // The render controllers only have to be evaluated again if a query changed
+            this.modelRevision = this.molangScope.getRevision();
+            for (CompiledMolang variableScript : this.entityDefinition.variableScripts()) {
+                this.molangScope.evaluate(variableScript);
             }
+            this.modelValues = this.evaluateRenderControllers();
         }
 
-        this.entityDefinition.entityData().variables().forEach(var -> builder.append(var + ";"));
+        if (!this.dormant) {
+            updateEntityModel(this.modelValues);
+        }
+        super.updateEntityData(entityData);
+    }
+
+    private Map<String, String> evaluateRenderControllers() {
+        final ResourcePacksStorage storage = user.get(ResourcePacksStorage.class);
 
         final Map<String, String> values = new HashMap<>();
         for (String controllerIdentifier : entityDefinition.entityData().controllers()) {
@@ -113,11 +124,11 @@ public class CustomEntity extends Entity {
 
             String geometryName = "", textureName = "";
             for (String geo : controller.geometryIndex()) {
-                String temp = getGeometryOrTexture(geo, builder, controller.geometries());
+                String temp = getGeometryOrTexture(geo, controller.geometries());
                 if (entityDefinition.entityData().geometries().containsKey(temp)) geometryName = temp;
             }
             for (String texture : controller.textureIndex()) {
-                String temp = getGeometryOrTexture(texture, builder, controller.textures());
+                String temp = getGeometryOrTexture(texture, controller.textures());
                 if (entityDefinition.entityData().textures().containsKey(temp)) textureName = temp;
             }
 
@@ -126,21 +137,70 @@ public class CustomEntity extends Entity {
 
             values.put(textureName, geometryName);
         }
-
-        updateEntityModel(values);
-        super.updateEntityData(entityData);
+        return values;
     }
 
-    private void updateEntityModel(Map<String, String> map) {
-        this.despawn();
-        this.partEntities.clear();
-        spawn(map);
+    private void updateEntityModel(final Map<String, String> map) {
+        if (this.spawned && map.equals(this.appliedModel)) return;
+        this.appliedModel = map;
+
+        final ResourcePacksStorage resourcePacksStorage = user.get(ResourcePacksStorage.class);
+        final List<String> modelKeys = new ArrayList<>();
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            final String modelName = this.entityDefinition.identifier() + "_" + entry.getKey() + "_" + entry.getValue();
+            final Object parts = resourcePacksStorage.getConverterData().get("ce_" + modelName);
+            if (parts == null) continue;
+
+            for (int i = 0; i < (int) parts; i++) {
+                modelKeys.add(modelName + "_" + i);
+            }
+        }
+
+        // Reuse the already spawned part entities and only resend the data which actually changed
+        final int reusedParts = Math.min(this.partEntities.size(), modelKeys.size());
+        for (int i = 0; i < reusedParts; i++) {
+            this.partEntities.get(i).updateModel(resourcePacksStorage, modelKeys.get(i));
+        }
+        if (modelKeys.size() > reusedParts) {
+            final EntityTracker entityTracker = user.get(EntityTracker.class);
+            for (int i = reusedParts; i < modelKeys.size(); i++) {
+                final ItemDisplayEntity partEntity = new ItemDisplayEntity(entityTracker.getNextJavaEntityId());
+                this.partEntities.add(partEntity);
+                partEntity.spawn();
+                partEntity.updateModel(resourcePacksStorage, modelKeys.get(i));
+            }
+        } else if (this.partEntities.size() > reusedParts) {
+            final List<ItemDisplayEntity> removedParts = this.partEntities.subList(reusedParts, this.partEntities.size());
+            this.removePartEntities(removedParts);
+            removedParts.clear();
+        }
+        this.spawned = true;
     }
 
-    private String getGeometryOrTexture(String index, StringBuilder builder, Map<String, List<String>> map) {
+    private String getGeometryOrTexture(String index, Map<String, List<String>> map) {
         if (index.toLowerCase().startsWith("geometry.") || index.toLowerCase().startsWith("texture."))
             return index.split("\\.")[1];
 
+        final CompiledMolang molang = this.entityDefinition.compileMolang(index, CustomEntity::toMolang);
+        try {
+            String eval = this.molangScope.evaluate(molang).replace(".0", "");
+            if (index.toLowerCase().startsWith("array.") && NumberUtil.isNumber(eval)) {
+                List<String> values = map.get(getArrayName(index));
+                int arrayIndex = Integer.parseInt(eval);
+                if (arrayIndex > values.size() - 1)
+                    arrayIndex = 0;
+
+                return values.get(arrayIndex);
+            } else if (!NumberUtil.isNumber(eval)) {
+                return eval.toLowerCase().replace("geometry.", "").replace("texture.", "");
+            } else return eval;
+        } catch (Exception e) {
+            // e.printStackTrace();
+            return "";
+        }
+    }
+
+    private static String toMolang(String index) {
         // This is due to mocha parsing.
         // you have to do (value > 3) ? 'value1' : 'value2' instead of value > 3 ? 'value1' : 'value2'.
         if (!index.toLowerCase().startsWith("array.")) {
@@ -151,57 +211,37 @@ public class CustomEntity extends Entity {
         }
 
         String arrayName = index.toLowerCase().startsWith("array.") ? getArrayName(index) : "";
-        String fixed = builder.toString().replace(";;", ";") + index.replace(arrayName, "").replace("[", "")
+        String fixed = index.replace(arrayName, "").replace("[", "")
                 .replace("]", "").replace("q.", "query.");
 
-        fixed = StringUtil.addQuote(fixed); // have to wrap it around a quote or else it's going to return 0.
-
-        try {
-            String eval = index.toLowerCase().startsWith("array.") ?
-                    getGeometryOrTexture(fixed, arrayName, map) : getGeometryOrTexture(fixed);
-            return eval;
-        } catch (Exception e) {
-            // e.printStackTrace();
-            return "";
-        }
+        return StringUtil.addQuote(fixed); // have to wrap it around a quote or else it's going to return 0.
     }
 
-    private String getGeometryOrTexture(String parse) {
-        MochaEngineUtil engine = MochaEngineUtil.build();
-        String eval = engine.eval(parse).replace(".0", "");
-        if (!NumberUtil.isNumber(eval)) {
-            return eval.toLowerCase().replace("geometry.", "").replace("texture.", "");
-        } else return eval;
+    private static String getArrayName(String parse) {
+        String[] array = parse.split("\\[");
+        return array[0];
     }
 
-    private String getGeometryOrTexture(String parse, String arrayName, Map<String, List<String>> map) {
-        List<String> values = map.get(arrayName);
-        MochaEngineUtil engine = MochaEngineUtil.build();
-        String eval = engine.eval(parse).replace(".0", "");
-        if (NumberUtil.isNumber(eval)) {
-            int index = Integer.parseInt(eval);
-            if (index > values.size() - 1)
-                index = 0;
+    @Override
+    public void tick() {
+        super.tick();
 
-            return values.get(index);
-        } else {
-            return eval.toLowerCase().replace("geometry.", "").replace("texture.", "");
+        if (this.partTransformDirty) {
+            this.partTransformDirty = false;
+            this.sendPartTransforms();
         }
     }
 
-    private String getArrayName(String parse) {
-        String[] array = parse.split("\\[");
-        return array[0];
-    }
-
     @Override
     public void setPosition(final Position3f position) {
         super.setPosition(position);
 
-        if (!this.spawned) {
-            this.spawn(Map.of("default", "default"));
+        if (this.dormant) {
+            return;
+        } else if (!this.spawned) {
+            this.updateEntityModel(Map.of("default", "default"));
         } else {
-            this.partEntities.forEach(ItemDisplayEntity::updatePositionAndRotation);
+            this.partTransformDirty = true;
         }
     }
 
@@ -209,56 +249,52 @@ public class CustomEntity extends Entity {
     public void setRotation(final Position3f rotation) {
         super.setRotation(rotation);
 
-        if (this.spawned) {
-            this.partEntities.forEach(ItemDisplayEntity::updatePositionAndRotation);
+        if (this.spawned && !this.dormant) {
+            this.partTransformDirty = true;
+        }
+    }
+
+    @Override
+    public void setDormant(final boolean dormant) {
+        super.setDormant(dormant);
+
+        if (dormant) {
+            this.despawnParts();
+        } else {
+            this.updateEntityModel(this.modelRevision == -1 ? Map.of("default", "default") : this.modelValues);
         }
     }
 
     @Override
     public void remove() {
         super.remove();
-        this.despawn();
+        this.despawnParts();
     }
 
-    private void spawn(Map<String, String> map) {
-        this.spawned = true;
-        final EntityTracker entityTracker = user.get(EntityTracker.class);
-        final ResourcePacksStorage resourcePacksStorage = user.get(ResourcePacksStorage.class);
-
-        for (Map.Entry<String, String> entry : map.entrySet()) {
-            System.out.println(entry.getKey() + "," + entry.getValue());
-            final Object parts = resourcePacksStorage.getConverterData().get("ce_" + this.entityDefinition.identifier() + "_" +
-                    entry.getKey() + "_" + entry.getValue());
-            if (parts == null)
-                return;
+    private void despawnParts() {
+        this.spawned = false;
+        this.partTransformDirty = false;
+        this.removePartEntities(this.partEntities);
+        this.partEntities.clear();
+    }
 
-            for (int i = 0; i < (int) parts; i++) {
-                final ItemDisplayEntity partEntity = new ItemDisplayEntity(entityTracker.getNextJavaEntityId());
-                this.partEntities.add(partEntity);
+    private void sendPartTransforms() {
+        if (this.partEntities.isEmpty()) return;
 
-                final PacketWrapper addEntity = PacketWrapper.create(ClientboundPackets1_21.ADD_ENTITY, user);
-                addEntity.write(Types.VAR_INT, partEntity.javaId()); // entity id
-                addEntity.write(Types.UUID, partEntity.javaUuid()); // uuid
-                addEntity.write(Types.VAR_INT, partEntity.type().getId()); // type id
-                addEntity.write(Types.DOUBLE, (double) this.position.x()); // x
-                addEntity.write(Types.DOUBLE, (double) this.position.y()); // y
-                addEntity.write(Types.DOUBLE, (double) this.position.z()); // z
-                addEntity.write(Types.BYTE, MathUtil.float2Byte(this.rotation.x())); // pitch
-                addEntity.write(Types.BYTE, MathUtil.float2Byte(this.rotation.y())); // yaw
-                addEntity.write(Types.BYTE, MathUtil.float2Byte(this.rotation.z())); // head yaw
-                addEntity.write(Types.VAR_INT, 0); // data
-                addEntity.write(Types.SHORT, (short) 0); // velocity x
-                addEntity.write(Types.SHORT, (short) 0); // velocity y
-                addEntity.write(Types.SHORT, (short) 0); // velocity z
-                addEntity.send(BedrockProtocol.class);
-
-                updateEntityModel(resourcePacksStorage, partEntity, entry.getKey(), entry.getValue(), i);
-            }
+        // Bundle the part teleports so that the client applies all of them in the same frame
+        final boolean bundle = this.partEntities.size() > 1;
+        if (bundle) {
+            PacketWrapper.create(ClientboundPackets1_21.BUNDLE_DELIMITER, this.user).send(BedrockProtocol.class);
+        }
+        this.partEntities.forEach(ItemDisplayEntity::updatePositionAndRotation);
+        if (bundle) {
+            PacketWrapper.create(ClientboundPackets1_21.BUNDLE_DELIMITER, this.user).send(BedrockProtocol.class);
         }
     }
 
-    private void despawn() {
-        this.spawned = false;
+    private void removePartEntities(final List<ItemDisplayEntity> partEntities) {
+        if (partEntities.isEmpty()) return;
+
         final int[] entityIds = new int[partEntities.size()];
         for (int i = 0; i < partEntities.size(); i++) {
             entityIds[i] = partEntities.get(i).javaId();
@@ -266,34 +302,63 @@ public class CustomEntity extends Entity {
         final PacketWrapper removeEntities = PacketWrapper.create(ClientboundPackets1_21.REMOVE_ENTITIES, this.user);
         removeEntities.write(Types.VAR_INT_ARRAY_PRIMITIVE, entityIds); // entity ids
         removeEntities.send(BedrockProtocol.class);
-    }
 
-    private void updateEntityModel(ResourcePacksStorage storage, Entity entity, String texture, String geometry, int index) {
-        final List<EntityData> javaEntityData = new ArrayList<>();
-        final StructuredDataContainer data = ProtocolConstants.createStructuredDataContainer();
-        data.set(StructuredDataKey.CUSTOM_MODEL_DATA, CustomEntityResourceRewriter.getCustomModelData(this.entityDefinition.identifier() + "_"
-                + texture + "_" + geometry + "_" + index));
-        final StructuredItem item = new StructuredItem(BedrockProtocol.MAPPINGS.getJavaItems().get(Key.namespaced(CustomEntityResourceRewriter.ITEM)), 1, data);
-        javaEntityData.add(new EntityData(entity.getJavaEntityDataIndex("ITEM_STACK"), Types1_21.ENTITY_DATA_TYPES.itemType, item));
-
-        final float scale = (float) storage.getConverterData().get("ce_" + this.entityDefinition.identifier() + "_" + texture + "_" + geometry + "_" + index + "_scale");
-        javaEntityData.add(new EntityData(entity.getJavaEntityDataIndex("SCALE"), Types1_21.ENTITY_DATA_TYPES.vector3FType,
-                new Vector3f(scale, scale, scale)));
-        javaEntityData.add(new EntityData(entity.getJavaEntityDataIndex("TRANSLATION"), Types1_21.ENTITY_DATA_TYPES.vector3FType,
-                new Vector3f(0F, scale * 0.5F, 0F)));
-
-        final PacketWrapper setEntityData = PacketWrapper.create(ClientboundPackets1_21.SET_ENTITY_DATA, user);
-        setEntityData.write(Types.VAR_INT, entity.javaId()); // entity id
-        setEntityData.write(Types1_21.ENTITY_DATA_LIST, javaEntityData); // entity data
-        setEntityData.send(BedrockProtocol.class);
+        final EntityTracker entityTracker = user.get(EntityTracker.class);
+        for (int entityId : entityIds) {
+            entityTracker.releaseJavaEntityId(entityId);
+        }
     }
 
     private class ItemDisplayEntity extends Entity {
 
+        private String modelKey;
+        private float scale = Float.NaN;
+
         public ItemDisplayEntity(final int javaId) {
             super(CustomEntity.this.user, 0L, 0L, javaId, UUID.randomUUID(), EntityTypes1_20_5.ITEM_DISPLAY);
         }
 
+        public void spawn() {
+            final PacketWrapper addEntity = PacketWrapper.create(ClientboundPackets1_21.ADD_ENTITY, this.user);
+            addEntity.write(Types.VAR_INT, this.javaId()); // entity id
+            addEntity.write(Types.UUID, this.javaUuid()); // uuid
+            addEntity.write(Types.VAR_INT, this.type().getId()); // type id
+            addEntity.write(Types.DOUBLE, (double) CustomEntity.this.position.x()); // x
+            addEntity.write(Types.DOUBLE, (double) CustomEntity.this.position.y()); // y
+            addEntity.write(Types.DOUBLE, (double) CustomEntity.this.position.z()); // z
+            addEntity.write(Types.BYTE, MathUtil.float2Byte(CustomEntity.this.rotation.x())); // pitch
+            addEntity.write(Types.BYTE, MathUtil.float2Byte(CustomEntity.this.rotation.y())); // yaw
+            addEntity.write(Types.BYTE, MathUtil.float2Byte(CustomEntity.this.rotation.z())); // head yaw
+            addEntity.write(Types.VAR_INT, 0); // data
+            addEntity.write(Types.SHORT, (short) 0); // velocity x
+            addEntity.write(Types.SHORT, (short) 0); // velocity y
+            addEntity.write(Types.SHORT, (short) 0); // velocity z
+            addEntity.send(BedrockProtocol.class);
+        }
+
+        public void updateModel(final ResourcePacksStorage storage, final String modelKey) {
+            if (modelKey.equals(this.modelKey)) return;
+
+            final List<EntityData> javaEntityData = new ArrayList<>();
+            final StructuredDataContainer data = ProtocolConstants.createStructuredDataContainer();
+            data.set(StructuredDataKey.CUSTOM_MODEL_DATA, CustomEntityResourceRewriter.getCustomModelData(modelKey));
+            final StructuredItem item = new StructuredItem(BedrockProtocol.MAPPINGS.getJavaItems().get(Key.namespaced(CustomEntityResourceRewriter.ITEM)), 1, data);
+            javaEntityData.add(new EntityData(this.getJavaEntityDataIndex("ITEM_STACK"), Types1_21.ENTITY_DATA_TYPES.itemType, item));
+
+            final float scale = (float) storage.getConverterData().get("ce_" + modelKey + "_scale");
+            if (Float.compare(scale, this.scale) != 0) {
+                javaEntityData.add(new EntityData(this.getJavaEntityDataIndex("SCALE"), Types1_21.ENTITY_DATA_TYPES.vector3FType, new Vector3f(scale, scale, scale)));
+                javaEntityData.add(new EntityData(this.getJavaEntityDataIndex("TRANSLATION"), Types1_21.ENTITY_DATA_TYPES.vector3FType, new Vector3f(0F, scale * 0.5F, 0F)));
+            }
+            this.modelKey = modelKey;
+            this.scale = scale;
+
+            final PacketWrapper setEntityData = PacketWrapper.create(ClientboundPackets1_21.SET_ENTITY_DATA, this.user);
+            setEntityData.write(Types.VAR_INT, this.javaId()); // entity id
+            setEntityData.write(Types1_21.ENTITY_DATA_LIST, javaEntityData); // entity data
+            setEntityData.send(BedrockProtocol.class);
+        }
+
         public void updatePositionAndRotation() {
             final PacketWrapper teleportEntity = PacketWrapper.create(ClientboundPackets1_21.TELEPORT_ENTITY, this.user);
             teleportEntity.write(Types.VAR_INT, this.javaId()); // entity id
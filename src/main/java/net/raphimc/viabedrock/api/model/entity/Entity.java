@@ -55,6 +55,7 @@ public class Entity {
     protected String name;
     protected int age;
     protected boolean hasBossBar;
+    protected boolean dormant;
 
     public Entity(final UserConnection user, final long uniqueId, final long runtimeId, final int javaId, final UUID javaUuid, final EntityTypes1_20_5 type) {
         this.user = user;
@@ -69,6 +70,13 @@ public class Entity {
         this.age++;
     }
 
+    /**
+     * Called instead of {@link #tick()} while the entity is outside the interest radius of the client player.
+     */
+    public void tickDormant() {
+        this.age++;
+    }
+
     public void remove() {
         if (this.hasBossBar) {
             this.hasBossBar = false;
@@ -175,6 +183,14 @@ public class Entity {
         this.hasBossBar = hasBossBar;
     }
 
+    public boolean isDormant() {
+        return this.dormant;
+    }
+
+    public void setDormant(final boolean dormant) {
+        this.dormant = dormant;
+    }
+
     public final int getJavaEntityDataIndex(final String fieldName) {
         final int index = BedrockProtocol.MAPPINGS.getJavaEntityData().get(this.type).indexOf(fieldName);
         if (index == -1) {
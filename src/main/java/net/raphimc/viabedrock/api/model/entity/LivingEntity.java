@@ -47,7 +47,16 @@ public class LivingEntity extends Entity {
     @Override
     public void tick() {
         super.tick();
+        this.tickEffects();
+    }
+
+    @Override
+    public void tickDormant() {
+        super.tickDormant();
+        this.tickEffects(); // Effects still have to expire while the entity is dormant
+    }
 
+    private void tickEffects() {
         final Set<String> effectsToRemove = new HashSet<>();
         for (EntityEffect effect : this.effects.values()) {
             if (effect.duration().decrementAndGet() <= 0) {
@@ -19,6 +19,7 @@ package net.raphimc.viabedrock.api.model.resourcepack;
 
 import com.viaversion.viaversion.util.Key;
 import net.raphimc.viabedrock.ViaBedrock;
+import net.raphimc.viabedrock.api.util.CompiledMolang;
 import net.raphimc.viabedrock.protocol.storage.ResourcePacksStorage;
 import org.oryxel.cube.model.bedrock.BedrockGeneralData;
 import org.oryxel.cube.model.bedrock.BedrockRenderController;
@@ -26,6 +27,8 @@ import org.oryxel.cube.parser.bedrock.BedrockControllerSerializer;
 import org.oryxel.cube.parser.bedrock.BedrockGeneralSerializer;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
 import java.util.logging.Level;
 
 // https://wiki.bedrock.dev/entities/entity-intro-rp.html
@@ -71,6 +74,8 @@ public class EntityDefinitions {
 
         private final String identifier;
         private final BedrockGeneralData entityData;
+        private final Map<String, CompiledMolang> compiledMolang = new ConcurrentHashMap<>();
+        private List<CompiledMolang> variableScripts;
 
         public EntityDefinition(final String identifier, final BedrockGeneralData entityData) {
             this.identifier = identifier;
@@ -85,6 +90,24 @@ public class EntityDefinitions {
             return this.entityData;
         }
 
+        /**
+         * @param source       The Molang source as found in the resource pack
+         * @param preprocessor The function which turns the source into parseable Molang
+         * @return The compiled Molang, which is cached per source
+         */
+        public CompiledMolang compileMolang(final String source, final UnaryOperator<String> preprocessor) {
+            return this.compiledMolang.computeIfAbsent(source, s -> CompiledMolang.compile(preprocessor.apply(s)));
+        }
+
+        public List<CompiledMolang> variableScripts() {
+            if (this.variableScripts == null) {
+                final List<CompiledMolang> variableScripts = new ArrayList<>();
+                this.entityData.variables().forEach(variable -> variableScripts.add(CompiledMolang.compile(variable + ";")));
+                this.variableScripts = variableScripts;
+            }
+            return this.variableScripts;
+        }
+
     }
 
 }
@@ -24,7 +24,6 @@ import net.raphimc.viabedrock.protocol.data.enums.bedrock.IdentityDefinition_Typ
 import net.raphimc.viabedrock.protocol.storage.PlayerListStorage;
 import net.raphimc.viabedrock.protocol.storage.ResourcePacksStorage;
 
-import java.util.Objects;
 import java.util.UUID;
 
 public class ScoreboardEntry {
@@ -32,23 +31,28 @@ public class ScoreboardEntry {
     private IdentityDefinition_Type type;
     private Long uniqueEntityId;
     private String fakePlayerName;
+    private Target target;
 
     private int score;
     private String javaName;
 
+    private boolean synced;
+    private int sentScore;
+
     public ScoreboardEntry(final int score, final IdentityDefinition_Type type, final Long uniqueEntityId, final String fakePlayerName) {
         this.updateTarget(type, uniqueEntityId, fakePlayerName);
         this.score = score;
     }
 
     public boolean isSameTarget(final ScoreboardEntry entry) {
-        return this.type == entry.type && Objects.equals(this.uniqueEntityId, entry.uniqueEntityId) && Objects.equals(this.fakePlayerName, entry.fakePlayerName);
+        return this.target.equals(entry.target);
     }
 
     public void updateTarget(final IdentityDefinition_Type type, final Long uniqueEntityId, final String fakePlayerName) {
         this.type = type;
         this.uniqueEntityId = uniqueEntityId;
         this.fakePlayerName = fakePlayerName;
+        this.target = new Target(type, uniqueEntityId, fakePlayerName);
     }
 
     public boolean isValid() {
@@ -67,6 +71,10 @@ public class ScoreboardEntry {
         return this.fakePlayerName;
     }
 
+    public Target target() {
+        return this.target;
+    }
+
     public int score() {
         return this.score;
     }
@@ -79,6 +87,22 @@ public class ScoreboardEntry {
         return this.javaName;
     }
 
+    /**
+     * @return true if the score shown on the Java client differs from the current score
+     */
+    public boolean needsSync() {
+        return !this.synced || this.sentScore != this.score;
+    }
+
+    public void markSynced() {
+        this.synced = true;
+        this.sentScore = this.score;
+    }
+
+    public void markUnsynced() {
+        this.synced = false;
+    }
+
     public void updateJavaName(final UserConnection user) {
         switch (this.type) {
             case Player -> {
@@ -95,4 +119,7 @@ public class ScoreboardEntry {
         }
     }
 
+    public record Target(IdentityDefinition_Type type, Long uniqueEntityId, String fakePlayerName) {
+    }
+
 }
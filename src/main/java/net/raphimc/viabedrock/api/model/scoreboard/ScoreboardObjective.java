@@ -20,23 +20,37 @@ package net.raphimc.viabedrock.api.model.scoreboard;
 import com.viaversion.viaversion.api.connection.UserConnection;
 import com.viaversion.viaversion.api.protocol.packet.PacketWrapper;
 import com.viaversion.viaversion.api.type.Types;
+import com.viaversion.viaversion.libs.fastutil.longs.Long2ObjectMap;
+import com.viaversion.viaversion.libs.fastutil.longs.Long2ObjectOpenHashMap;
+import com.viaversion.viaversion.libs.fastutil.longs.LongSet;
+import com.viaversion.viaversion.libs.fastutil.objects.ObjectLinkedOpenHashSet;
+import com.viaversion.viaversion.libs.fastutil.objects.ReferenceLinkedOpenHashSet;
 import com.viaversion.viaversion.protocols.v1_20_5to1_21.packet.ClientboundPackets1_21;
 import net.raphimc.viabedrock.protocol.BedrockProtocol;
 import net.raphimc.viabedrock.protocol.data.enums.bedrock.IdentityDefinition_Type;
 import net.raphimc.viabedrock.protocol.data.enums.bedrock.ObjectiveSortOrder;
+import net.raphimc.viabedrock.protocol.storage.ScoreboardTracker;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class ScoreboardObjective {
 
     private final String name;
-    private final Map<Long, ScoreboardEntry> entries;
+    private final Long2ObjectMap<ScoreboardEntry> entries = new Long2ObjectOpenHashMap<>();
+    private final Map<ScoreboardEntry.Target, List<ScoreboardEntry>> entriesByTarget = new HashMap<>(); // Several scoreboard ids can have the same target, the first added entry is used
+    private final Long2ObjectMap<List<ScoreboardEntry>> entriesByPlayer = new Long2ObjectOpenHashMap<>();
     private final ObjectiveSortOrder sortOrder;
 
+    // Changes are collected and sent once per tick, so that only the net result reaches the Java client
+    private final Set<String> pendingResets = new ObjectLinkedOpenHashSet<>();
+    private final Set<ScoreboardEntry> pendingUpdates = new ReferenceLinkedOpenHashSet<>();
+
     public ScoreboardObjective(final String name, final ObjectiveSortOrder sortOrder) {
         this.name = name;
-        this.entries = new HashMap<>();
         this.sortOrder = sortOrder;
     }
 
@@ -45,43 +59,107 @@ public class ScoreboardObjective {
     }
 
     public ScoreboardEntry getEntryWithSameTarget(final ScoreboardEntry entry) {
-        for (ScoreboardEntry value : this.entries.values()) {
-            if (value.isSameTarget(entry)) {
-                return value;
-            }
-        }
-
-        return null;
+        final List<ScoreboardEntry> entries = this.entriesByTarget.get(entry.target());
+        return entries != null ? entries.get(0) : null;
     }
 
     public ScoreboardEntry getEntryForPlayer(final long uniqueEntityId) {
-        for (ScoreboardEntry value : this.entries.values()) {
-            if (value.uniqueEntityId() != null && value.type() == IdentityDefinition_Type.Player && uniqueEntityId == value.uniqueEntityId()) {
-                return value;
-            }
-        }
-
-        return null;
+        final List<ScoreboardEntry> entries = this.entriesByPlayer.get(uniqueEntityId);
+        return entries != null ? entries.get(0) : null;
     }
 
     public void addEntry(final UserConnection user, final long scoreboardId, final ScoreboardEntry entry) {
-        this.entries.put(scoreboardId, entry);
+        final ScoreboardEntry previousEntry = this.entries.put(scoreboardId, entry);
+        if (previousEntry != null && previousEntry != entry) {
+            this.unindexEntry(previousEntry);
+            this.pendingUpdates.remove(previousEntry);
+        }
+        this.indexEntry(entry);
+        user.get(ScoreboardTracker.class).indexEntry(scoreboardId, this);
+
         entry.updateJavaName(user);
-        this.updateEntry0(user, entry);
+        entry.markUnsynced();
+        this.pendingResets.remove(entry.javaName());
+        this.pendingUpdates.add(entry);
     }
 
     public void updateEntry(final UserConnection user, final ScoreboardEntry entry) {
-        this.removeEntry0(user, entry);
+        final String oldJavaName = entry.javaName();
         entry.updateJavaName(user);
-        this.updateEntry0(user, entry);
+        if (!entry.javaName().equals(oldJavaName)) {
+            this.pendingResets.add(oldJavaName);
+            this.pendingResets.remove(entry.javaName());
+            entry.markUnsynced();
+        }
+        this.pendingUpdates.add(entry);
+    }
+
+    public void updateEntryTarget(final UserConnection user, final ScoreboardEntry entry, final IdentityDefinition_Type type, final Long uniqueEntityId, final String fakePlayerName) {
+        this.unindexEntry(entry);
+        entry.updateTarget(type, uniqueEntityId, fakePlayerName);
+        this.indexEntry(entry);
+        this.updateEntry(user, entry);
     }
 
     public void updateEntryInPlace(final UserConnection user, final ScoreboardEntry entry) {
-        this.updateEntry0(user, entry);
+        this.pendingUpdates.add(entry);
     }
 
     public void removeEntry(final UserConnection user, final long scoreboardId) {
-        this.removeEntry0(user, this.entries.remove(scoreboardId));
+        final ScoreboardEntry entry = this.entries.remove(scoreboardId);
+        if (entry == null) return;
+
+        this.unindexEntry(entry);
+        user.get(ScoreboardTracker.class).unindexEntry(scoreboardId, this);
+        this.pendingUpdates.remove(entry);
+        this.pendingResets.add(entry.javaName());
+    }
+
+    public boolean hasPendingChanges() {
+        return !this.pendingResets.isEmpty() || !this.pendingUpdates.isEmpty();
+    }
+
+    public void flush(final UserConnection user) {
+        for (String javaName : this.pendingResets) {
+            this.removeEntry0(user, javaName);
+        }
+        this.pendingResets.clear();
+
+        for (ScoreboardEntry entry : this.pendingUpdates) {
+            if (entry.needsSync()) {
+                this.updateEntry0(user, entry);
+                entry.markSynced();
+            }
+        }
+        this.pendingUpdates.clear();
+    }
+
+    public String name() {
+        return this.name;
+    }
+
+    public LongSet scoreboardIds() {
+        return this.entries.keySet();
+    }
+
+    private void indexEntry(final ScoreboardEntry entry) {
+        this.entriesByTarget.computeIfAbsent(entry.target(), k -> new ArrayList<>(1)).add(entry);
+        if (entry.type() == IdentityDefinition_Type.Player && entry.uniqueEntityId() != null) {
+            this.entriesByPlayer.computeIfAbsent(entry.uniqueEntityId().longValue(), k -> new ArrayList<>(1)).add(entry);
+        }
+    }
+
+    private void unindexEntry(final ScoreboardEntry entry) {
+        final List<ScoreboardEntry> targetEntries = this.entriesByTarget.get(entry.target());
+        if (targetEntries != null && targetEntries.remove(entry) && targetEntries.isEmpty()) {
+            this.entriesByTarget.remove(entry.target());
+        }
+        if (entry.type() == IdentityDefinition_Type.Player && entry.uniqueEntityId() != null) {
+            final List<ScoreboardEntry> playerEntries = this.entriesByPlayer.get(entry.uniqueEntityId().longValue());
+            if (playerEntries != null && playerEntries.remove(entry) && playerEntries.isEmpty()) {
+                this.entriesByPlayer.remove(entry.uniqueEntityId().longValue());
+            }
+        }
     }
 
     private void updateEntry0(final UserConnection user, final ScoreboardEntry entry) {
@@ -94,9 +172,9 @@ public class ScoreboardObjective {
         setScore.send(BedrockProtocol.class);
     }
 
-    private void removeEntry0(final UserConnection user, final ScoreboardEntry entry) {
+    private void removeEntry0(final UserConnection user, final String javaName) {
         final PacketWrapper resetScore = PacketWrapper.create(ClientboundPackets1_21.RESET_SCORE, user);
-        resetScore.write(Types.STRING, entry.javaName()); // player name
+        resetScore.write(Types.STRING, javaName); // player name
         resetScore.write(Types.OPTIONAL_STRING, this.name); // objective name
         resetScore.send(BedrockProtocol.class);
     }
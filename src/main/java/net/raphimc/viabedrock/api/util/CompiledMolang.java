@@ -0,0 +1,56 @@
+/*
+ * This file is part of ViaBedrock - https://github.com/RaphiMC/ViaBedrock
+ * Copyright (C) 2023-2024 RK_01/RaphiMC and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.raphimc.viabedrock.api.util;
+
+import team.unnamed.mocha.parser.MolangParser;
+import team.unnamed.mocha.parser.ParseException;
+import team.unnamed.mocha.parser.ast.Expression;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * A Molang script which has been parsed once and can be evaluated any number of times.
+ */
+public class CompiledMolang {
+
+    private static final CompiledMolang INVALID = new CompiledMolang(List.of());
+
+    private final List<Expression> expressions;
+
+    private CompiledMolang(final List<Expression> expressions) {
+        this.expressions = expressions;
+    }
+
+    public static CompiledMolang compile(final String source) {
+        try {
+            return new CompiledMolang(MolangParser.parser(new StringReader(source)).parseAll());
+        } catch (ParseException e) {
+            return INVALID; // Evaluates to 0
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read from given reader", e);
+        }
+    }
+
+    public String evaluate(final MochaEngineUtil<?> engine) {
+        return engine.eval(this.expressions);
+    }
+
+}
@@ -0,0 +1,64 @@
+/*
+ * This file is part of ViaBedrock - https://github.com/RaphiMC/ViaBedrock
+ * Copyright (C) 2023-2024 RK_01/RaphiMC and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.raphimc.viabedrock.api.util;
+
+import com.viaversion.nbt.tag.Tag;
+import com.viaversion.viaversion.api.minecraft.data.StructuredData;
+import com.viaversion.viaversion.api.minecraft.data.StructuredDataKey;
+import com.viaversion.viaversion.api.minecraft.item.Item;
+
+import java.util.Map;
+
+public class ItemUtil {
+
+    /**
+     * Copies the item including its data component values. Item#copy only copies the data container, so the components would still be shared with the original item.
+     *
+     * @param item The item to copy
+     * @return A copy which can be modified without affecting the original item
+     */
+    public static Item deepCopy(final Item item) {
+        final Item copy = item.copy();
+        for (Map.Entry<StructuredDataKey<?>, StructuredData<?>> entry : copy.dataContainer().data().entrySet()) {
+            if (!entry.getValue().isEmpty()) {
+                entry.setValue(copyData(entry.getValue()));
+            }
+        }
+        return copy;
+    }
+
+    private static <T> StructuredData<T> copyData(final StructuredData<T> data) {
+        return StructuredData.of(data.key(), copyValue(data.value()), data.id());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T copyValue(final T value) {
+        if (value instanceof Tag tag) {
+            return (T) tag.copy();
+        } else if (value instanceof Tag[] tags) {
+            final Tag[] copy = new Tag[tags.length];
+            for (int i = 0; i < tags.length; i++) {
+                copy[i] = tags[i].copy();
+            }
+            return (T) copy;
+        } else { // The other component values set by ViaBedrock are immutable
+            return value;
+        }
+    }
+
+}
@@ -28,16 +28,18 @@ public class LZ4 {
 
     private static final LZ4Factory LZ4_FACTORY = LZ4Factory.fastestInstance();
     private static final LZ4Compressor LZ4_COMPRESSOR = LZ4_FACTORY.highCompressor();
+    private static final LZ4Compressor LZ4_FAST_COMPRESSOR = LZ4_FACTORY.fastCompressor();
     private static final LZ4FastDecompressor LZ4_DECOMPRESSOR = LZ4_FACTORY.fastDecompressor();
 
     public static byte[] compress(final byte[] input) {
-        if (input == null) return null;
+        return compress(input, LZ4_COMPRESSOR);
+    }
 
-        final int maxCompressedLength = LZ4_COMPRESSOR.maxCompressedLength(input.length);
-        final byte[] compressed = new byte[maxCompressedLength + 4];
-        final int compressedLength = LZ4_COMPRESSOR.compress(input, 0, input.length, compressed, 4);
-        System.arraycopy(Ints.toByteArray(input.length), 0, compressed, 0, 4);
-        return Arrays.copyOf(compressed, compressedLength + 4);
+    /**
+     * Same as {@link #compress(byte[])}, but trades compression ratio for speed. The output can be decompressed with {@link #decompress(byte[])}.
+     */
+    public static byte[] compressFast(final byte[] input) {
+        return compress(input, LZ4_FAST_COMPRESSOR);
     }
 
     public static byte[] decompress(final byte[] input) {
@@ -46,4 +48,14 @@ public class LZ4 {
         return LZ4_DECOMPRESSOR.decompress(input, 4, Ints.fromByteArray(input));
     }
 
+    private static byte[] compress(final byte[] input, final LZ4Compressor compressor) {
+        if (input == null) return null;
+
+        final int maxCompressedLength = compressor.maxCompressedLength(input.length);
+        final byte[] compressed = new byte[maxCompressedLength + 4];
+        final int compressedLength = compressor.compress(input, 0, input.length, compressed, 4);
+        System.arraycopy(Ints.toByteArray(input.length), 0, compressed, 0, 4);
+        return Arrays.copyOf(compressed, compressedLength + 4);
+    }
+
 }
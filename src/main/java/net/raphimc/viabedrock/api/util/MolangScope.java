@@ -0,0 +1,71 @@
+/*
+ * This file is part of ViaBedrock - https://github.com/RaphiMC/ViaBedrock
+ * Copyright (C) 2023-2024 RK_01/RaphiMC and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.raphimc.viabedrock.api.util;
+
+import team.unnamed.mocha.runtime.Scope;
+import team.unnamed.mocha.runtime.binding.JavaObjectBinding;
+import team.unnamed.mocha.runtime.standard.MochaMath;
+import team.unnamed.mocha.runtime.value.MutableObjectBinding;
+import team.unnamed.mocha.runtime.value.NumberValue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Long living Molang scope with mutable query and variable bindings.
+ * The revision changes whenever a query value changes, which allows callers to memoise evaluation results.
+ */
+public class MolangScope {
+
+    private final MutableObjectBinding queryBinding = new MutableObjectBinding();
+    private final MutableObjectBinding variableBinding = new MutableObjectBinding();
+    private final Map<String, Double> queryValues = new HashMap<>();
+    private final MochaEngineUtil<?> engine;
+    private int revision;
+
+    public MolangScope() {
+        final Scope.Builder builder = Scope.builder();
+        builder.set("math", JavaObjectBinding.of(MochaMath.class, null, new MochaMath()));
+        builder.set("variable", this.variableBinding);
+        builder.set("v", this.variableBinding);
+        builder.set("query", this.queryBinding);
+        builder.set("q", this.queryBinding);
+        this.engine = new MochaEngineUtil<>(null, builder);
+    }
+
+    public void setQuery(final String name, final double value) {
+        final Double previousValue = this.queryValues.put(name, value);
+        if (previousValue == null || previousValue != value) {
+            this.queryBinding.set(name, NumberValue.of(value));
+            this.revision++;
+        }
+    }
+
+    public void setQuery(final String name, final boolean value) {
+        this.setQuery(name, value ? 1D : 0D);
+    }
+
+    public String evaluate(final CompiledMolang molang) {
+        return molang.evaluate(this.engine);
+    }
+
+    public int getRevision() {
+        return this.revision;
+    }
+
+}
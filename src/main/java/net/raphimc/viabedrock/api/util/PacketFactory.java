@@ -70,6 +70,12 @@ public class PacketFactory {
         containerSetContent.send(BedrockProtocol.class);
     }
 
+    public static void sendJavaContainerSetSlot(final UserConnection user, final Container container, final int slot) {
+        final PacketWrapper containerSetSlot = PacketWrapper.create(ClientboundPackets1_21.CONTAINER_SET_SLOT, user);
+        writeJavaContainerSetSlot(containerSetSlot, container, slot);
+        containerSetSlot.send(BedrockProtocol.class);
+    }
+
     public static void sendJavaGameEvent(final UserConnection user, final GameEventType event, final float value) {
         final PacketWrapper gameEvent = PacketWrapper.create(ClientboundPackets1_21.GAME_EVENT, user);
         gameEvent.write(Types.UNSIGNED_BYTE, (short) event.ordinal()); // event id
@@ -130,6 +136,17 @@ public class PacketFactory {
         wrapper.write(Types1_21.ITEM, wrapper.user().get(InventoryTracker.class).getHudContainer().getJavaItem(0)); // cursor item
     }
 
+    public static void writeJavaContainerSetSlot(final PacketWrapper wrapper, final Container container, final int slot) {
+        if (container.type() == ContainerType.HUD && slot == 0) { // cursor item
+            wrapper.write(Types.UNSIGNED_BYTE, (short) -1); // window id
+        } else {
+            wrapper.write(Types.UNSIGNED_BYTE, (short) container.javaWindowId()); // window id
+        }
+        wrapper.write(Types.VAR_INT, 0); // revision
+        wrapper.write(Types.SHORT, (short) container.javaSlot(slot)); // slot
+        wrapper.write(Types1_21.ITEM, container.getJavaItem(slot)); // item
+    }
+
     public static void writeJavaLevelParticles(final PacketWrapper wrapper, final Position3f position, final BedrockMappingData.JavaParticle particle) {
         wrapper.write(Types.BOOLEAN, false); // override limiter
         wrapper.write(Types.DOUBLE, (double) position.x()); // x
@@ -0,0 +1,89 @@
+/*
+ * This file is part of ViaBedrock - https://github.com/RaphiMC/ViaBedrock
+ * Copyright (C) 2023-2024 RK_01/RaphiMC and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.raphimc.viabedrock.api.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of durations in nanoseconds. Bucket {@code i} counts samples in the range {@code [2^i, 2^(i+1))}.
+ */
+public class TickTimeHistogram {
+
+    private static final int BUCKET_COUNT = 40; // Up to ~18 minutes
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+
+    public void record(final long nanos) {
+        final int bucket = Math.min(BUCKET_COUNT - 1, 63 - Long.numberOfLeadingZeros(Math.max(1L, nanos)));
+        this.buckets.incrementAndGet(bucket);
+        this.count.increment();
+        this.totalNanos.add(nanos);
+    }
+
+    public long getCount() {
+        return this.count.sum();
+    }
+
+    public long getAverageNanos() {
+        final long count = this.count.sum();
+        return count == 0 ? 0 : this.totalNanos.sum() / count;
+    }
+
+    /**
+     * @param percentile The percentile in the range [0, 1]
+     * @return The upper bound of the bucket containing the given percentile
+     */
+    public long getPercentileNanos(final double percentile) {
+        final long[] snapshot = this.getBuckets();
+        long total = 0;
+        for (long bucketCount : snapshot) {
+            total += bucketCount;
+        }
+        if (total == 0) return 0;
+
+        final long target = (long) Math.ceil(total * percentile);
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= target) {
+                return (1L << (i + 1)) - 1;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    public long[] getBuckets() {
+        final long[] snapshot = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = this.buckets.get(i);
+        }
+        return snapshot;
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            this.buckets.set(i, 0);
+        }
+        this.count.reset();
+        this.totalNanos.reset();
+    }
+
+}
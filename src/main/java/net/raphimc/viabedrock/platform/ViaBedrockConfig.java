@@ -18,10 +18,15 @@
 package net.raphimc.viabedrock.platform;
 
 import com.viaversion.viaversion.api.configuration.Config;
+import net.raphimc.viabedrock.api.io.KeyValueStore;
+import net.raphimc.viabedrock.api.io.LevelDB;
+import net.raphimc.viabedrock.api.io.SegmentStore;
 import net.raphimc.viabedrock.protocol.provider.BlobCacheProvider;
 import net.raphimc.viabedrock.protocol.provider.ResourcePackProvider;
 import net.raphimc.viabedrock.protocol.provider.impl.*;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.function.Supplier;
 
 public interface ViaBedrockConfig extends Config {
@@ -31,6 +36,11 @@ public interface ViaBedrockConfig extends Config {
      */
     BlobCacheMode getBlobCacheMode();
 
+    /**
+     * @return The storage engine used by the disk blob cache.
+     */
+    StorageEngine getBlobCacheStorage();
+
     /**
      * @return If true, starts the resource pack HTTP server and enables resource pack translation
      */
@@ -61,6 +71,36 @@ public interface ViaBedrockConfig extends Config {
      */
     boolean shouldTranslateShowCoordinatesGameRule();
 
+    /**
+     * @return If true, calculates sky and block light for chunks instead of sending full bright chunks
+     */
+    boolean shouldCalculateLight();
+
+    /**
+     * @return The maximum number of sub chunk requests which can be awaiting a response at the same time
+     */
+    int getMaxPendingSubChunkRequests();
+
+    /**
+     * @return The maximum heap memory in megabytes which the chunk data of a single connection should use (0 = unlimited)
+     */
+    int getChunkMemoryBudget();
+
+    /**
+     * @return The time in seconds a chunk section must not have been accessed for, before it can be compressed to stay within the chunk memory budget
+     */
+    int getChunkCompressionIdleTime();
+
+    /**
+     * @return If true, entity movement and entity data updates are buffered and sent once per tick
+     */
+    boolean shouldCoalesceEntityUpdates();
+
+    /**
+     * @return The radius in blocks around the player in which entities are ticked and their updates are sent (0 = unlimited)
+     */
+    int getEntityInterestRadius();
+
     enum BlobCacheMode {
 
         /**
@@ -135,4 +175,34 @@ public interface ViaBedrockConfig extends Config {
 
     }
 
+    enum StorageEngine {
+
+        /**
+         * The data will be stored in a LevelDB database.
+         */
+        LEVELDB,
+        /**
+         * The data will be stored in append-only segment files, which is optimized for immutable blobs.
+         */
+        SEGMENT;
+
+        public static StorageEngine byName(String name) {
+            for (StorageEngine engine : values()) {
+                if (engine.name().equalsIgnoreCase(name)) {
+                    return engine;
+                }
+            }
+
+            return LEVELDB;
+        }
+
+        public KeyValueStore open(final File directory) throws IOException {
+            return switch (this) {
+                case LEVELDB -> new LevelDB(directory);
+                case SEGMENT -> new SegmentStore(directory);
+            };
+        }
+
+    }
+
 }
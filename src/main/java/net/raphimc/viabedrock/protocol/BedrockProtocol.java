@@ -127,11 +127,7 @@ public class BedrockProtocol extends StatelessTransitionProtocol<ClientboundBedr
             providers.get(BlobCacheProvider.class).addBlob(0L, new byte[0]);
         }
 
-        Via.getPlatform().runRepeatingSync(new KeepAliveTask(), 20L);
-        Via.getPlatform().runRepeatingSync(new ChunkTrackerTickTask(), 2L);
-        Via.getPlatform().runRepeatingSync(new BlobCacheTickTask(), 2L);
-        Via.getPlatform().runRepeatingSync(new EntityTrackerTickTask(), 1L);
-        Via.getPlatform().runRepeatingSync(new InventoryTrackerTickTask(), 1L);
+        Via.getPlatform().runRepeatingSync(new TickTask(), 1L);
     }
 
     @Override
@@ -142,8 +138,9 @@ public class BedrockProtocol extends StatelessTransitionProtocol<ClientboundBedr
         user.put(new PacketSyncStorage(user));
         user.put(new ChannelStorage());
         user.put(new PlayerListStorage());
-        user.put(new ScoreboardTracker());
+        user.put(new ScoreboardTracker(user));
         user.put(new InventoryTracker(user));
+        user.put(new ConnectionTickTask(user));
     }
 
     @Override
@@ -73,6 +73,9 @@ public class ArgumentTypeRegistry {
         register(EnumArgumentType.class, "brigadier:string", (wrapper, argumentType) -> {
             wrapper.write(Types.VAR_INT, StringArgumentType.StringType.SINGLE_WORD.ordinal()); // type
         });
+        register(SoftEnumArgumentType.class, "brigadier:string", (wrapper, argumentType) -> {
+            wrapper.write(Types.VAR_INT, StringArgumentType.StringType.SINGLE_WORD.ordinal()); // type
+        });
         register(ValueArgumentType.class, "minecraft:angle", null);
         register(WildcardIntegerArgumentType.class, "brigadier:integer", (wrapper, argumentType) -> {
             wrapper.write(Types.BYTE, (byte) 0); // flags
@@ -90,6 +90,8 @@ public class BedrockMappingData extends MappingDataBase {
     private IntSet javaPreWaterloggedBlockStates;
     private Int2IntMap javaPottedBlockStates;
     private Map<String, IntSet> javaHeightMapBlockStates;
+    private byte[] javaBlockStateLightEmissions;
+    private byte[] javaBlockStateLightOpacities;
 
     // Biomes
     private CompoundTag bedrockBiomeDefinitions;
@@ -282,6 +284,48 @@ public class BedrockMappingData extends MappingDataBase {
                 }
                 this.javaHeightMapBlockStates.put(entry.getKey(), blockStates);
             }
+
+            final Map<String, List<BlockState>> javaBlockStatesByIdentifier = new HashMap<>();
+            for (BlockState javaBlockState : this.javaBlockStates.keySet()) {
+                javaBlockStatesByIdentifier.computeIfAbsent(javaBlockState.namespacedIdentifier(), k -> new ArrayList<>()).add(javaBlockState);
+            }
+            final JsonArray javaBlocksJson = javaViaMappingJson.getAsJsonArray("blocks");
+            final CompoundTag javaBlockTagsTag = this.javaTags.getCompoundTag("minecraft:block");
+            final IntSet javaMotionBlockingBlockStates = this.javaHeightMapBlockStates.get("motion_blocking");
+            final JsonObject javaBlockLightJson = this.readJson("custom/java_block_light.json");
+            this.javaBlockStateLightEmissions = new byte[this.javaBlockStates.size()];
+            this.javaBlockStateLightOpacities = new byte[this.javaBlockStates.size()];
+            for (Map.Entry<BlockState, Integer> entry : this.javaBlockStates.entrySet()) {
+                if (!javaMotionBlockingBlockStates.contains(entry.getValue().intValue())) continue;
+
+                if ("true".equals(entry.getKey().properties().get("waterlogged"))) {
+                    final Integer dryBlockState = this.javaBlockStates.get(entry.getKey().withProperty("waterlogged", "false"));
+                    if (dryBlockState != null && !javaMotionBlockingBlockStates.contains(dryBlockState.intValue())) {
+                        this.javaBlockStateLightOpacities[entry.getValue()] = 1;
+                        continue;
+                    }
+                }
+                this.javaBlockStateLightOpacities[entry.getValue()] = 15;
+            }
+            for (JsonElement patternJson : javaBlockLightJson.getAsJsonArray("transparent")) {
+                for (BlockState javaBlockState : this.matchJavaBlockStates(patternJson.getAsString(), javaBlockStatesByIdentifier, javaBlocksJson, javaBlockTagsTag)) {
+                    this.javaBlockStateLightOpacities[this.javaBlockStates.get(javaBlockState)] = (byte) ("true".equals(javaBlockState.properties().get("waterlogged")) ? 1 : 0);
+                }
+            }
+            for (JsonElement patternJson : javaBlockLightJson.getAsJsonArray("filtering")) {
+                for (BlockState javaBlockState : this.matchJavaBlockStates(patternJson.getAsString(), javaBlockStatesByIdentifier, javaBlocksJson, javaBlockTagsTag)) {
+                    this.javaBlockStateLightOpacities[this.javaBlockStates.get(javaBlockState)] = 1;
+                }
+            }
+            for (Map.Entry<String, JsonElement> entry : javaBlockLightJson.getAsJsonObject("emission").entrySet()) {
+                final int emission = entry.getValue().getAsInt();
+                if (emission < 0 || emission > 15) {
+                    throw new RuntimeException("Invalid java block light emission for " + entry.getKey() + ": " + emission);
+                }
+                for (BlockState javaBlockState : this.matchJavaBlockStates(entry.getKey(), javaBlockStatesByIdentifier, javaBlocksJson, javaBlockTagsTag)) {
+                    this.javaBlockStateLightEmissions[this.javaBlockStates.get(javaBlockState)] = (byte) emission;
+                }
+            }
         }
 
         { // Biomes
@@ -914,6 +958,14 @@ public class BedrockMappingData extends MappingDataBase {
         return this.javaHeightMapBlockStates;
     }
 
+    public byte[] getJavaBlockStateLightEmissions() {
+        return this.javaBlockStateLightEmissions;
+    }
+
+    public byte[] getJavaBlockStateLightOpacities() {
+        return this.javaBlockStateLightOpacities;
+    }
+
     public CompoundTag getBedrockBiomeDefinitions() {
         return this.bedrockBiomeDefinitions;
     }
@@ -1164,6 +1216,40 @@ public class BedrockMappingData extends MappingDataBase {
         }
     }
 
+    private List<BlockState> matchJavaBlockStates(final String pattern, final Map<String, List<BlockState>> javaBlockStatesByIdentifier, final JsonArray javaBlocksJson, final CompoundTag javaBlockTagsTag) {
+        final boolean isTag = pattern.startsWith("#");
+        final BlockState patternBlockState = BlockState.fromString(isTag ? pattern.substring(1) : pattern);
+        final List<String> identifiers = new ArrayList<>();
+        if (isTag) {
+            final IntArrayTag blockIdsTag = javaBlockTagsTag.getIntArrayTag(patternBlockState.namespacedIdentifier());
+            if (blockIdsTag == null) {
+                throw new RuntimeException("Unknown java block tag: " + patternBlockState.namespacedIdentifier());
+            }
+            for (int blockId : blockIdsTag.getValue()) {
+                identifiers.add(Key.namespaced(javaBlocksJson.get(blockId).getAsString()));
+            }
+        } else {
+            identifiers.add(patternBlockState.namespacedIdentifier());
+        }
+
+        final List<BlockState> javaBlockStates = new ArrayList<>();
+        for (String identifier : identifiers) {
+            final List<BlockState> blockStates = javaBlockStatesByIdentifier.get(identifier);
+            if (blockStates == null) {
+                throw new RuntimeException("Unknown java block: " + identifier);
+            }
+            for (BlockState blockState : blockStates) {
+                if (blockState.properties().entrySet().containsAll(patternBlockState.properties().entrySet())) {
+                    javaBlockStates.add(blockState);
+                }
+            }
+        }
+        if (javaBlockStates.isEmpty()) {
+            throw new RuntimeException("Java block light pattern matches no block states: " + pattern);
+        }
+        return javaBlockStates;
+    }
+
     private JavaItemMapping parseJavaItemData(final JsonObject obj) {
         final String javaIdentifier = obj.get("java_id").getAsString();
         if (!this.javaItems.containsKey(javaIdentifier)) {
@@ -202,8 +202,13 @@ public class ChatPackets {
                     wrapper.cancel(); // Will be sent when the java player is ready
                 }, ClientboundPackets1_21.COMMANDS, (PacketHandler) wrapper -> {
                     final CommandData[] commands = wrapper.read(BedrockTypes.COMMAND_DATA_ARRAY); // commands
+                    final CommandsStorage previousCommandsStorage = wrapper.user().get(CommandsStorage.class);
                     final CommandsStorage commandsStorage = new CommandsStorage(wrapper.user(), commands);
                     wrapper.user().put(commandsStorage);
+                    if (previousCommandsStorage != null && commandsStorage.inheritSentCommandTree(previousCommandsStorage)) {
+                        wrapper.cancel(); // The java client already has this tree
+                        return;
+                    }
                     commandsStorage.writeCommandTree(wrapper);
                 }
         );
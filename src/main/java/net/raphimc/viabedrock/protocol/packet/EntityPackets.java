@@ -211,6 +211,16 @@ public class EntityPackets {
             entity.setRotation(new Position3f(pitch, yaw, headYaw));
             entity.setOnGround(onGround);
 
+            if (entity.isDormant()) { // Resynchronized once the entity comes into range again
+                wrapper.cancel();
+                return;
+            }
+            if (entityTracker.getUpdateBuffer() != null) {
+                wrapper.cancel();
+                entityTracker.getUpdateBuffer().queueMove(entity, teleported);
+                return;
+            }
+
             wrapper.write(Types.VAR_INT, entity.javaId()); // entity id
             wrapper.write(Types.DOUBLE, (double) position.x()); // x
             wrapper.write(Types.DOUBLE, (double) position.y() - entity.eyeOffset()); // y
@@ -279,26 +289,32 @@ public class EntityPackets {
                 return;
             }
 
-            if (hasX) {
-                entity.setPosition(new Position3f(wrapper.read(BedrockTypes.FLOAT_LE), entity.position().y(), entity.position().z()));
-            }
-            if (hasY) {
-                entity.setPosition(new Position3f(entity.position().x(), wrapper.read(BedrockTypes.FLOAT_LE), entity.position().z()));
+            if (hasX || hasY || hasZ) {
+                final float x = hasX ? wrapper.read(BedrockTypes.FLOAT_LE) : entity.position().x(); // x
+                final float y = hasY ? wrapper.read(BedrockTypes.FLOAT_LE) : entity.position().y(); // y
+                final float z = hasZ ? wrapper.read(BedrockTypes.FLOAT_LE) : entity.position().z(); // z
+                entity.setPosition(new Position3f(x, y, z));
             }
-            if (hasZ) {
-                entity.setPosition(new Position3f(entity.position().x(), entity.position().y(), wrapper.read(BedrockTypes.FLOAT_LE)));
+            if (hasPitch || hasYaw || hasHeadYaw) {
+                final float pitch = hasPitch ? MathUtil.byte2Float(wrapper.read(Types.BYTE)) : entity.rotation().x(); // pitch
+                final float yaw = hasYaw ? MathUtil.byte2Float(wrapper.read(Types.BYTE)) : entity.rotation().y(); // yaw
+                final float headYaw = hasHeadYaw ? MathUtil.byte2Float(wrapper.read(Types.BYTE)) : entity.rotation().z(); // head yaw
+                entity.setRotation(new Position3f(pitch, yaw, headYaw));
             }
-            if (hasPitch) {
-                entity.setRotation(new Position3f(MathUtil.byte2Float(wrapper.read(Types.BYTE)), entity.rotation().y(), entity.rotation().z()));
+            entity.setOnGround(onGround);
+
+            if (entity.isDormant()) { // Resynchronized once the entity comes into range again
+                wrapper.cancel();
+                return;
             }
-            if (hasYaw) {
-                entity.setRotation(new Position3f(entity.rotation().x(), MathUtil.byte2Float(wrapper.read(Types.BYTE)), entity.rotation().z()));
+            if (entityTracker.getUpdateBuffer() != null) {
+                wrapper.cancel();
+                entityTracker.getUpdateBuffer().queueMove(entity, teleported);
+                return;
             }
             if (hasHeadYaw) {
-                entity.setRotation(new Position3f(entity.rotation().x(), entity.rotation().y(), MathUtil.byte2Float(wrapper.read(Types.BYTE))));
                 PacketFactory.sendJavaRotateHead(wrapper.user(), entity);
             }
-            entity.setOnGround(onGround);
 
             wrapper.write(Types.VAR_INT, entity.javaId()); // entity id
             wrapper.write(Types.DOUBLE, (double) entity.position().x()); // x
@@ -316,7 +332,7 @@ public class EntityPackets {
             wrapper.read(BedrockTypes.UNSIGNED_VAR_LONG); // tick
 
             final Entity entity = entityTracker.getEntityByRid(runtimeEntityId);
-            if (entity == null) {
+            if (entity == null || entity.isDormant()) {
                 wrapper.cancel();
                 return;
             }
@@ -476,6 +492,16 @@ public class EntityPackets {
 
             final List<EntityData> javaEntityData = new ArrayList<>();
             entity.updateEntityData(entityData, javaEntityData);
+            if (entity.isDormant()) {
+                wrapper.cancel();
+                return;
+            }
+            if (entityTracker.getUpdateBuffer() != null && entity != entityTracker.getClientPlayer()) {
+                wrapper.cancel();
+                entityTracker.getUpdateBuffer().queueEntityData(entity, javaEntityData);
+                return;
+            }
+
             wrapper.write(Types.VAR_INT, entity.javaId()); // entity id
             wrapper.write(Types1_21.ENTITY_DATA_LIST, javaEntityData); // entity data
         });
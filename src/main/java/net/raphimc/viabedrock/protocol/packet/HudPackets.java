@@ -112,8 +112,7 @@ public class HudPackets {
                             toRemoveNames.add(entry.value());
                         }
 
-                        final Pair<ScoreboardObjective, ScoreboardEntry> scoreboardEntry = scoreboardTracker.getEntryForPlayer(uniqueEntityIds[i]);
-                        if (scoreboardEntry != null) {
+                        for (Pair<ScoreboardObjective, ScoreboardEntry> scoreboardEntry : scoreboardTracker.getEntriesForPlayer(uniqueEntityIds[i])) {
                             scoreboardEntry.key().updateEntry(wrapper.user(), scoreboardEntry.value());
                         }
                     }
@@ -139,8 +138,7 @@ public class HudPackets {
                         final Pair<Long, String> entry = playerListStorage.removePlayer(uuid);
                         if (entry != null) {
                             names.add(entry.value());
-                            final Pair<ScoreboardObjective, ScoreboardEntry> scoreboardEntry = scoreboardTracker.getEntryForPlayer(entry.key());
-                            if (scoreboardEntry != null) {
+                            for (Pair<ScoreboardObjective, ScoreboardEntry> scoreboardEntry : scoreboardTracker.getEntriesForPlayer(entry.key())) {
                                 scoreboardEntry.key().updateEntry(wrapper.user(), scoreboardEntry.value());
                             }
                         }
@@ -318,8 +316,7 @@ public class HudPackets {
                         final ScoreboardEntry scoreboardEntry = entry.value();
 
                         if (scoreboardEntry.uniqueEntityId() == null) {
-                            scoreboardEntry.updateTarget(IdentityDefinition_Type.Player, uniqueEntityId, scoreboardEntry.fakePlayerName());
-                            entry.key().updateEntry(wrapper.user(), scoreboardEntry);
+                            entry.key().updateEntryTarget(wrapper.user(), scoreboardEntry, IdentityDefinition_Type.Player, uniqueEntityId, scoreboardEntry.fakePlayerName());
                         }
                     }
                     case Remove -> {
@@ -327,8 +324,7 @@ public class HudPackets {
                         final ScoreboardEntry scoreboardEntry = entry.value();
 
                         if (scoreboardEntry.fakePlayerName() != null) {
-                            scoreboardEntry.updateTarget(IdentityDefinition_Type.FakePlayer, null, scoreboardEntry.fakePlayerName());
-                            entry.key().updateEntry(wrapper.user(), scoreboardEntry);
+                            entry.key().updateEntryTarget(wrapper.user(), scoreboardEntry, IdentityDefinition_Type.FakePlayer, null, scoreboardEntry.fakePlayerName());
                         }
                     }
                     default -> throw new IllegalStateException("Unhandled ScoreboardIdentityPacketType: " + action);
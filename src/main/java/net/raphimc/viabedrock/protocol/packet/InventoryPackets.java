@@ -24,6 +24,8 @@ import com.viaversion.viaversion.api.protocol.packet.PacketWrapper;
 import com.viaversion.viaversion.api.protocol.remapper.PacketHandlers;
 import com.viaversion.viaversion.api.type.Types;
 import com.viaversion.viaversion.api.type.types.version.Types1_21;
+import com.viaversion.viaversion.libs.fastutil.ints.IntArrayList;
+import com.viaversion.viaversion.libs.fastutil.ints.IntList;
 import com.viaversion.viaversion.libs.mcstructs.text.ATextComponent;
 import com.viaversion.viaversion.libs.mcstructs.text.components.TranslationComponent;
 import com.viaversion.viaversion.protocols.v1_20_3to1_20_5.packet.ServerboundPackets1_20_5;
@@ -60,6 +62,11 @@ import java.util.logging.Level;
 
 public class InventoryPackets {
 
+    /**
+     * Maximum number of changed slots for which individual slot updates are sent instead of the whole container content
+     */
+    private static final int MAX_INDIVIDUAL_SLOT_UPDATES = 8;
+
     public static void register(final BedrockProtocol protocol) {
         protocol.registerClientbound(ClientboundBedrockPackets.CONTAINER_OPEN, ClientboundPackets1_21.OPEN_SCREEN, wrapper -> {
             final ChunkTracker chunkTracker = wrapper.user().get(ChunkTracker.class);
@@ -150,7 +157,31 @@ public class InventoryPackets {
 
             final InventoryTracker inventoryTracker = wrapper.user().get(InventoryTracker.class);
             final Container container = inventoryTracker.getContainerClientbound((byte) windowId);
-            if (container != null && container.setItems(items)) {
+            if (container == null) {
+                wrapper.cancel();
+                return;
+            }
+
+            if (items.length == container.size()) { // Servers often resend the whole container when only a few slots changed
+                final IntList changedSlots = new IntArrayList();
+                for (int i = 0; i < items.length; i++) {
+                    if (!container.getItem(i).equals(items[i])) {
+                        changedSlots.add(i);
+                    }
+                }
+                if (changedSlots.size() <= MAX_INDIVIDUAL_SLOT_UPDATES) {
+                    wrapper.cancel();
+                    for (int i = 0; i < changedSlots.size(); i++) {
+                        final int slot = changedSlots.getInt(i);
+                        if (container.setItem(slot, items[slot])) {
+                            PacketFactory.sendJavaContainerSetSlot(wrapper.user(), container, slot);
+                        }
+                    }
+                    return;
+                }
+            }
+
+            if (container.setItems(items)) {
                 PacketFactory.writeJavaContainerSetContent(wrapper, container);
             } else {
                 wrapper.cancel();
@@ -165,14 +196,7 @@ public class InventoryPackets {
             final InventoryTracker inventoryTracker = wrapper.user().get(InventoryTracker.class);
             final Container container = inventoryTracker.getContainerClientbound((byte) windowId);
             if (container != null && container.setItem(slot, item)) {
-                if (container.type() == ContainerType.HUD && slot == 0) { // cursor item
-                    wrapper.write(Types.UNSIGNED_BYTE, (short) -1); // window id
-                } else {
-                    wrapper.write(Types.UNSIGNED_BYTE, (short) container.javaWindowId()); // window id
-                }
-                wrapper.write(Types.VAR_INT, 0); // revision
-                wrapper.write(Types.SHORT, (short) container.javaSlot(slot)); // slot
-                wrapper.write(Types1_21.ITEM, container.getJavaItem(slot)); // item
+                PacketFactory.writeJavaContainerSetSlot(wrapper, container, slot);
             } else {
                 wrapper.cancel();
             }
@@ -534,6 +534,7 @@ public class JoinPackets {
         clientPlayer.setAbilities(clientPlayer.abilities());
         clientPlayer.sendPlayerPositionPacketToClient(false);
         if (commandsStorage != null) {
+            commandsStorage.clearSentCommandTree(); // The java client drops its command tree when joining
             commandsStorage.updateCommandTree();
         }
 
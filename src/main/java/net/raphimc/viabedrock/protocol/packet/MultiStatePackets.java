@@ -40,7 +40,7 @@ import net.raphimc.viabedrock.protocol.data.enums.bedrock.PacketViolationType;
 import net.raphimc.viabedrock.protocol.storage.ChannelStorage;
 import net.raphimc.viabedrock.protocol.storage.ClientSettingsStorage;
 import net.raphimc.viabedrock.protocol.storage.PacketSyncStorage;
-import net.raphimc.viabedrock.protocol.task.KeepAliveTask;
+import net.raphimc.viabedrock.protocol.task.ConnectionTickTask;
 import net.raphimc.viabedrock.protocol.types.BedrockTypes;
 
 import java.nio.charset.StandardCharsets;
@@ -87,7 +87,7 @@ public class MultiStatePackets {
             map(Types.LONG, BedrockTypes.LONG_LE); // id
             create(Types.BOOLEAN, true); // from server
             handler(wrapper -> {
-                if (wrapper.get(BedrockTypes.LONG_LE, 0) == KeepAliveTask.INTERNAL_ID) { // It's a keep alive packet sent from ViaBedrock to prevent the client from disconnecting
+                if (wrapper.get(BedrockTypes.LONG_LE, 0) == ConnectionTickTask.KEEP_ALIVE_ID) { // It's a keep alive packet sent from ViaBedrock to prevent the client from disconnecting
                     wrapper.cancel();
                 }
             });
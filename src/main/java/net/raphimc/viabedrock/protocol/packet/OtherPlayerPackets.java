@@ -145,6 +145,15 @@ public class OtherPlayerPackets {
             }
             if (mode == PlayerPositionModeComponent_PositionMode.OnlyHeadRot) {
                 entity.setRotation(new Position3f(rotation.x(), entity.rotation().y(), entity.rotation().z()));
+                if (entity.isDormant()) {
+                    wrapper.cancel();
+                    return;
+                }
+                if (entityTracker.getUpdateBuffer() != null && entity != entityTracker.getClientPlayer()) {
+                    wrapper.cancel();
+                    entityTracker.getUpdateBuffer().queueMove(entity, false);
+                    return;
+                }
                 wrapper.setPacketType(ClientboundPackets1_21.MOVE_ENTITY_ROT);
                 wrapper.write(Types.VAR_INT, entity.javaId()); // entity id
                 wrapper.write(Types.BYTE, MathUtil.float2Byte(entity.rotation().y())); // yaw
@@ -165,6 +174,15 @@ public class OtherPlayerPackets {
                 }
                 return;
             }
+            if (entity.isDormant()) {
+                wrapper.cancel();
+                return;
+            }
+            if (entityTracker.getUpdateBuffer() != null && entity != entityTracker.getClientPlayer()) {
+                wrapper.cancel();
+                entityTracker.getUpdateBuffer().queueMove(entity, mode == PlayerPositionModeComponent_PositionMode.Teleport);
+                return;
+            }
 
             wrapper.write(Types.VAR_INT, entity.javaId()); // entity id
             wrapper.write(Types.DOUBLE, (double) position.x()); // x
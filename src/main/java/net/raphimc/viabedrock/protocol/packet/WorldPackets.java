@@ -19,8 +19,6 @@ package net.raphimc.viabedrock.protocol.packet;
 
 import com.viaversion.nbt.tag.CompoundTag;
 import com.viaversion.nbt.tag.Tag;
-import com.viaversion.viaversion.api.minecraft.BlockChangeRecord;
-import com.viaversion.viaversion.api.minecraft.BlockChangeRecord1_16_2;
 import com.viaversion.viaversion.api.minecraft.BlockPosition;
 import com.viaversion.viaversion.api.minecraft.ChunkPosition;
 import com.viaversion.viaversion.api.minecraft.blockentity.BlockEntity;
@@ -57,37 +55,31 @@ import net.raphimc.viabedrock.protocol.types.BedrockTypes;
 import net.raphimc.viabedrock.protocol.types.array.ByteArrayType;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.function.Consumer;
 import java.util.logging.Level;
 
 public class WorldPackets {
 
     private static final PacketHandler UPDATE_BLOCK_HANDLER = wrapper -> {
+        wrapper.cancel(); // Block changes are coalesced and sent on the next tick
         final ChunkTracker chunkTracker = wrapper.user().get(ChunkTracker.class);
         final BlockPosition position = wrapper.get(Types.BLOCK_POSITION1_14, 0);
         final int blockState = wrapper.read(BedrockTypes.UNSIGNED_VAR_INT); // block state
         wrapper.read(BedrockTypes.UNSIGNED_VAR_INT); // flags
         final int layer = wrapper.read(BedrockTypes.UNSIGNED_VAR_INT); // layer
         if (layer < 0 || layer > 1) {
-            wrapper.cancel();
             return;
         }
 
         final IntObjectPair<BlockEntity> remappedBlock = chunkTracker.handleBlockChange(position, layer, blockState);
         if (remappedBlock == null) {
-            wrapper.cancel();
             return;
         }
 
-        wrapper.write(Types.VAR_INT, remappedBlock.keyInt()); // block state
-
+        chunkTracker.queueBlockChange(position, remappedBlock.keyInt());
         if (remappedBlock.value() != null) {
-            wrapper.send(BedrockProtocol.class);
-            wrapper.cancel();
-            PacketFactory.sendJavaBlockEntityData(wrapper.user(), position, remappedBlock.value());
+            chunkTracker.queueBlockEntity(position, remappedBlock.value());
         }
     };
 
@@ -221,7 +213,6 @@ public class WorldPackets {
                     final ByteBuf dataBuf = Unpooled.wrappedBuffer(combinedData);
 
                     final BedrockChunkSection[] sections = chunk.getSections();
-                    final List<BlockEntity> blockEntities = chunk.blockEntities();
                     try {
                         for (int i = 0; i < sectionCount; i++) {
                             sections[i].mergeWith(chunkTracker.handleBlockPalette(BedrockTypes.CHUNK_SECTION.read(dataBuf))); // chunk section
@@ -250,7 +241,7 @@ public class WorldPackets {
                         while (dataBuf.isReadable()) {
                             final Tag tag = BedrockTypes.NETWORK_TAG.read(dataBuf); // block entity tag
                             if (tag instanceof CompoundTag) { // Ignore non-compound tags
-                                blockEntities.add(new BedrockBlockEntity((CompoundTag) tag));
+                                chunk.addBlockEntity(new BedrockBlockEntity((CompoundTag) tag));
                             }
                         }
                     } catch (IndexOutOfBoundsException ignored) {
@@ -309,9 +300,7 @@ public class WorldPackets {
                 final Consumer<byte[]> dataConsumer = combinedData -> {
                     try {
                         if (result == SubChunkPacket_SubChunkRequestResult.SuccessAllAir) {
-                            if (chunkTracker.mergeSubChunk(absolute.x(), absolute.y(), absolute.z(), new BedrockChunkSectionImpl(), new ArrayList<>())) {
-                                chunkTracker.sendChunkInNextTick(absolute.x(), absolute.z());
-                            }
+                            chunkTracker.mergeSubChunk(absolute.x(), absolute.y(), absolute.z(), new BedrockChunkSectionImpl(), new ArrayList<>());
                         } else if (result == SubChunkPacket_SubChunkRequestResult.Success) {
                             final ByteBuf dataBuf = Unpooled.wrappedBuffer(combinedData);
 
@@ -330,9 +319,7 @@ public class WorldPackets {
                             } catch (Throwable e) {
                                 ViaBedrock.getPlatform().getLogger().log(Level.WARNING, "Error reading sub chunk data", e);
                             }
-                            if (chunkTracker.mergeSubChunk(absolute.x(), absolute.y(), absolute.z(), section, blockEntities)) {
-                                chunkTracker.sendChunkInNextTick(absolute.x(), absolute.z());
-                            }
+                            chunkTracker.mergeSubChunk(absolute.x(), absolute.y(), absolute.z(), section, blockEntities);
                         } else {
                             ViaBedrock.getPlatform().getLogger().log(Level.WARNING, "Received sub chunk with result " + result);
                             chunkTracker.requestSubChunk(absolute.x(), absolute.y(), absolute.z());
@@ -378,44 +365,26 @@ public class WorldPackets {
             }
         });
         protocol.registerClientbound(ClientboundBedrockPackets.UPDATE_SUB_CHUNK_BLOCKS, null, wrapper -> {
-            wrapper.cancel(); // Need multiple packets because offsets can go over chunk boundaries
+            wrapper.cancel(); // Block changes are coalesced per section and sent on the next tick, because offsets can go over chunk boundaries
             final ChunkTracker chunkTracker = wrapper.user().get(ChunkTracker.class);
             wrapper.read(BedrockTypes.BLOCK_POSITION); // position | Seems to be unused by the Bedrock client
             final BlockChangeEntry[][] blockUpdatesArray = new BlockChangeEntry[2][];
             blockUpdatesArray[0] = wrapper.read(BedrockTypes.BLOCK_CHANGE_ENTRY_ARRAY); // standard blocks
             blockUpdatesArray[1] = wrapper.read(BedrockTypes.BLOCK_CHANGE_ENTRY_ARRAY); // extra blocks
 
-            final Map<BlockPosition, List<BlockChangeRecord>> blockChanges = new HashMap<>();
-            final Map<BlockPosition, BlockEntity> blockEntities = new HashMap<>();
             for (int layer = 0; layer < blockUpdatesArray.length; layer++) {
                 for (BlockChangeEntry entry : blockUpdatesArray[layer]) {
                     final IntObjectPair<BlockEntity> remappedBlock = chunkTracker.handleBlockChange(entry.position(), layer, entry.blockState());
                     if (remappedBlock == null) {
                         continue;
                     }
+
+                    chunkTracker.queueBlockChange(entry.position(), remappedBlock.keyInt());
                     if (remappedBlock.value() != null) {
-                        blockEntities.put(entry.position(), remappedBlock.value());
+                        chunkTracker.queueBlockEntity(entry.position(), remappedBlock.value());
                     }
-
-                    final BlockPosition chunkPosition = new BlockPosition(entry.position().x() >> 4, entry.position().y() >> 4, entry.position().z() >> 4);
-                    final BlockPosition relative = new BlockPosition(entry.position().x() & 0xF, entry.position().y() & 0xF, entry.position().z() & 0xF);
-                    blockChanges.computeIfAbsent(chunkPosition, k -> new ArrayList<>()).add(new BlockChangeRecord1_16_2(relative.x(), relative.y(), relative.z(), remappedBlock.keyInt()));
                 }
             }
-
-            for (Map.Entry<BlockPosition, List<BlockChangeRecord>> entry : blockChanges.entrySet()) {
-                final BlockPosition chunkPosition = entry.getKey();
-                final List<BlockChangeRecord> changes = entry.getValue();
-                final long chunkKey = (chunkPosition.x() & 0x3FFFFFL) << 42 | (chunkPosition.z() & 0x3FFFFFL) << 20 | (chunkPosition.y() & 0xFFFL);
-
-                final PacketWrapper multiBlockChange = wrapper.create(ClientboundPackets1_21.SECTION_BLOCKS_UPDATE);
-                multiBlockChange.write(Types.LONG, chunkKey); // chunk position
-                multiBlockChange.write(Types.VAR_LONG_BLOCK_CHANGE_ARRAY, changes.toArray(new BlockChangeRecord[0])); // block change records
-                multiBlockChange.send(BedrockProtocol.class);
-            }
-            for (Map.Entry<BlockPosition, BlockEntity> entry : blockEntities.entrySet()) {
-                PacketFactory.sendJavaBlockEntityData(wrapper.user(), entry.getKey(), entry.getValue());
-            }
         });
         protocol.registerClientbound(ClientboundBedrockPackets.BLOCK_ENTITY_DATA, ClientboundPackets1_21.BLOCK_ENTITY_DATA, new PacketHandlers() {
             @Override
@@ -432,19 +401,14 @@ public class WorldPackets {
                     final BedrockBlockEntity bedrockBlockEntity = new BedrockBlockEntity(wrapper.get(Types.BLOCK_POSITION1_14, 0), (CompoundTag) tag);
                     chunkTracker.addBlockEntity(bedrockBlockEntity);
 
+                    wrapper.cancel(); // Queued behind the pending block changes, so that the block entity exists on the client when the data arrives
                     final BlockEntity javaBlockEntity = BlockEntityRewriter.toJava(wrapper.user(), chunkTracker.getBlockState(bedrockBlockEntity.position()), bedrockBlockEntity);
                     if (javaBlockEntity instanceof BlockEntityWithBlockState blockEntityWithBlockState) {
-                        final PacketWrapper blockChange = PacketWrapper.create(ClientboundPackets1_21.BLOCK_UPDATE, wrapper.user());
-                        blockChange.write(Types.BLOCK_POSITION1_14, bedrockBlockEntity.position()); // position
-                        blockChange.write(Types.VAR_INT, blockEntityWithBlockState.blockState()); // block state
-                        blockChange.send(BedrockProtocol.class);
+                        chunkTracker.queueBlockChange(bedrockBlockEntity.position(), blockEntityWithBlockState.blockState());
                     }
 
                     if (javaBlockEntity != null && javaBlockEntity.tag() != null) {
-                        wrapper.write(Types.VAR_INT, javaBlockEntity.typeId()); // type
-                        wrapper.write(Types.COMPOUND_TAG, javaBlockEntity.tag()); // block entity tag
-                    } else {
-                        wrapper.cancel();
+                        chunkTracker.queueBlockEntity(bedrockBlockEntity.position(), javaBlockEntity);
                     }
                 });
             }
@@ -30,12 +30,15 @@ public class DiskBlobCacheProvider extends BlobCacheProvider {
 
     @Override
     public void addBlob(final long hash, final byte[] blob) {
-        ViaBedrock.getBlobCache().put(this.createBlobKey(hash), LZ4.compress(blob));
+        final byte[] blobKey = this.createBlobKey(hash);
+        if (!ViaBedrock.getBlobCache().contains(blobKey)) { // Blobs are content-addressed, so there is no need to write them twice
+            ViaBedrock.getBlobCache().put(blobKey, LZ4.compress(blob));
+        }
     }
 
     @Override
     public boolean hasBlob(final long hash) {
-        return ViaBedrock.getBlobCache().get(this.createBlobKey(hash)) != null;
+        return ViaBedrock.getBlobCache().contains(this.createBlobKey(hash));
     }
 
     @Override
@@ -32,10 +32,12 @@ import net.raphimc.viabedrock.api.model.BedrockBlockState;
 import net.raphimc.viabedrock.api.model.BlockState;
 import net.raphimc.viabedrock.api.util.BlockStateHasher;
 import net.raphimc.viabedrock.api.util.CombinationUtil;
+import net.raphimc.viabedrock.api.util.FNV1;
 import net.raphimc.viabedrock.api.util.HashedPaletteComparator;
 import net.raphimc.viabedrock.protocol.BedrockProtocol;
 import net.raphimc.viabedrock.protocol.model.BlockProperties;
 
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.logging.Level;
 import java.util.stream.Collectors;
@@ -50,6 +52,7 @@ public class BlockStateRewriter implements StorableObject {
     private final BiMap<BlockState, Integer> blockStateMappings = HashBiMap.create(); // Bedrock -> Bedrock
     private final Int2ObjectMap<String> blockStateTags = new Int2ObjectOpenHashMap<>(); // Bedrock
     private final BlockStateSanitizer blockStateSanitizer;
+    private final long paletteHash;
 
     public BlockStateRewriter(final BlockProperties[] blockProperties, final boolean hashedRuntimeBlockIds) {
         this.blockStateIdMappings.defaultReturnValue(-1);
@@ -74,6 +77,10 @@ public class BlockStateRewriter implements StorableObject {
             }
         }
 
+        final StringBuilder paletteDescriptor = new StringBuilder().append(hashedRuntimeBlockIds);
+        effectiveBlockProperties.entrySet().stream().sorted(Map.Entry.comparingByKey()).forEach(e -> paletteDescriptor.append('\0').append(e.getKey()).append('=').append(e.getValue()));
+        this.paletteHash = FNV1.fnv1_64(paletteDescriptor.toString().getBytes(StandardCharsets.UTF_8));
+
         for (Map.Entry<String, CompoundTag> blockProperty : effectiveBlockProperties.entrySet()) {
             if (!(blockProperty.getValue().get("vanilla_block_data") instanceof CompoundTag)) { // Bedrock client ignores blocks without this tag
                 continue;
@@ -239,4 +246,11 @@ public class BlockStateRewriter implements StorableObject {
         return this.blockStateTags.get(bedrockBlockStateId);
     }
 
+    /**
+     * @return A hash of the inputs which define the block palette. Connections with the same hash have identical block state mappings.
+     */
+    public long paletteHash() {
+        return this.paletteHash;
+    }
+
 }
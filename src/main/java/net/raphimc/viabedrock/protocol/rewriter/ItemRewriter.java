@@ -17,8 +17,6 @@
  */
 package net.raphimc.viabedrock.protocol.rewriter;
 
-import com.google.common.collect.BiMap;
-import com.google.common.collect.HashBiMap;
 import com.viaversion.nbt.tag.CompoundTag;
 import com.viaversion.nbt.tag.Tag;
 import com.viaversion.viaversion.api.connection.StoredObject;
@@ -30,6 +28,8 @@ import com.viaversion.viaversion.api.minecraft.item.StructuredItem;
 import com.viaversion.viaversion.api.type.Type;
 import com.viaversion.viaversion.util.Key;
 import net.raphimc.viabedrock.ViaBedrock;
+import net.raphimc.viabedrock.api.item.ItemConversionCache;
+import net.raphimc.viabedrock.api.item.ItemRegistry;
 import net.raphimc.viabedrock.api.model.BlockState;
 import net.raphimc.viabedrock.api.model.resourcepack.ItemDefinitions;
 import net.raphimc.viabedrock.api.util.TextUtil;
@@ -46,7 +46,6 @@ import net.raphimc.viabedrock.protocol.types.item.BedrockCreativeItemType;
 import net.raphimc.viabedrock.protocol.types.item.BedrockItemType;
 
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.logging.Level;
@@ -55,12 +54,12 @@ public class ItemRewriter extends StoredObject {
 
     private static final Map<String, NbtRewriter> ITEM_NBT_REWRITERS = new HashMap<>();
 
-    private final BiMap<String, Integer> items;
-    private final Set<String> componentItems;
+    private final ItemRegistry itemRegistry;
     private final Type<BedrockItem> itemType;
     private final Type<BedrockItem[]> itemArrayType;
     private final Type<BedrockItem> creativeItemType;
     private final Type<BedrockItem[]> creativeItemArrayType;
+    private final ItemConversionCache conversionCache;
 
     static {
         // TODO: Add missing item nbt rewriters
@@ -69,25 +68,23 @@ public class ItemRewriter extends StoredObject {
     public ItemRewriter(final UserConnection user, final ItemEntry[] itemEntries) {
         super(user);
 
-        this.items = HashBiMap.create(BedrockProtocol.MAPPINGS.getBedrockItems());
-        this.componentItems = new HashSet<>();
-        for (ItemEntry itemEntry : itemEntries) {
-            this.items.inverse().remove(itemEntry.id());
-            this.items.put(Key.namespaced(itemEntry.identifier()), itemEntry.id());
-            if (itemEntry.componentBased()) {
-                this.componentItems.add(Key.namespaced(itemEntry.identifier()));
-            }
-        }
-        this.itemType = new BedrockItemType(this.items.get("minecraft:shield"), true);
+        this.itemRegistry = ItemRegistry.forEntries(itemEntries);
+        this.conversionCache = ItemConversionCache.forRegistry(this.itemRegistry.hash(), user.get(BlockStateRewriter.class).paletteHash());
+        this.itemType = new BedrockItemType(this.itemRegistry.id("minecraft:shield"), true);
         this.itemArrayType = new ArrayType<>(this.itemType, BedrockTypes.UNSIGNED_VAR_INT);
-        this.creativeItemType = new BedrockCreativeItemType(this.items.get("minecraft:shield"));
+        this.creativeItemType = new BedrockCreativeItemType(this.itemRegistry.id("minecraft:shield"));
         this.creativeItemArrayType = new ArrayType<>(this.creativeItemType, BedrockTypes.UNSIGNED_VAR_INT);
     }
 
     public Item javaItem(final BedrockItem bedrockItem) {
         if (bedrockItem.isEmpty()) return StructuredItem.empty();
 
-        String identifier = this.items.inverse().get(bedrockItem.identifier());
+        final Item cachedItem = this.conversionCache.get(bedrockItem);
+        if (cachedItem != null) {
+            return cachedItem;
+        }
+
+        String identifier = this.itemRegistry.identifier(bedrockItem.identifier());
         if (identifier == null) {
             ViaBedrock.getPlatform().getLogger().log(Level.WARNING, "Missing item identifier for id: " + bedrockItem.identifier());
             return StructuredItem.empty();
@@ -172,6 +169,8 @@ public class ItemRewriter extends StoredObject {
         final String tag = BedrockProtocol.MAPPINGS.getBedrockItemTags().get(identifier);
         if (ITEM_NBT_REWRITERS.containsKey(tag)) {
             ITEM_NBT_REWRITERS.get(tag).toJava(this.user(), bedrockItem, javaItem);
+        } else if (javaItemMapping != null) { // Custom items depend on the loaded resource packs of the connection and can't be shared
+            this.conversionCache.put(bedrockItem, javaItem);
         }
 
         return javaItem;
@@ -203,12 +202,16 @@ public class ItemRewriter extends StoredObject {
         return bedrockItems;
     }
 
-    public BiMap<String, Integer> getItems() {
-        return this.items;
+    public ItemRegistry getItemRegistry() {
+        return this.itemRegistry;
     }
 
     public Set<String> getComponentItems() {
-        return this.componentItems;
+        return this.itemRegistry.componentItems();
+    }
+
+    public ItemConversionCache getConversionCache() {
+        return this.conversionCache;
     }
 
     public Type<BedrockItem> itemType() {
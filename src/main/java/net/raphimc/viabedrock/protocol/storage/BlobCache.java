@@ -49,8 +49,12 @@ public class BlobCache extends StoredObject {
         super(user);
     }
 
+    public boolean needsTick() {
+        return !this.missing.isEmpty() || !this.acked.isEmpty();
+    }
+
     public void tick() {
-        if (this.missing.isEmpty() && this.acked.isEmpty()) {
+        if (!this.needsTick()) {
             return;
         }
 
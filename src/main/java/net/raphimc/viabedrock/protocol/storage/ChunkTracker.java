@@ -31,6 +31,10 @@ import com.viaversion.viaversion.api.type.Type;
 import com.viaversion.viaversion.api.type.Types;
 import com.viaversion.viaversion.api.type.types.chunk.ChunkType1_20_2;
 import com.viaversion.viaversion.libs.fastutil.ints.*;
+import com.viaversion.viaversion.libs.fastutil.longs.*;
+import com.viaversion.viaversion.libs.fastutil.objects.Object2LongMap;
+import com.viaversion.viaversion.libs.fastutil.objects.Object2LongOpenHashMap;
+import com.viaversion.viaversion.libs.fastutil.objects.ObjectIterator;
 import com.viaversion.viaversion.protocols.v1_20_5to1_21.packet.ClientboundPackets1_21;
 import com.viaversion.viaversion.util.CompactArrayUtil;
 import com.viaversion.viaversion.util.MathUtil;
@@ -38,11 +42,17 @@ import net.raphimc.viabedrock.ViaBedrock;
 import net.raphimc.viabedrock.api.chunk.BedrockBlockEntity;
 import net.raphimc.viabedrock.api.chunk.BedrockChunk;
 import net.raphimc.viabedrock.api.chunk.BlockEntityWithBlockState;
+import net.raphimc.viabedrock.api.chunk.bitarray.BitArrayVersion;
 import net.raphimc.viabedrock.api.chunk.datapalette.BedrockBlockArray;
 import net.raphimc.viabedrock.api.chunk.datapalette.BedrockDataPalette;
+import net.raphimc.viabedrock.api.chunk.light.BorderLight;
+import net.raphimc.viabedrock.api.chunk.light.ChunkLight;
+import net.raphimc.viabedrock.api.chunk.light.ChunkLightEngine;
 import net.raphimc.viabedrock.api.chunk.section.BedrockChunkSection;
 import net.raphimc.viabedrock.api.chunk.section.BedrockChunkSectionImpl;
 import net.raphimc.viabedrock.api.model.BedrockBlockState;
+import net.raphimc.viabedrock.api.model.entity.ClientPlayerEntity;
+import net.raphimc.viabedrock.api.util.PacketFactory;
 import net.raphimc.viabedrock.protocol.BedrockProtocol;
 import net.raphimc.viabedrock.protocol.ServerboundBedrockPackets;
 import net.raphimc.viabedrock.protocol.data.enums.Dimension;
@@ -52,29 +62,47 @@ import net.raphimc.viabedrock.protocol.rewriter.BlockStateRewriter;
 import net.raphimc.viabedrock.protocol.types.BedrockTypes;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Level;
-import java.util.stream.Collectors;
 
 // TODO: Feature: Block connections
-// TODO: Feature: Lighting
 public class ChunkTracker extends StoredObject {
 
-    private static final byte[] FULL_LIGHT = new byte[2048];
-
-    static {
-        Arrays.fill(FULL_LIGHT, (byte) 0xFF);
-    }
+    private static final int SUB_CHUNK_REQUEST_BATCH_SIZE = 256;
+    private static final long SUB_CHUNK_REQUEST_TIMEOUT = 10_000L;
+    private static final double SUB_CHUNK_REPRIORITIZE_DISTANCE = 8D; // Sort the sub chunk requests again if the player moved further
+    private static final double SUB_CHUNK_REPRIORITIZE_VIEW_DOT = Math.cos(Math.toRadians(30D)); // Sort the sub chunk requests again if the player turned further
+    private static final int FULL_RESEND_SECTION_DIVISOR = 4; // Resend the whole chunk if at least a quarter of its sections changed
+    private static final int MAX_SECTION_BLOCK_CHANGE_RECORDS = 256; // Resend the whole chunk if a changed section has more non-air blocks, because the palette compressed chunk is smaller then
+    private static final long CHUNK_MEMORY_CHECK_INTERVAL = 1_000L;
+    private static final int UNCOMPRESSED_CHUNK_RADIUS = 2;
+    private static final int MAX_INCREMENTAL_LIGHT_UPDATES = 1024; // Relight the whole chunk if more blocks changed
+    private static final int LIGHT_INPUT_CACHE_SIZE = 16;
 
     private final Dimension dimension;
     private final int minY;
     private final int worldHeight;
     private final Type<Chunk> chunkType;
 
-    private final Map<Long, BedrockChunk> chunks = new HashMap<>();
-    private final Set<Long> dirtyChunks = new HashSet<>();
+    private final Long2ObjectMap<BedrockChunk> chunks = new Long2ObjectOpenHashMap<>();
+    private final LongSet dirtyChunks = new LongOpenHashSet();
+    private final Long2ObjectMap<BitSet> dirtySections = new Long2ObjectOpenHashMap<>();
+    private final LongSet lightDirtyChunks = new LongOpenHashSet();
+    private final Long2ObjectMap<IntList> lightDirtyBlocks = new Long2ObjectOpenHashMap<>(); // chunk key -> changed light input indices
+    private final Long2ObjectLinkedOpenHashMap<LightInput> lightInputs = new Long2ObjectLinkedOpenHashMap<>(); // chunk key -> light input of recently relit chunks, least recently used first
+    private final Long2IntOpenHashMap calculatingLightChunks = new Long2IntOpenHashMap(); // chunk key -> running light calculations
+    private final Long2ObjectMap<Int2IntMap> queuedBlockChanges = new Long2ObjectLinkedOpenHashMap<>(); // section key -> packed section position -> java block state
+    private final Map<BlockPosition, BlockEntity> queuedBlockEntities = new LinkedHashMap<>();
 
     private final Set<SubChunkPosition> subChunkRequests = new HashSet<>();
-    private final Set<SubChunkPosition> pendingSubChunks = new HashSet<>();
+    private double prioritizedEyeX, prioritizedEyeY, prioritizedEyeZ;
+    private double prioritizedLookX, prioritizedLookY, prioritizedLookZ;
+    private final Queue<SubChunkPosition> prioritizedSubChunkRequests = new PriorityQueue<>(Comparator.comparingDouble((SubChunkPosition s) -> s.requestPriority(this.prioritizedEyeX, this.prioritizedEyeY, this.prioritizedEyeZ, this.prioritizedLookX, this.prioritizedLookY, this.prioritizedLookZ))); // Sub chunk requests ordered for the prioritized eye position and look direction, may contain requests which were already removed
+    private final Object2LongMap<SubChunkPosition> pendingSubChunks = new Object2LongOpenHashMap<>(); // position -> request time
+
+    private long lastChunkMemoryCheck = 0L;
+    private long chunkMemoryUsage = 0L;
+    private int compressedSectionCount = 0;
 
     private int centerX = 0;
     private int centerZ = 0;
@@ -135,7 +163,17 @@ public class ChunkTracker extends StoredObject {
 
     public void unloadChunk(final ChunkPosition chunkPos) {
         this.chunks.remove(chunkPos.chunkKey());
+        this.dirtySections.remove(chunkPos.chunkKey());
+        this.lightDirtyChunks.remove(chunkPos.chunkKey());
+        this.lightDirtyBlocks.remove(chunkPos.chunkKey());
+        this.lightInputs.remove(chunkPos.chunkKey());
+        this.discardQueuedBlockChanges(chunkPos.chunkX(), chunkPos.chunkZ());
         this.user().get(EntityTracker.class).removeItemFrame(chunkPos);
+        if (ViaBedrock.getConfig().shouldCalculateLight()) { // The neighbours might have been lit by this chunk
+            for (int side = 0; side < 4; side++) {
+                this.markNeighbourLightDirty(chunkPos.chunkX(), chunkPos.chunkZ(), side);
+            }
+        }
 
         final PacketWrapper unloadChunk = PacketWrapper.create(ClientboundPackets1_21.FORGET_LEVEL_CHUNK, this.user());
         unloadChunk.write(Types.CHUNK_POSITION, chunkPos); // chunk position
@@ -219,29 +257,33 @@ public class ChunkTracker extends StoredObject {
         final BedrockChunk chunk = this.getChunk(bedrockBlockEntity.position().x() >> 4, bedrockBlockEntity.position().z() >> 4);
         if (chunk == null) return;
 
-        chunk.removeBlockEntityAt(bedrockBlockEntity.position());
-        chunk.blockEntities().add(bedrockBlockEntity);
+        chunk.addBlockEntity(bedrockBlockEntity);
     }
 
     public boolean isChunkLoaded(final ChunkPosition chunkPos) {
-        if (!this.isInLoadDistance(chunkPos.chunkX(), chunkPos.chunkZ())) return false;
-        return this.chunks.containsKey(chunkPos.chunkKey());
+        return this.isChunkLoaded(chunkPos.chunkX(), chunkPos.chunkZ());
+    }
+
+    public boolean isChunkLoaded(final int chunkX, final int chunkZ) {
+        if (!this.isInLoadDistance(chunkX, chunkZ)) return false;
+        return this.chunks.containsKey(ChunkPosition.chunkKey(chunkX, chunkZ));
     }
 
     public boolean isInUnloadedChunkSection(final Position3f playerPosition) {
-        final BlockPosition chunkSectionPosition = new BlockPosition((int) Math.floor(playerPosition.x() / 16), (int) Math.floor((playerPosition.y() - 1.62F) / 16), (int) Math.floor(playerPosition.z() / 16));
-        final ChunkPosition chunkPos = new ChunkPosition(chunkSectionPosition.x(), chunkSectionPosition.z());
-        if (!this.isChunkLoaded(chunkPos)) {
+        final int chunkX = (int) Math.floor(playerPosition.x() / 16);
+        final int subChunkY = (int) Math.floor((playerPosition.y() - 1.62F) / 16);
+        final int chunkZ = (int) Math.floor(playerPosition.z() / 16);
+        if (!this.isChunkLoaded(chunkX, chunkZ)) {
             return true;
         }
-        final BedrockChunkSection chunkSection = this.getChunkSection(chunkSectionPosition.x(), chunkSectionPosition.y(), chunkSectionPosition.z());
+        final BedrockChunkSection chunkSection = this.getChunkSection(chunkX, subChunkY, chunkZ);
         if (chunkSection == null) {
             return false;
         }
         if (chunkSection.hasPendingBlockUpdates()) {
             return true;
         }
-        return this.dirtyChunks.contains(chunkPos.chunkKey());
+        return this.dirtyChunks.contains(ChunkPosition.chunkKey(chunkX, chunkZ));
     }
 
     public boolean isInLoadDistance(final int chunkX, final int chunkZ) {
@@ -261,12 +303,11 @@ public class ChunkTracker extends StoredObject {
     }
 
     public void removeOutOfLoadDistanceChunks() {
-        final Set<ChunkPosition> chunksToRemove = new HashSet<>();
-        for (long chunkKey : this.chunks.keySet()) {
-            final ChunkPosition chunkPos = new ChunkPosition(chunkKey);
-            if (this.isInLoadDistance(chunkPos.chunkX(), chunkPos.chunkZ())) continue;
+        final List<ChunkPosition> chunksToRemove = new ArrayList<>();
+        for (BedrockChunk chunk : this.chunks.values()) {
+            if (this.isInLoadDistance(chunk.getX(), chunk.getZ())) continue;
 
-            chunksToRemove.add(chunkPos);
+            chunksToRemove.add(new ChunkPosition(chunk.getX(), chunk.getZ()));
         }
         for (ChunkPosition chunkPos : chunksToRemove) {
             this.unloadChunk(chunkPos);
@@ -281,18 +322,21 @@ public class ChunkTracker extends StoredObject {
 
     public void requestSubChunk(final int chunkX, final int subChunkY, final int chunkZ) {
         if (!this.isInLoadDistance(chunkX, chunkZ)) return;
-        this.subChunkRequests.add(new SubChunkPosition(chunkX, subChunkY, chunkZ));
+        final SubChunkPosition position = new SubChunkPosition(chunkX, subChunkY, chunkZ);
+        if (this.subChunkRequests.add(position)) {
+            this.prioritizedSubChunkRequests.add(position);
+        }
     }
 
     public boolean mergeSubChunk(final int chunkX, final int subChunkY, final int chunkZ, final BedrockChunkSection other, final List<BedrockBlockEntity> blockEntities) {
         if (!this.isInLoadDistance(chunkX, chunkZ)) return false;
 
         final SubChunkPosition position = new SubChunkPosition(chunkX, subChunkY, chunkZ);
-        if (!this.pendingSubChunks.contains(position)) {
+        if (!this.pendingSubChunks.containsKey(position)) {
             ViaBedrock.getPlatform().getLogger().log(Level.WARNING, "Received sub chunk that was not requested: " + position);
             return false;
         }
-        this.pendingSubChunks.remove(position);
+        this.pendingSubChunks.removeLong(position);
 
         final BedrockChunk chunk = this.getChunk(chunkX, chunkZ);
         if (chunk == null) {
@@ -301,10 +345,15 @@ public class ChunkTracker extends StoredObject {
         }
 
         final BedrockChunkSection section = chunk.getSections()[subChunkY + Math.abs(this.minY >> 4)];
+        final boolean requiresFullResend = !section.palettes(PaletteType.BLOCKS).isEmpty() || section.palette(PaletteType.BIOMES) == null;
         section.mergeWith(this.handleBlockPalette(other));
         section.applyPendingBlockUpdates(this.airId());
-        blockEntities.forEach(blockEntity -> chunk.removeBlockEntityAt(blockEntity.position()));
-        chunk.blockEntities().addAll(blockEntities);
+        blockEntities.forEach(chunk::addBlockEntity);
+        if (requiresFullResend) { // The java client might have more than air in that section or the biomes are only known after merging
+            this.sendChunkInNextTick(chunkX, chunkZ);
+        } else {
+            this.sendSectionInNextTick(chunkX, subChunkY, chunkZ);
+        }
         return true;
     }
 
@@ -335,6 +384,9 @@ public class ChunkTracker extends StoredObject {
         final String prevTag = blockStateRewriter.tag(prevBlockState);
         final String tag = blockStateRewriter.tag(blockState);
         palette.setIdAt(sectionX, sectionY, sectionZ, blockState);
+        if (prevBlockState != blockState && ViaBedrock.getConfig().shouldCalculateLight() && (layer != 0 || this.hasDifferentLightProperties(prevBlockState, blockState))) {
+            this.markLightDirty(section, blockPosition);
+        }
 
         int remappedBlockState = this.getJavaBlockState(section, sectionX, sectionY, sectionZ);
         if (!Objects.equals(prevTag, tag)) {
@@ -367,6 +419,58 @@ public class ChunkTracker extends StoredObject {
         return new IntObjectImmutablePair<>(remappedBlockState, null);
     }
 
+    /**
+     * Queues a java block change which will be sent on the next tick. Multiple changes to the same block within one tick are merged, and changes in the same section are sent in one packet.
+     */
+    public void queueBlockChange(final BlockPosition blockPosition, final int javaBlockState) {
+        final long sectionKey = sectionKey(blockPosition.x() >> 4, blockPosition.y() >> 4, blockPosition.z() >> 4);
+        Int2IntMap sectionChanges = this.queuedBlockChanges.get(sectionKey);
+        if (sectionChanges == null) {
+            sectionChanges = new Int2IntLinkedOpenHashMap();
+            this.queuedBlockChanges.put(sectionKey, sectionChanges);
+        }
+        sectionChanges.put((blockPosition.x() & 15) << 8 | (blockPosition.z() & 15) << 4 | (blockPosition.y() & 15), javaBlockState);
+    }
+
+    /**
+     * Queues java block entity data which will be sent on the next tick after the queued block changes.
+     */
+    public void queueBlockEntity(final BlockPosition blockPosition, final BlockEntity javaBlockEntity) {
+        this.queuedBlockEntities.put(blockPosition, javaBlockEntity);
+    }
+
+    public void flushBlockChanges() {
+        for (Long2ObjectMap.Entry<Int2IntMap> entry : Long2ObjectMaps.fastIterable(this.queuedBlockChanges)) {
+            final long sectionKey = entry.getLongKey();
+            final Int2IntMap sectionChanges = entry.getValue();
+            if (sectionChanges.size() == 1) {
+                final int packedPosition = sectionChanges.keySet().iterator().nextInt();
+                final int x = (int) (sectionKey >> 42) << 4 | packedPosition >> 8;
+                final int y = (int) (sectionKey << 52 >> 52) << 4 | packedPosition & 15;
+                final int z = (int) (sectionKey << 22 >> 42) << 4 | (packedPosition >> 4) & 15;
+
+                final PacketWrapper blockUpdate = PacketWrapper.create(ClientboundPackets1_21.BLOCK_UPDATE, this.user());
+                blockUpdate.write(Types.BLOCK_POSITION1_14, new BlockPosition(x, y, z)); // position
+                blockUpdate.write(Types.VAR_INT, sectionChanges.get(packedPosition)); // block state
+                blockUpdate.send(BedrockProtocol.class);
+            } else {
+                final PacketWrapper sectionBlocksUpdate = PacketWrapper.create(ClientboundPackets1_21.SECTION_BLOCKS_UPDATE, this.user());
+                sectionBlocksUpdate.write(Types.LONG, sectionKey); // chunk position
+                sectionBlocksUpdate.write(Types.VAR_INT, sectionChanges.size()); // block change record count
+                for (Int2IntMap.Entry change : Int2IntMaps.fastIterable(sectionChanges)) {
+                    sectionBlocksUpdate.write(Types.VAR_LONG, (long) change.getIntValue() << 12 | change.getIntKey()); // block change record
+                }
+                sectionBlocksUpdate.send(BedrockProtocol.class);
+            }
+        }
+        this.queuedBlockChanges.clear();
+
+        for (Map.Entry<BlockPosition, BlockEntity> entry : this.queuedBlockEntities.entrySet()) {
+            PacketFactory.sendJavaBlockEntityData(this.user(), entry.getKey(), entry.getValue());
+        }
+        this.queuedBlockEntities.clear();
+    }
+
     public BedrockChunkSection handleBlockPalette(final BedrockChunkSection section) {
         this.replaceLegacyBlocks(section);
         this.resolvePersistentIds(section);
@@ -375,6 +479,22 @@ public class ChunkTracker extends StoredObject {
 
     public void sendChunkInNextTick(final int chunkX, final int chunkZ) {
         this.dirtyChunks.add(ChunkPosition.chunkKey(chunkX, chunkZ));
+        this.dirtySections.remove(ChunkPosition.chunkKey(chunkX, chunkZ));
+    }
+
+    /**
+     * Marks a section which was empty on the java client as changed. If the chunk is already loaded on the java client, only the changed sections are sent as block updates.
+     */
+    public void sendSectionInNextTick(final int chunkX, final int subChunkY, final int chunkZ) {
+        final long chunkKey = ChunkPosition.chunkKey(chunkX, chunkZ);
+        if (this.dirtyChunks.contains(chunkKey)) return;
+
+        final BedrockChunk chunk = this.chunks.get(chunkKey);
+        if (chunk == null || chunk.getLight() == null) { // Not sent to the java client yet
+            this.sendChunkInNextTick(chunkX, chunkZ);
+            return;
+        }
+        this.dirtySections.computeIfAbsent(chunkKey, k -> new BitSet()).set(subChunkY + Math.abs(this.minY >> 4));
     }
 
     public void sendChunk(final int chunkX, final int chunkZ) {
@@ -384,20 +504,163 @@ public class ChunkTracker extends StoredObject {
         }
         final Chunk remappedChunk = this.remapChunk(chunk);
 
+        final ChunkLight light;
+        if (ViaBedrock.getConfig().shouldCalculateLight()) { // The light is calculated off the event loop and sent as a light update afterwards
+            light = chunk.getLight() != null ? chunk.getLight().asPlaceholder() : ChunkLight.unlit(chunk.getSections().length);
+        } else {
+            light = ChunkLight.fullBright(chunk.getSections().length);
+        }
+        chunk.setLight(light);
+        this.dirtySections.remove(ChunkPosition.chunkKey(chunkX, chunkZ));
+        this.lightDirtyChunks.remove(ChunkPosition.chunkKey(chunkX, chunkZ));
+        this.lightDirtyBlocks.remove(ChunkPosition.chunkKey(chunkX, chunkZ));
+        this.lightInputs.remove(ChunkPosition.chunkKey(chunkX, chunkZ));
+        this.discardQueuedBlockChanges(chunkX, chunkZ); // The chunk data already contains them
+
         final PacketWrapper wrapper = PacketWrapper.create(ClientboundPackets1_21.LEVEL_CHUNK_WITH_LIGHT, this.user());
-        final BitSet lightMask = new BitSet();
-        lightMask.set(0, remappedChunk.getSections().length + 2);
         wrapper.write(this.chunkType, remappedChunk); // chunk
-        wrapper.write(Types.LONG_ARRAY_PRIMITIVE, lightMask.toLongArray()); // sky light mask
-        wrapper.write(Types.LONG_ARRAY_PRIMITIVE, new long[0]); // block light mask
-        wrapper.write(Types.LONG_ARRAY_PRIMITIVE, new long[0]); // empty sky light mask
-        wrapper.write(Types.LONG_ARRAY_PRIMITIVE, lightMask.toLongArray()); // empty block light mask
-        wrapper.write(Types.VAR_INT, remappedChunk.getSections().length + 2); // sky light length
-        for (int i = 0; i < remappedChunk.getSections().length + 2; i++) {
-            wrapper.write(Types.BYTE_ARRAY_PRIMITIVE, FULL_LIGHT); // sky light
-        }
-        wrapper.write(Types.VAR_INT, 0); // block light length
+        this.writeLightData(wrapper, light, light.allSections(), light.allSections());
         wrapper.send(BedrockProtocol.class);
+
+        if (ViaBedrock.getConfig().shouldCalculateLight()) {
+            this.relightChunk(chunkX, chunkZ);
+        }
+    }
+
+    public void sendSections(final int chunkX, final int chunkZ, final BitSet sections) {
+        final BedrockChunk chunk = this.getChunk(chunkX, chunkZ);
+        if (chunk == null) {
+            return;
+        }
+        if (chunk.getLight() == null || sections.cardinality() >= Math.max(1, chunk.getSections().length / FULL_RESEND_SECTION_DIVISOR)) {
+            this.sendChunk(chunkX, chunkZ);
+            return;
+        }
+
+        final List<BlockEntity> javaBlockEntities = new ArrayList<>();
+        final long[][] sectionBlockChangeRecords = new long[chunk.getSections().length][];
+        final long[] blockChangeRecords = new long[MAX_SECTION_BLOCK_CHANGE_RECORDS];
+        for (int idx = sections.nextSetBit(0); idx >= 0; idx = sections.nextSetBit(idx + 1)) {
+            final DataPalette remappedBlockPalette = this.remapSection(chunk, idx, javaBlockEntities).palette(PaletteType.BLOCKS);
+            if (remappedBlockPalette.size() == 1 && remappedBlockPalette.idByIndex(0) == 0) continue;
+
+            int blockChangeRecordCount = 0;
+            for (int i = 0; i < ChunkSection.SIZE; i++) { // The section only contained air before, so every non-air block is a change
+                final int javaBlockState = remappedBlockPalette.idAt(i);
+                if (javaBlockState != 0) {
+                    if (blockChangeRecordCount == MAX_SECTION_BLOCK_CHANGE_RECORDS) { // Too dense for block updates
+                        this.sendChunk(chunkX, chunkZ);
+                        return;
+                    }
+                    blockChangeRecords[blockChangeRecordCount++] = (long) javaBlockState << 12 | (i & 15) << 8 | ((i >> 4) & 15) << 4 | i >> 8;
+                }
+            }
+            sectionBlockChangeRecords[idx] = Arrays.copyOf(blockChangeRecords, blockChangeRecordCount);
+        }
+
+        for (int idx = 0; idx < sectionBlockChangeRecords.length; idx++) {
+            if (sectionBlockChangeRecords[idx] == null) continue;
+
+            final PacketWrapper sectionBlocksUpdate = PacketWrapper.create(ClientboundPackets1_21.SECTION_BLOCKS_UPDATE, this.user());
+            sectionBlocksUpdate.write(Types.LONG, sectionKey(chunkX, idx + (this.minY >> 4), chunkZ)); // chunk position
+            sectionBlocksUpdate.write(Types.VAR_INT, sectionBlockChangeRecords[idx].length); // block change record count
+            for (long blockChangeRecord : sectionBlockChangeRecords[idx]) {
+                sectionBlocksUpdate.write(Types.VAR_LONG, blockChangeRecord); // block change record
+            }
+            sectionBlocksUpdate.send(BedrockProtocol.class);
+        }
+        for (BlockEntity javaBlockEntity : javaBlockEntities) {
+            final BlockPosition position = new BlockPosition(chunkX * 16 + javaBlockEntity.sectionX(), javaBlockEntity.y(), chunkZ * 16 + javaBlockEntity.sectionZ());
+            PacketFactory.sendJavaBlockEntityData(this.user(), position, javaBlockEntity);
+        }
+
+        if (ViaBedrock.getConfig().shouldCalculateLight()) { // Whole sections changed, so the cached light input is outdated
+            final long chunkKey = ChunkPosition.chunkKey(chunkX, chunkZ);
+            this.lightDirtyChunks.add(chunkKey);
+            this.lightDirtyBlocks.remove(chunkKey);
+            this.lightInputs.remove(chunkKey);
+        }
+    }
+
+    public void relightChunk(final int chunkX, final int chunkZ) {
+        this.relightChunk(chunkX, chunkZ, null);
+    }
+
+    /**
+     * Recalculates the light of a chunk off the event loop and sends the changed sections to the client.
+     *
+     * @param changedBlocks The light input indices of the blocks which changed since the last calculation, or null to recalculate the whole chunk
+     */
+    private void relightChunk(final int chunkX, final int chunkZ, final IntList changedBlocks) {
+        final long chunkKey = ChunkPosition.chunkKey(chunkX, chunkZ);
+        final BedrockChunk chunk = this.getChunk(chunkX, chunkZ);
+        if (chunk == null || chunk.getLight() == null) {
+            return;
+        }
+
+        final ChunkLight previousLight = chunk.getLight();
+        final CompletableFuture<ChunkLight> lightFuture;
+        if (changedBlocks != null && previousLight.isCalculated()) {
+            LightInput lightInput = this.lightInputs.getAndMoveToLast(chunkKey);
+            if (lightInput == null) {
+                lightInput = this.createLightInput(chunk);
+                this.lightInputs.putAndMoveToLast(chunkKey, lightInput);
+                if (this.lightInputs.size() > LIGHT_INPUT_CACHE_SIZE) {
+                    this.lightInputs.removeFirst();
+                }
+            }
+            // The cached light input is updated in place on the event loop, so the worker gets a copy
+            lightFuture = ChunkLightEngine.updateAsync(previousLight, chunk.getSections().length, lightInput.opacities().clone(), lightInput.emissions().clone(), changedBlocks.toIntArray(), this.createBorderLight(chunkX, chunkZ, chunk.getSections().length));
+        } else {
+            this.lightInputs.remove(chunkKey); // Block changes aren't tracked while a full recalculation is pending
+            final LightInput lightInput = this.createLightInput(chunk);
+            lightFuture = ChunkLightEngine.calculateAsync(chunk.getSections().length, lightInput.opacities(), lightInput.emissions(), this.createBorderLight(chunkX, chunkZ, chunk.getSections().length));
+        }
+
+        this.calculatingLightChunks.addTo(chunkKey, 1);
+        lightFuture.whenComplete((light, throwable) -> this.user().getChannel().eventLoop().execute(() -> {
+            if (this.calculatingLightChunks.addTo(chunkKey, -1) <= 1) {
+                this.calculatingLightChunks.remove(chunkKey);
+            }
+            if (throwable != null) {
+                ViaBedrock.getPlatform().getLogger().log(Level.WARNING, "Failed to calculate light for chunk " + chunkX + ", " + chunkZ, throwable);
+                return;
+            }
+            if (!this.user().getChannel().isActive() || this.user().get(ChunkTracker.class) != this) return;
+            if (this.chunks.get(chunkKey) != chunk || chunk.getLight() != previousLight) return; // Chunk was unloaded or resent in the meantime
+
+            try {
+                final BitSet changedSkyLightSections = light.changedSkyLightSections(previousLight);
+                final BitSet changedBlockLightSections = light.changedBlockLightSections(previousLight);
+                chunk.setLight(light);
+                if (changedSkyLightSections.isEmpty() && changedBlockLightSections.isEmpty()) return;
+
+                for (int side = 0; side < 4; side++) { // Spread the changed light into the neighbours
+                    if (!Arrays.equals(light.edgeLevels(true, side), previousLight.edgeLevels(true, side)) || !Arrays.equals(light.edgeLevels(false, side), previousLight.edgeLevels(false, side))) {
+                        this.markNeighbourLightDirty(chunkX, chunkZ, side);
+                    }
+                }
+
+                final PacketWrapper lightUpdate = PacketWrapper.create(ClientboundPackets1_21.LIGHT_UPDATE, this.user());
+                lightUpdate.write(Types.VAR_INT, chunkX); // chunk x
+                lightUpdate.write(Types.VAR_INT, chunkZ); // chunk z
+                this.writeLightData(lightUpdate, light, changedSkyLightSections, changedBlockLightSections);
+                lightUpdate.send(BedrockProtocol.class);
+            } catch (Throwable e) {
+                BedrockProtocol.kickForIllegalState(this.user(), "Error sending light update. See console for details.", e);
+            }
+        }));
+    }
+
+    /**
+     * @return The approximate heap size of the tracked chunk sections in bytes, as of the last memory check
+     */
+    public long getChunkMemoryUsage() {
+        return this.chunkMemoryUsage;
+    }
+
+    public int getCompressedSectionCount() {
+        return this.compressedSectionCount;
     }
 
     public Dimension getDimension() {
@@ -428,22 +691,110 @@ public class ChunkTracker extends StoredObject {
     }
 
     public void tick() {
-        for (Long dirtyChunk : this.dirtyChunks) {
-            final ChunkPosition chunkPos = new ChunkPosition(dirtyChunk);
+        final LongIterator dirtyChunksIterator = this.dirtyChunks.iterator();
+        while (dirtyChunksIterator.hasNext()) {
+            final ChunkPosition chunkPos = new ChunkPosition(dirtyChunksIterator.nextLong());
             this.sendChunk(chunkPos.chunkX(), chunkPos.chunkZ());
         }
         this.dirtyChunks.clear();
+        if (!this.dirtySections.isEmpty()) {
+            final Long2ObjectMap<BitSet> dirtySections = new Long2ObjectOpenHashMap<>(this.dirtySections);
+            this.dirtySections.clear();
+            for (Long2ObjectMap.Entry<BitSet> entry : Long2ObjectMaps.fastIterable(dirtySections)) {
+                final ChunkPosition chunkPos = new ChunkPosition(entry.getLongKey());
+                this.sendSections(chunkPos.chunkX(), chunkPos.chunkZ(), entry.getValue());
+            }
+        }
+        this.flushBlockChanges();
+
+        final LongIterator lightDirtyChunksIterator = this.lightDirtyChunks.iterator();
+        while (lightDirtyChunksIterator.hasNext()) {
+            final long chunkKey = lightDirtyChunksIterator.nextLong();
+            if (this.calculatingLightChunks.containsKey(chunkKey)) continue; // Wait for the previous calculation to finish, so that the results are applied in order
+
+            lightDirtyChunksIterator.remove();
+            this.lightDirtyBlocks.remove(chunkKey); // Covered by relighting the whole chunk
+            final ChunkPosition chunkPos = new ChunkPosition(chunkKey);
+            this.relightChunk(chunkPos.chunkX(), chunkPos.chunkZ());
+        }
+        final ObjectIterator<Long2ObjectMap.Entry<IntList>> lightDirtyBlocksIterator = Long2ObjectMaps.fastIterator(this.lightDirtyBlocks);
+        while (lightDirtyBlocksIterator.hasNext()) {
+            final Long2ObjectMap.Entry<IntList> entry = lightDirtyBlocksIterator.next();
+            if (this.calculatingLightChunks.containsKey(entry.getLongKey())) continue; // Wait for the previous calculation to finish, so that the changes are applied on top of its result
+
+            lightDirtyBlocksIterator.remove();
+            final ChunkPosition chunkPos = new ChunkPosition(entry.getLongKey());
+            this.relightChunk(chunkPos.chunkX(), chunkPos.chunkZ(), entry.getValue());
+        }
 
         if (this.user().get(EntityTracker.class) == null || !this.user().get(EntityTracker.class).getClientPlayer().isInitiallySpawned()) {
             return;
         }
 
+        final long now = System.currentTimeMillis();
+        if (now - this.lastChunkMemoryCheck >= CHUNK_MEMORY_CHECK_INTERVAL) {
+            this.lastChunkMemoryCheck = now;
+            this.enforceChunkMemoryBudget(now);
+        }
+
         this.subChunkRequests.removeIf(s -> !this.isInLoadDistance(s.chunkX, s.chunkZ));
+        final ObjectIterator<Object2LongMap.Entry<SubChunkPosition>> pendingSubChunksIterator = this.pendingSubChunks.object2LongEntrySet().iterator();
+        while (pendingSubChunksIterator.hasNext()) {
+            final Object2LongMap.Entry<SubChunkPosition> entry = pendingSubChunksIterator.next();
+            if (!this.isInLoadDistance(entry.getKey().chunkX, entry.getKey().chunkZ)) {
+                pendingSubChunksIterator.remove();
+            } else if (now - entry.getLongValue() > SUB_CHUNK_REQUEST_TIMEOUT) {
+                pendingSubChunksIterator.remove();
+                this.requestSubChunk(entry.getKey().chunkX, entry.getKey().subChunkY, entry.getKey().chunkZ);
+            }
+        }
+
+        final int freeRequestSlots = ViaBedrock.getConfig().getMaxPendingSubChunkRequests() - this.pendingSubChunks.size();
+        if (this.subChunkRequests.isEmpty()) {
+            this.prioritizedSubChunkRequests.clear();
+            return;
+        } else if (freeRequestSlots <= 0) {
+            return;
+        }
+
+        final ClientPlayerEntity clientPlayer = this.user().get(EntityTracker.class).getClientPlayer();
+        final Position3f eyePosition = clientPlayer.position();
+        final double yaw = Math.toRadians(clientPlayer.rotation().y());
+        final double pitch = Math.toRadians(clientPlayer.rotation().x());
+        final double lookX = -Math.sin(yaw) * Math.cos(pitch);
+        final double lookY = -Math.sin(pitch);
+        final double lookZ = Math.cos(yaw) * Math.cos(pitch);
+        final double movedX = eyePosition.x() - this.prioritizedEyeX;
+        final double movedY = eyePosition.y() - this.prioritizedEyeY;
+        final double movedZ = eyePosition.z() - this.prioritizedEyeZ;
+        final boolean moved = movedX * movedX + movedY * movedY + movedZ * movedZ > SUB_CHUNK_REPRIORITIZE_DISTANCE * SUB_CHUNK_REPRIORITIZE_DISTANCE;
+        final boolean turned = lookX * this.prioritizedLookX + lookY * this.prioritizedLookY + lookZ * this.prioritizedLookZ < SUB_CHUNK_REPRIORITIZE_VIEW_DOT;
+        final boolean stale = this.prioritizedSubChunkRequests.size() > this.subChunkRequests.size() * 2; // Requests which left the load distance are only dropped when polled
+        if (moved || turned || stale) {
+            this.prioritizedEyeX = eyePosition.x();
+            this.prioritizedEyeY = eyePosition.y();
+            this.prioritizedEyeZ = eyePosition.z();
+            this.prioritizedLookX = lookX;
+            this.prioritizedLookY = lookY;
+            this.prioritizedLookZ = lookZ;
+            this.prioritizedSubChunkRequests.clear();
+            this.prioritizedSubChunkRequests.addAll(this.subChunkRequests);
+        }
+
+        final List<SubChunkPosition> scheduledRequests = new ArrayList<>(Math.min(freeRequestSlots, this.subChunkRequests.size()));
+        while (scheduledRequests.size() < freeRequestSlots && !this.prioritizedSubChunkRequests.isEmpty()) {
+            final SubChunkPosition subChunkPosition = this.prioritizedSubChunkRequests.poll();
+            if (this.subChunkRequests.remove(subChunkPosition)) { // Skip requests which were dropped because they left the load distance or are queued twice
+                scheduledRequests.add(subChunkPosition);
+            }
+        }
+
         final BlockPosition basePosition = new BlockPosition(this.centerX, 0, this.centerZ);
-        while (!this.subChunkRequests.isEmpty()) {
-            final Set<SubChunkPosition> group = this.subChunkRequests.stream().limit(256).collect(Collectors.toSet());
-            this.subChunkRequests.removeAll(group);
-            this.pendingSubChunks.addAll(group);
+        for (int i = 0; i < scheduledRequests.size(); i += SUB_CHUNK_REQUEST_BATCH_SIZE) {
+            final List<SubChunkPosition> group = scheduledRequests.subList(i, Math.min(i + SUB_CHUNK_REQUEST_BATCH_SIZE, scheduledRequests.size()));
+            for (SubChunkPosition subChunkPosition : group) {
+                this.pendingSubChunks.put(subChunkPosition, now);
+            }
 
             final PacketWrapper subChunkRequest = PacketWrapper.create(ServerboundBedrockPackets.SUB_CHUNK_REQUEST, this.user());
             subChunkRequest.write(BedrockTypes.VAR_INT, this.dimension.ordinal()); // dimension id
@@ -457,158 +808,400 @@ public class ChunkTracker extends StoredObject {
         }
     }
 
-    private Chunk remapChunk(final BedrockChunk chunk) {
+    /**
+     * Compresses sections of chunks which are not close to the player, until the chunk memory usage is within the configured budget.<br>
+     * Only sections which weren't accessed for the configured idle time are compressed, starting with the chunks furthest away from the player. Any access decompresses a section again, so compressing recently accessed sections would only waste time.
+     */
+    private void enforceChunkMemoryBudget(final long now) {
+        final long budget = ViaBedrock.getConfig().getChunkMemoryBudget() * 1024L * 1024L;
+        final long idleTime = ViaBedrock.getConfig().getChunkCompressionIdleTime() * 1000L;
+
+        long memoryUsage = 0;
+        int compressedSectionCount = 0;
+        for (BedrockChunk chunk : this.chunks.values()) {
+            for (BedrockChunkSection section : chunk.getSections()) {
+                section.lastAccessTime(now); // Record accesses since the last check
+                memoryUsage += section.estimatedMemoryUsage();
+                if (section.isCompressed()) {
+                    compressedSectionCount++;
+                }
+            }
+        }
+
+        if (budget > 0 && memoryUsage > budget) {
+            final Position3f playerPosition = this.user().get(EntityTracker.class).getClientPlayer().position();
+            final int playerChunkX = (int) Math.floor(playerPosition.x() / 16);
+            final int playerChunkZ = (int) Math.floor(playerPosition.z() / 16);
+            final List<BedrockChunk> chunks = new ArrayList<>();
+            for (BedrockChunk chunk : this.chunks.values()) {
+                if (Math.abs(chunk.getX() - playerChunkX) > UNCOMPRESSED_CHUNK_RADIUS || Math.abs(chunk.getZ() - playerChunkZ) > UNCOMPRESSED_CHUNK_RADIUS) {
+                    chunks.add(chunk);
+                }
+            }
+            chunks.sort(Comparator.comparingInt((BedrockChunk c) -> Math.max(Math.abs(c.getX() - playerChunkX), Math.abs(c.getZ() - playerChunkZ))).reversed());
+
+            for (BedrockChunk chunk : chunks) {
+                if (memoryUsage <= budget) break;
+
+                for (BedrockChunkSection section : chunk.getSections()) {
+                    if (section.isCompressed() || now - section.lastAccessTime(now) < idleTime) continue;
+
+                    final int previousMemoryUsage = section.estimatedMemoryUsage();
+                    if (section.compress()) {
+                        memoryUsage += section.estimatedMemoryUsage() - previousMemoryUsage;
+                        compressedSectionCount++;
+                    }
+                }
+            }
+        }
+
+        this.chunkMemoryUsage = memoryUsage;
+        this.compressedSectionCount = compressedSectionCount;
+    }
+
+    private void discardQueuedBlockChanges(final int chunkX, final int chunkZ) {
+        if (!this.queuedBlockChanges.isEmpty()) {
+            for (int sectionY = this.minY >> 4; sectionY < (this.minY + this.worldHeight) >> 4; sectionY++) {
+                this.queuedBlockChanges.remove(sectionKey(chunkX, sectionY, chunkZ));
+            }
+        }
+        if (!this.queuedBlockEntities.isEmpty()) {
+            this.queuedBlockEntities.keySet().removeIf(position -> position.x() >> 4 == chunkX && position.z() >> 4 == chunkZ);
+        }
+    }
+
+    private static long sectionKey(final int chunkX, final int sectionY, final int chunkZ) {
+        return (chunkX & 0x3FFFFFL) << 42 | (chunkZ & 0x3FFFFFL) << 20 | (sectionY & 0xFFFL);
+    }
+
+    private BorderLight createBorderLight(final int chunkX, final int chunkZ, final int sectionCount) {
+        final ChunkLight[] neighbours = new ChunkLight[4];
+        neighbours[ChunkLight.NORTH] = this.getCalculatedLight(chunkX, chunkZ - 1);
+        neighbours[ChunkLight.SOUTH] = this.getCalculatedLight(chunkX, chunkZ + 1);
+        neighbours[ChunkLight.WEST] = this.getCalculatedLight(chunkX - 1, chunkZ);
+        neighbours[ChunkLight.EAST] = this.getCalculatedLight(chunkX + 1, chunkZ);
+        return BorderLight.of(neighbours, sectionCount);
+    }
+
+    private ChunkLight getCalculatedLight(final int chunkX, final int chunkZ) {
+        final BedrockChunk chunk = this.chunks.get(ChunkPosition.chunkKey(chunkX, chunkZ));
+        if (chunk == null || chunk.getLight() == null || !chunk.getLight().isCalculated()) {
+            return null;
+        }
+        return chunk.getLight();
+    }
+
+    /**
+     * Recalculates the light of the neighbour chunk on the given side in the next tick, because the light at the edge of this chunk changed.
+     */
+    private void markNeighbourLightDirty(final int chunkX, final int chunkZ, final int side) {
+        final int neighbourX = chunkX + (side == ChunkLight.WEST ? -1 : side == ChunkLight.EAST ? 1 : 0);
+        final int neighbourZ = chunkZ + (side == ChunkLight.NORTH ? -1 : side == ChunkLight.SOUTH ? 1 : 0);
+        final long neighbourKey = ChunkPosition.chunkKey(neighbourX, neighbourZ);
+        final BedrockChunk neighbour = this.chunks.get(neighbourKey);
+        if (neighbour == null || neighbour.getLight() == null) return; // Not sent yet, it is lit when it is sent
+
+        this.lightDirtyChunks.add(neighbourKey);
+        this.lightDirtyBlocks.remove(neighbourKey);
+    }
+
+    private void markLightDirty(final BedrockChunkSection section, final BlockPosition blockPosition) {
+        final long chunkKey = ChunkPosition.chunkKey(blockPosition.x() >> 4, blockPosition.z() >> 4);
+        if (this.lightDirtyChunks.contains(chunkKey)) return; // The whole chunk is relit anyway
+
+        final int index = (blockPosition.y() - this.minY) << 8 | (blockPosition.z() & 15) << 4 | (blockPosition.x() & 15);
+        final LightInput lightInput = this.lightInputs.get(chunkKey);
+        if (lightInput != null) {
+            this.updateLightInput(lightInput, section, index);
+        }
+
+        final IntList changedBlocks = this.lightDirtyBlocks.computeIfAbsent(chunkKey, k -> new IntArrayList());
+        changedBlocks.add(index);
+        if (changedBlocks.size() > MAX_INCREMENTAL_LIGHT_UPDATES) {
+            this.lightDirtyBlocks.remove(chunkKey);
+            this.lightDirtyChunks.add(chunkKey);
+        }
+    }
+
+    private LightInput createLightInput(final BedrockChunk chunk) {
+        final int blockCount = chunk.getSections().length << 12;
+        final LightInput lightInput = new LightInput(new byte[blockCount], new byte[blockCount]);
+        this.fillLightInput(chunk, lightInput.opacities(), lightInput.emissions());
+        return lightInput;
+    }
+
+    private void updateLightInput(final LightInput lightInput, final BedrockChunkSection section, final int index) {
         final BlockStateRewriter blockStateRewriter = this.user().get(BlockStateRewriter.class);
-        final int airId = this.airId();
+        final int x = index & 15;
+        final int y = (index >> 8) & 15;
+        final int z = (index >> 4) & 15;
 
-        final Chunk remappedChunk = new Chunk1_18(chunk.getX(), chunk.getZ(), new ChunkSection[chunk.getSections().length], new CompoundTag(), new ArrayList<>());
+        byte opacity = 0;
+        byte emission = 0;
+        final List<DataPalette> blockPalettes = section.palettes(PaletteType.BLOCKS);
+        if (!blockPalettes.isEmpty()) {
+            final int blockState = blockPalettes.get(0).idAt(x, y, z);
+            final int javaBlockState = blockStateRewriter.javaId(blockState);
+            if (javaBlockState != -1) {
+                opacity = BedrockProtocol.MAPPINGS.getJavaBlockStateLightOpacities()[javaBlockState];
+                emission = BedrockProtocol.MAPPINGS.getJavaBlockStateLightEmissions()[javaBlockState];
+            }
+            if (opacity == 0 && blockPalettes.size() > 1 && blockState != this.airId() && BlockStateRewriter.TAG_WATER.equals(blockStateRewriter.tag(blockPalettes.get(1).idAt(x, y, z)))) { // Waterlogging
+                opacity = 1;
+            }
+        }
+        lightInput.opacities()[index] = opacity;
+        lightInput.emissions()[index] = emission;
+    }
+
+    private void fillLightInput(final BedrockChunk chunk, final byte[] opacities, final byte[] emissions) {
+        final BlockStateRewriter blockStateRewriter = this.user().get(BlockStateRewriter.class);
+        final byte[] javaLightOpacities = BedrockProtocol.MAPPINGS.getJavaBlockStateLightOpacities();
+        final byte[] javaLightEmissions = BedrockProtocol.MAPPINGS.getJavaBlockStateLightEmissions();
+        final int airId = this.airId();
 
         final BedrockChunkSection[] bedrockSections = chunk.getSections();
-        final ChunkSection[] remappedSections = remappedChunk.getSections();
         for (int idx = 0; idx < bedrockSections.length; idx++) {
-            final BedrockChunkSection bedrockSection = bedrockSections[idx];
-            final List<DataPalette> blockPalettes = bedrockSection.palettes(PaletteType.BLOCKS);
-            final ChunkSection remappedSection = remappedSections[idx] = new ChunkSectionImpl(false);
-            final DataPalette remappedBlockPalette = remappedSection.palette(PaletteType.BLOCKS);
-
-            if (!blockPalettes.isEmpty()) {
-                final DataPalette layer0 = blockPalettes.get(0);
-                if (layer0.size() == 1) {
-                    remappedBlockPalette.addId(layer0.idByIndex(0));
-                } else {
-                    this.transferPaletteData(layer0, remappedBlockPalette);
+            final List<DataPalette> blockPalettes = bedrockSections[idx].palettes(PaletteType.BLOCKS);
+            if (blockPalettes.isEmpty()) continue;
+            final int offset = idx << 12;
+
+            final DataPalette layer0 = blockPalettes.get(0);
+            final byte[] paletteOpacities = new byte[layer0.size()];
+            final byte[] paletteEmissions = new byte[layer0.size()];
+            for (int i = 0; i < layer0.size(); i++) {
+                final int javaBlockState = blockStateRewriter.javaId(layer0.idByIndex(i));
+                if (javaBlockState == -1) continue;
+                paletteOpacities[i] = javaLightOpacities[javaBlockState];
+                paletteEmissions[i] = javaLightEmissions[javaBlockState];
+            }
+
+            if (layer0.size() == 1) {
+                Arrays.fill(opacities, offset, offset + 4096, paletteOpacities[0]);
+                Arrays.fill(emissions, offset, offset + 4096, paletteEmissions[0]);
+            } else {
+                for (int x = 0; x < 16; x++) {
+                    for (int z = 0; z < 16; z++) {
+                        for (int y = 0; y < 16; y++) {
+                            final int paletteIndex = layer0.paletteIndexAt(layer0.index(x, y, z));
+                            final int index = offset | y << 8 | z << 4 | x;
+                            opacities[index] = paletteOpacities[paletteIndex];
+                            emissions[index] = paletteEmissions[paletteIndex];
+                        }
+                    }
                 }
+            }
 
-                final String[] paletteIndexBlockStateTags = new String[remappedBlockPalette.size()];
-                for (int i = 0; i < remappedBlockPalette.size(); i++) {
-                    final int bedrockBlockState = remappedBlockPalette.idByIndex(i);
-                    int javaBlockState = blockStateRewriter.javaId(bedrockBlockState);
-                    if (javaBlockState == -1) {
-                        ViaBedrock.getPlatform().getLogger().log(Level.WARNING, "Missing block state: " + bedrockBlockState);
-                        javaBlockState = 0;
+            if (blockPalettes.size() > 1) {
+                final DataPalette layer1 = blockPalettes.get(1);
+                if (layer1.size() != 1 || layer1.idByIndex(0) != airId) {
+                    for (int x = 0; x < 16; x++) {
+                        for (int z = 0; z < 16; z++) {
+                            for (int y = 0; y < 16; y++) {
+                                final int index = offset | y << 8 | z << 4 | x;
+                                if (opacities[index] == 0 && layer0.idAt(x, y, z) != airId && BlockStateRewriter.TAG_WATER.equals(blockStateRewriter.tag(layer1.idAt(x, y, z)))) { // Waterlogging
+                                    opacities[index] = 1;
+                                }
+                            }
+                        }
                     }
-                    remappedBlockPalette.setIdByIndex(i, javaBlockState);
+                }
+            }
+        }
+    }
+
+    private boolean hasDifferentLightProperties(final int bedrockBlockState1, final int bedrockBlockState2) {
+        final BlockStateRewriter blockStateRewriter = this.user().get(BlockStateRewriter.class);
+        final int javaBlockState1 = Math.max(0, blockStateRewriter.javaId(bedrockBlockState1));
+        final int javaBlockState2 = Math.max(0, blockStateRewriter.javaId(bedrockBlockState2));
+        final byte[] javaLightOpacities = BedrockProtocol.MAPPINGS.getJavaBlockStateLightOpacities();
+        final byte[] javaLightEmissions = BedrockProtocol.MAPPINGS.getJavaBlockStateLightEmissions();
+        return javaLightOpacities[javaBlockState1] != javaLightOpacities[javaBlockState2] || javaLightEmissions[javaBlockState1] != javaLightEmissions[javaBlockState2];
+    }
+
+    private void writeLightData(final PacketWrapper wrapper, final ChunkLight light, final BitSet skyLightSections, final BitSet blockLightSections) {
+        final BitSet skyLightMask = new BitSet();
+        final BitSet emptySkyLightMask = new BitSet();
+        final BitSet blockLightMask = new BitSet();
+        final BitSet emptyBlockLightMask = new BitSet();
+        for (int i = skyLightSections.nextSetBit(0); i >= 0; i = skyLightSections.nextSetBit(i + 1)) {
+            (light.skyLight(i) != null ? skyLightMask : emptySkyLightMask).set(i);
+        }
+        for (int i = blockLightSections.nextSetBit(0); i >= 0; i = blockLightSections.nextSetBit(i + 1)) {
+            (light.blockLight(i) != null ? blockLightMask : emptyBlockLightMask).set(i);
+        }
+
+        wrapper.write(Types.LONG_ARRAY_PRIMITIVE, skyLightMask.toLongArray()); // sky light mask
+        wrapper.write(Types.LONG_ARRAY_PRIMITIVE, blockLightMask.toLongArray()); // block light mask
+        wrapper.write(Types.LONG_ARRAY_PRIMITIVE, emptySkyLightMask.toLongArray()); // empty sky light mask
+        wrapper.write(Types.LONG_ARRAY_PRIMITIVE, emptyBlockLightMask.toLongArray()); // empty block light mask
+        wrapper.write(Types.VAR_INT, skyLightMask.cardinality()); // sky light length
+        for (int i = skyLightMask.nextSetBit(0); i >= 0; i = skyLightMask.nextSetBit(i + 1)) {
+            wrapper.write(Types.BYTE_ARRAY_PRIMITIVE, light.skyLight(i)); // sky light
+        }
+        wrapper.write(Types.VAR_INT, blockLightMask.cardinality()); // block light length
+        for (int i = blockLightMask.nextSetBit(0); i >= 0; i = blockLightMask.nextSetBit(i + 1)) {
+            wrapper.write(Types.BYTE_ARRAY_PRIMITIVE, light.blockLight(i)); // block light
+        }
+    }
+
+    private ChunkSection remapSection(final BedrockChunk chunk, final int idx, final List<BlockEntity> javaBlockEntities) {
+        final BlockStateRewriter blockStateRewriter = this.user().get(BlockStateRewriter.class);
+        final int airId = this.airId();
+        final BedrockChunkSection bedrockSection = chunk.getSections()[idx];
+        final List<DataPalette> blockPalettes = bedrockSection.palettes(PaletteType.BLOCKS);
+        final ChunkSection remappedSection = new ChunkSectionImpl(false);
+        final DataPalette remappedBlockPalette = remappedSection.palette(PaletteType.BLOCKS);
+
+        if (!blockPalettes.isEmpty()) {
+            final DataPalette layer0 = blockPalettes.get(0);
+            if (layer0.size() == 1) {
+                remappedBlockPalette.addId(layer0.idByIndex(0));
+            } else {
+                this.transferPaletteData(layer0, remappedBlockPalette);
+            }
 
-                    paletteIndexBlockStateTags[i] = blockStateRewriter.tag(bedrockBlockState);
+            final String[] paletteIndexBlockStateTags = new String[remappedBlockPalette.size()];
+            for (int i = 0; i < remappedBlockPalette.size(); i++) {
+                final int bedrockBlockState = remappedBlockPalette.idByIndex(i);
+                int javaBlockState = blockStateRewriter.javaId(bedrockBlockState);
+                if (javaBlockState == -1) {
+                    ViaBedrock.getPlatform().getLogger().log(Level.WARNING, "Missing block state: " + bedrockBlockState);
+                    javaBlockState = 0;
                 }
+                remappedBlockPalette.setIdByIndex(i, javaBlockState);
 
-                int nonAirBlockCount = 0;
-                for (int x = 0; x < 16; x++) {
-                    for (int z = 0; z < 16; z++) {
-                        for (int y = 0; y < 16; y++) {
-                            final int paletteIndex = remappedBlockPalette.paletteIndexAt(remappedBlockPalette.index(x, y, z));
-                            final int javaBlockState = remappedBlockPalette.idByIndex(paletteIndex);
-                            if (javaBlockState != 0) {
-                                nonAirBlockCount++;
-                            }
+                paletteIndexBlockStateTags[i] = blockStateRewriter.tag(bedrockBlockState);
+            }
 
-                            final String tag = paletteIndexBlockStateTags[paletteIndex];
-                            if (tag == null) continue;
-
-                            final int absY = this.minY + idx * 16 + y;
-                            final BlockPosition position = new BlockPosition(chunk.getX() * 16 + x, absY, chunk.getZ() * 16 + z);
-                            if (BlockEntityRewriter.isJavaBlockEntity(tag)) {
-                                final BedrockBlockEntity bedrockBlockEntity = chunk.getBlockEntityAt(position);
-                                if (bedrockBlockEntity != null) {
-                                    final BlockEntity javaBlockEntity = BlockEntityRewriter.toJava(this.user(), layer0.idAt(x, y, z), bedrockBlockEntity);
-                                    if (javaBlockEntity instanceof BlockEntityWithBlockState blockEntityWithBlockState) {
-                                        remappedBlockPalette.setIdAt(x, y, z, blockEntityWithBlockState.blockState());
-                                    }
-                                    if (javaBlockEntity != null && javaBlockEntity.tag() != null) {
-                                        remappedChunk.blockEntities().add(javaBlockEntity);
-                                    }
-                                } else if (BedrockProtocol.MAPPINGS.getJavaBlockEntities().containsKey(tag)) {
-                                    final int javaType = BedrockProtocol.MAPPINGS.getJavaBlockEntities().get(tag);
-                                    final BlockEntity javaBlockEntity = new BlockEntityImpl(BlockEntity.pack(x, z), (short) absY, javaType, new CompoundTag());
-                                    remappedChunk.blockEntities().add(javaBlockEntity);
+            int nonAirBlockCount = 0;
+            for (int x = 0; x < 16; x++) {
+                for (int z = 0; z < 16; z++) {
+                    for (int y = 0; y < 16; y++) {
+                        final int paletteIndex = remappedBlockPalette.paletteIndexAt(remappedBlockPalette.index(x, y, z));
+                        final int javaBlockState = remappedBlockPalette.idByIndex(paletteIndex);
+                        if (javaBlockState != 0) {
+                            nonAirBlockCount++;
+                        }
+
+                        final String tag = paletteIndexBlockStateTags[paletteIndex];
+                        if (tag == null) continue;
+
+                        final int absY = this.minY + idx * 16 + y;
+                        final BlockPosition position = new BlockPosition(chunk.getX() * 16 + x, absY, chunk.getZ() * 16 + z);
+                        if (BlockEntityRewriter.isJavaBlockEntity(tag)) {
+                            final BedrockBlockEntity bedrockBlockEntity = chunk.getBlockEntityAt(position);
+                            if (bedrockBlockEntity != null) {
+                                final BlockEntity javaBlockEntity = BlockEntityRewriter.toJava(this.user(), layer0.idAt(x, y, z), bedrockBlockEntity);
+                                if (javaBlockEntity instanceof BlockEntityWithBlockState blockEntityWithBlockState) {
+                                    remappedBlockPalette.setIdAt(x, y, z, blockEntityWithBlockState.blockState());
+                                }
+                                if (javaBlockEntity != null && javaBlockEntity.tag() != null) {
+                                    javaBlockEntities.add(javaBlockEntity);
                                 }
-                            } else if (BlockStateRewriter.TAG_ITEM_FRAME.equals(tag)) {
-                                this.user().get(EntityTracker.class).spawnItemFrame(position, blockStateRewriter.blockState(layer0.idAt(x, y, z)));
+                            } else if (BedrockProtocol.MAPPINGS.getJavaBlockEntities().containsKey(tag)) {
+                                final int javaType = BedrockProtocol.MAPPINGS.getJavaBlockEntities().get(tag);
+                                final BlockEntity javaBlockEntity = new BlockEntityImpl(BlockEntity.pack(x, z), (short) absY, javaType, new CompoundTag());
+                                javaBlockEntities.add(javaBlockEntity);
                             }
+                        } else if (BlockStateRewriter.TAG_ITEM_FRAME.equals(tag)) {
+                            this.user().get(EntityTracker.class).spawnItemFrame(position, blockStateRewriter.blockState(layer0.idAt(x, y, z)));
                         }
                     }
                 }
-                remappedSection.setNonAirBlocksCount(nonAirBlockCount);
-
-                if (blockPalettes.size() > 1) {
-                    final DataPalette layer1 = blockPalettes.get(1);
-                    if (layer1.size() != 1 || layer1.idByIndex(0) != airId) {
-                        for (int x = 0; x < 16; x++) {
-                            for (int z = 0; z < 16; z++) {
-                                for (int y = 0; y < 16; y++) {
-                                    final int prevBlockState = layer0.idAt(x, y, z);
-                                    if (prevBlockState == airId) continue;
-                                    final int blockState = layer1.idAt(x, y, z);
-                                    if (blockState == airId) continue;
-                                    final int javaBlockState = remappedBlockPalette.idAt(x, y, z);
-
-                                    if (BlockStateRewriter.TAG_WATER.equals(blockStateRewriter.tag(blockState))) { // Waterlogging
-                                        final int remappedBlockState = blockStateRewriter.waterlog(javaBlockState);
-                                        if (remappedBlockState == -1) {
-                                            ViaBedrock.getPlatform().getLogger().log(Level.WARNING, "Missing waterlogged block state: " + prevBlockState);
-                                        } else {
-                                            remappedBlockPalette.setIdAt(x, y, z, remappedBlockState);
-                                        }
+            }
+            remappedSection.setNonAirBlocksCount(nonAirBlockCount);
+
+            if (blockPalettes.size() > 1) {
+                final DataPalette layer1 = blockPalettes.get(1);
+                if (layer1.size() != 1 || layer1.idByIndex(0) != airId) {
+                    for (int x = 0; x < 16; x++) {
+                        for (int z = 0; z < 16; z++) {
+                            for (int y = 0; y < 16; y++) {
+                                final int prevBlockState = layer0.idAt(x, y, z);
+                                if (prevBlockState == airId) continue;
+                                final int blockState = layer1.idAt(x, y, z);
+                                if (blockState == airId) continue;
+                                final int javaBlockState = remappedBlockPalette.idAt(x, y, z);
+
+                                if (BlockStateRewriter.TAG_WATER.equals(blockStateRewriter.tag(blockState))) { // Waterlogging
+                                    final int remappedBlockState = blockStateRewriter.waterlog(javaBlockState);
+                                    if (remappedBlockState == -1) {
+                                        ViaBedrock.getPlatform().getLogger().log(Level.WARNING, "Missing waterlogged block state: " + prevBlockState);
                                     } else {
-                                        ViaBedrock.getPlatform().getLogger().log(Level.WARNING, "Invalid layer 2 block state. L1: " + prevBlockState + ", L2: " + blockState);
+                                        remappedBlockPalette.setIdAt(x, y, z, remappedBlockState);
                                     }
+                                } else {
+                                    ViaBedrock.getPlatform().getLogger().log(Level.WARNING, "Invalid layer 2 block state. L1: " + prevBlockState + ", L2: " + blockState);
                                 }
                             }
                         }
                     }
                 }
-            } else {
-                remappedBlockPalette.addId(0);
             }
+        } else {
+            remappedBlockPalette.addId(0);
+        }
 
-            final DataPalette biomePalette = bedrockSection.palette(PaletteType.BIOMES);
-            final DataPalette remappedBiomePalette = new DataPaletteImpl(ChunkSection.BIOME_SIZE);
-            remappedSection.addPalette(PaletteType.BIOMES, remappedBiomePalette);
+        final DataPalette biomePalette = bedrockSection.palette(PaletteType.BIOMES);
+        final DataPalette remappedBiomePalette = new DataPaletteImpl(ChunkSection.BIOME_SIZE);
+        remappedSection.addPalette(PaletteType.BIOMES, remappedBiomePalette);
 
-            if (biomePalette != null) {
-                if (biomePalette.size() == 1) {
-                    remappedBiomePalette.addId(biomePalette.idByIndex(0));
-                } else {
-                    for (int x = 0; x < 4; x++) {
-                        for (int z = 0; z < 4; z++) {
-                            for (int y = 0; y < 4; y++) {
-                                final Int2IntMap subBiomes = new Int2IntOpenHashMap();
-                                int maxBiomeId = -1;
-                                int maxValue = -1;
-                                for (int subX = 0; subX < 4; subX++) {
-                                    for (int subZ = 0; subZ < 4; subZ++) {
-                                        for (int subY = 0; subY < 4; subY++) {
-                                            final int biomeId = biomePalette.idAt(x * 4 + subX, y * 4 + subY, z * 4 + subZ);
-                                            final int value = subBiomes.getOrDefault(biomeId, 0) + 1;
-                                            subBiomes.put(biomeId, value);
-                                            if (value > maxValue) {
-                                                maxBiomeId = biomeId;
-                                                maxValue = value;
-                                            }
+        if (biomePalette != null) {
+            if (biomePalette.size() == 1) {
+                remappedBiomePalette.addId(biomePalette.idByIndex(0));
+            } else {
+                for (int x = 0; x < 4; x++) {
+                    for (int z = 0; z < 4; z++) {
+                        for (int y = 0; y < 4; y++) {
+                            final Int2IntMap subBiomes = new Int2IntOpenHashMap();
+                            int maxBiomeId = -1;
+                            int maxValue = -1;
+                            for (int subX = 0; subX < 4; subX++) {
+                                for (int subZ = 0; subZ < 4; subZ++) {
+                                    for (int subY = 0; subY < 4; subY++) {
+                                        final int biomeId = biomePalette.idAt(x * 4 + subX, y * 4 + subY, z * 4 + subZ);
+                                        final int value = subBiomes.getOrDefault(biomeId, 0) + 1;
+                                        subBiomes.put(biomeId, value);
+                                        if (value > maxValue) {
+                                            maxBiomeId = biomeId;
+                                            maxValue = value;
                                         }
                                     }
                                 }
-                                remappedBiomePalette.setIdAt(x, y, z, maxBiomeId);
                             }
+                            remappedBiomePalette.setIdAt(x, y, z, maxBiomeId);
                         }
                     }
                 }
+            }
 
-                for (int i = 0; i < remappedBiomePalette.size(); i++) {
-                    final int bedrockBiome = remappedBiomePalette.idByIndex(i);
-                    final String bedrockBiomeName = BedrockProtocol.MAPPINGS.getBedrockBiomes().inverse().get(bedrockBiome);
-                    final int javaBiome;
-                    if (bedrockBiomeName == null) {
-                        ViaBedrock.getPlatform().getLogger().log(Level.WARNING, "Missing biome: " + bedrockBiome);
-                        javaBiome = BedrockProtocol.MAPPINGS.getJavaBiomes().get("the_void");
-                    } else {
-                        javaBiome = BedrockProtocol.MAPPINGS.getJavaBiomes().get(bedrockBiomeName);
-                    }
-                    remappedBiomePalette.setIdByIndex(i, javaBiome);
+            for (int i = 0; i < remappedBiomePalette.size(); i++) {
+                final int bedrockBiome = remappedBiomePalette.idByIndex(i);
+                final String bedrockBiomeName = BedrockProtocol.MAPPINGS.getBedrockBiomes().inverse().get(bedrockBiome);
+                final int javaBiome;
+                if (bedrockBiomeName == null) {
+                    ViaBedrock.getPlatform().getLogger().log(Level.WARNING, "Missing biome: " + bedrockBiome);
+                    javaBiome = BedrockProtocol.MAPPINGS.getJavaBiomes().get("the_void");
+                } else {
+                    javaBiome = BedrockProtocol.MAPPINGS.getJavaBiomes().get(bedrockBiomeName);
                 }
-            } else {
-                remappedBiomePalette.addId(0);
+                remappedBiomePalette.setIdByIndex(i, javaBiome);
             }
+        } else {
+            remappedBiomePalette.addId(0);
+        }
+
+        return remappedSection;
+    }
+
+    private Chunk remapChunk(final BedrockChunk chunk) {
+        final Chunk remappedChunk = new Chunk1_18(chunk.getX(), chunk.getZ(), new ChunkSection[chunk.getSections().length], new CompoundTag(), new ArrayList<>());
+
+        final BedrockChunkSection[] bedrockSections = chunk.getSections();
+        final ChunkSection[] remappedSections = remappedChunk.getSections();
+        for (int idx = 0; idx < bedrockSections.length; idx++) {
+            remappedSections[idx] = this.remapSection(chunk, idx, remappedChunk.blockEntities());
         }
 
         final IntSet motionBlockingBlockStates = BedrockProtocol.MAPPINGS.getJavaHeightMapBlockStates().get("motion_blocking");
@@ -706,6 +1299,29 @@ public class ChunkTracker extends StoredObject {
      * @param target The target palette
      */
     private void transferPaletteData(final DataPalette source, final DataPalette target) {
+        if (source instanceof BedrockDataPalette bedrockPalette && bedrockPalette.getBitArray().getVersion() != BitArrayVersion.V0 && !(target instanceof BedrockDataPalette)) {
+            // Decode the palette indices in bulk and only resolve each source palette entry once
+            final int[] paletteIndices = new int[ChunkSection.SIZE];
+            bedrockPalette.getBitArray().decodeAll(paletteIndices);
+            final int[] targetPaletteIndices = new int[source.size()];
+            Arrays.fill(targetPaletteIndices, -1);
+            for (int x = 0; x < 16; x++) {
+                for (int y = 0; y < 16; y++) {
+                    for (int z = 0; z < 16; z++) {
+                        final int paletteIndex = paletteIndices[source.index(x, y, z)];
+                        final int targetIndex = target.index(x, y, z);
+                        if (targetPaletteIndices[paletteIndex] == -1) {
+                            target.setIdAt(targetIndex, source.idByIndex(paletteIndex));
+                            targetPaletteIndices[paletteIndex] = target.paletteIndexAt(targetIndex);
+                        } else {
+                            target.setPaletteIndexAt(targetIndex, targetPaletteIndices[paletteIndex]);
+                        }
+                    }
+                }
+            }
+            return;
+        }
+
         for (int x = 0; x < 16; x++) {
             for (int y = 0; y < 16; y++) {
                 for (int z = 0; z < 16; z++) {
@@ -715,7 +1331,25 @@ public class ChunkTracker extends StoredObject {
         }
     }
 
+    private record LightInput(byte[] opacities, byte[] emissions) {
+    }
+
     private record SubChunkPosition(int chunkX, int subChunkY, int chunkZ) {
+
+        /**
+         * Lower values are requested first. Sub chunks in front of the player are preferred over sub chunks behind the player at the same distance.
+         */
+        private double requestPriority(final double eyeX, final double eyeY, final double eyeZ, final double lookX, final double lookY, final double lookZ) {
+            final double dx = this.chunkX * 16 + 8 - eyeX;
+            final double dy = this.subChunkY * 16 + 8 - eyeY;
+            final double dz = this.chunkZ * 16 + 8 - eyeZ;
+            final double distance = Math.sqrt(dx * dx + dy * dy + dz * dz);
+            if (distance < 16) return distance;
+
+            final double viewDot = (dx * lookX + dy * lookY + dz * lookZ) / distance;
+            return distance * (1.25D - viewDot * 0.25D);
+        }
+
     }
 
 }
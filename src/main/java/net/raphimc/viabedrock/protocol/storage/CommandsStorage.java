@@ -17,6 +17,8 @@
  */
 package net.raphimc.viabedrock.protocol.storage;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Iterables;
 import com.mojang.brigadier.Command;
 import com.mojang.brigadier.CommandDispatcher;
@@ -29,6 +31,8 @@ import com.mojang.brigadier.arguments.StringArgumentType;
 import com.mojang.brigadier.builder.ArgumentBuilder;
 import com.mojang.brigadier.builder.LiteralArgumentBuilder;
 import com.mojang.brigadier.builder.RequiredArgumentBuilder;
+import com.mojang.brigadier.context.CommandContextBuilder;
+import com.mojang.brigadier.context.ParsedArgument;
 import com.mojang.brigadier.suggestion.Suggestions;
 import com.mojang.brigadier.tree.ArgumentCommandNode;
 import com.mojang.brigadier.tree.CommandNode;
@@ -44,6 +48,7 @@ import net.lenni0451.mcstructs_bedrock.text.utils.BedrockTranslator;
 import net.lenni0451.mcstructs_bedrock.text.utils.TranslatorOptions;
 import net.raphimc.viabedrock.ViaBedrock;
 import net.raphimc.viabedrock.api.brigadier.*;
+import net.raphimc.viabedrock.api.util.FNV1;
 import net.raphimc.viabedrock.api.util.PacketFactory;
 import net.raphimc.viabedrock.api.util.TextUtil;
 import net.raphimc.viabedrock.protocol.BedrockProtocol;
@@ -54,7 +59,9 @@ import net.raphimc.viabedrock.protocol.data.enums.bedrock.CommandParameterOption
 import net.raphimc.viabedrock.protocol.data.enums.bedrock.CommandPermissionLevel;
 import net.raphimc.viabedrock.protocol.model.CommandData;
 
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
 import java.util.function.Function;
 import java.util.logging.Level;
 
@@ -74,14 +81,20 @@ public class CommandsStorage extends StoredObject {
     private static final Command<UserConnection> ALLOW_SEND = cmd -> RESULT_ALLOW_SEND;
     private static final Command<UserConnection> NOOP = cmd -> RESULT_NO_OP;
 
+    // Command trees are shared between all connections which received structurally identical commands
+    private static final Cache<CommandTreeKey, CommandTree> SHARED_TREES = CacheBuilder.newBuilder().weakValues().build();
+
     private final CommandData[] commands;
+    private final long commandsHash;
     private final Map<String, CommandData.EnumData> softEnumMap = new HashMap<>();
-    private CommandDispatcher<UserConnection> dispatcher;
+    private CommandTree tree;
+    private CommandTree sentTree;
 
     public CommandsStorage(final UserConnection user, final CommandData[] commands) {
         super(user);
 
         this.commands = commands;
+        this.commandsHash = hash(commands);
         for (CommandData command : this.commands) {
             for (CommandData.OverloadData overload : command.overloads()) {
                 for (CommandData.OverloadData.ParamData parameter : overload.parameters()) {
@@ -94,18 +107,35 @@ public class CommandsStorage extends StoredObject {
     }
 
     public void updateCommandTree() {
+        if (this.resolveCommandTree() == this.sentTree) return; // The java client already has this tree
+
         final PacketWrapper commands = PacketWrapper.create(ClientboundPackets1_21.COMMANDS, this.user());
         this.writeCommandTree(commands);
         commands.send(BedrockProtocol.class);
     }
 
+    /**
+     * @return true if the previous storage already sent the same command tree to the java client
+     */
+    public boolean inheritSentCommandTree(final CommandsStorage previous) {
+        if (previous.sentTree != null && previous.sentTree == this.resolveCommandTree()) {
+            this.sentTree = previous.sentTree;
+            return true;
+        }
+        return false;
+    }
+
+    public void clearSentCommandTree() {
+        this.sentTree = null;
+    }
+
     public void writeCommandTree(final PacketWrapper wrapper) {
-        this.buildCommandTree();
+        final CommandTree tree = this.resolveCommandTree();
+        this.sentTree = tree;
 
-        final RootCommandNode<UserConnection> root = this.dispatcher.getRoot();
-        final Map<CommandNode<UserConnection>, Integer> nodeIndices = this.getNodeIndices(root);
-        final List<CommandNode<UserConnection>> nodes = new ArrayList<>(nodeIndices.keySet());
-        nodes.sort(Comparator.comparingInt(nodeIndices::get));
+        final RootCommandNode<UserConnection> root = tree.dispatcher().getRoot();
+        final Map<CommandNode<UserConnection>, Integer> nodeIndices = tree.nodeIndices();
+        final List<CommandNode<UserConnection>> nodes = tree.nodes();
 
         wrapper.write(Types.VAR_INT, nodes.size()); // node count
         for (CommandNode<UserConnection> node : nodes) {
@@ -156,8 +186,9 @@ public class CommandsStorage extends StoredObject {
         if (reader.canRead() && reader.peek() == '/') {
             reader.skip();
         }
-        final ParseResults<UserConnection> parseResults = this.dispatcher.parse(reader, this.user());
-        return this.dispatcher.getCompletionSuggestions(parseResults).join();
+        final CommandDispatcher<UserConnection> dispatcher = this.resolveCommandTree().dispatcher();
+        final ParseResults<UserConnection> parseResults = dispatcher.parse(reader, this.user());
+        return dispatcher.getCompletionSuggestions(parseResults).join();
     }
 
     public int execute(final String message) {
@@ -165,9 +196,13 @@ public class CommandsStorage extends StoredObject {
         if (reader.canRead() && reader.peek() == '/') {
             reader.skip();
         }
-        final ParseResults<UserConnection> parseResults = this.dispatcher.parse(reader, this.user());
+        final CommandDispatcher<UserConnection> dispatcher = this.resolveCommandTree().dispatcher();
+        final ParseResults<UserConnection> parseResults = dispatcher.parse(reader, this.user());
+        if (this.hasInvalidSoftEnumValue(parseResults.getContext())) { // Handled like any other invalid argument
+            return RESULT_ALLOW_SEND;
+        }
         try {
-            return this.dispatcher.execute(parseResults);
+            return dispatcher.execute(parseResults);
         } catch (Throwable ignored) {
             if (!parseResults.getContext().getNodes().isEmpty()) {
                 return RESULT_ALLOW_SEND;
@@ -181,14 +216,39 @@ public class CommandsStorage extends StoredObject {
         return this.softEnumMap.get(name);
     }
 
-    private void buildCommandTree() {
-        this.dispatcher = new CommandDispatcher<>();
-        final GameSessionStorage gameSession = this.user().get(GameSessionStorage.class);
-        final EntityTracker entityTracker = this.user().get(EntityTracker.class);
-        final byte playerCommandPermission = entityTracker.getClientPlayer().abilities().commandPermission();
-        final Command<UserConnection> action = gameSession.areCommandsEnabled() ? NOOP : ALLOW_SEND;
+    private boolean hasInvalidSoftEnumValue(CommandContextBuilder<UserConnection> context) {
+        while (context != null) {
+            for (ParsedArgument<UserConnection, ?> argument : context.getArguments().values()) {
+                if (argument.getResult() instanceof SoftEnumArgumentType.Value value && !value.isValid(this)) {
+                    return true;
+                }
+            }
+            context = context.getChild();
+        }
+        return false;
+    }
 
-        for (CommandData command : this.commands) {
+    private CommandTree resolveCommandTree() {
+        final boolean commandsEnabled = this.user().get(GameSessionStorage.class).areCommandsEnabled();
+        final byte playerCommandPermission = this.user().get(EntityTracker.class).getClientPlayer().abilities().commandPermission();
+        if (this.tree == null || this.tree.key().commandsEnabled() != commandsEnabled || this.tree.key().playerCommandPermission() != playerCommandPermission) {
+            final CommandTreeKey key = new CommandTreeKey(this.commandsHash, commandsEnabled, playerCommandPermission);
+            try {
+                this.tree = SHARED_TREES.get(key, () -> buildCommandTree(key, this.commands));
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        return this.tree;
+    }
+
+    private static CommandTree buildCommandTree(final CommandTreeKey key, final CommandData[] commands) {
+        final CommandDispatcher<UserConnection> dispatcher = new CommandDispatcher<>();
+        final boolean commandsEnabled = key.commandsEnabled();
+        final byte playerCommandPermission = key.playerCommandPermission();
+        final Command<UserConnection> action = commandsEnabled ? NOOP : ALLOW_SEND;
+
+        for (CommandData command : commands) {
             final String name = command.alias() != null ? Iterables.getFirst(command.alias().values().keySet(), null) : command.name();
             if (name == null) continue;
 
@@ -198,7 +258,7 @@ public class CommandsStorage extends StoredObject {
             if ((command.flags() & CommandFlags.HIDDEN_FROM_COMMAND_BLOCK) != 0 && (command.flags() & CommandFlags.HIDDEN_FROM_PLAYER) != 0 && (command.flags() & CommandFlags.HIDDEN_FROM_AUTOMATION) != 0) {
                 continue;
             }
-            if (!gameSession.areCommandsEnabled() && (command.flags() & CommandFlags.NOT_CHEAT) == 0) {
+            if (!commandsEnabled && (command.flags() & CommandFlags.NOT_CHEAT) == 0) {
                 continue;
             }
 
@@ -216,10 +276,12 @@ public class CommandsStorage extends StoredObject {
                         }
 
                         final ArgumentType<?> argumentType;
-                        if ((parameter.flags() & CommandParameterOption.HasSemanticConstraint.getValue()) != 0) {
+                        if (parameter.enumData().soft()) {
+                            argumentType = SoftEnumArgumentType.softEnum(parameter.enumData().name());
+                        } else if ((parameter.flags() & CommandParameterOption.HasSemanticConstraint.getValue()) != 0) {
                             final Map<String, Set<Byte>> enumDataValues = new HashMap<>(parameter.enumData().values());
                             enumDataValues.entrySet().removeIf(entry -> {
-                                if (!gameSession.areCommandsEnabled() && entry.getValue().contains(CommandEnumConstraints.CHEATS_ENABLED)) {
+                                if (!commandsEnabled && entry.getValue().contains(CommandEnumConstraints.CHEATS_ENABLED)) {
                                     return true;
                                 }
                                 if (entry.getValue().contains(CommandEnumConstraints.OPERATOR_PERMISSIONS) && playerCommandPermission < CommandPermissionLevel.GameDirectors.getValue()) {
@@ -308,7 +370,7 @@ public class CommandsStorage extends StoredObject {
                     }
 
                     if (hasRedirect) {
-                        argument.redirect(this.dispatcher.getRoot());
+                        argument.redirect(dispatcher.getRoot());
                         hasRedirect = false;
                     } else if (last != null) {
                         argument.then(last);
@@ -321,7 +383,7 @@ public class CommandsStorage extends StoredObject {
                     last = argument;
                 }
                 if (hasRedirect) {
-                    cmdBuilder.redirect(this.dispatcher.getRoot());
+                    cmdBuilder.redirect(dispatcher.getRoot());
                 } else if (last != null) {
                     cmdBuilder.then(last);
                 } else {
@@ -330,44 +392,48 @@ public class CommandsStorage extends StoredObject {
             }
 
             final LiteralCommandNode<UserConnection> node = new BedrockLiteralCommandNode<>(command, cmdBuilder.build());
-            this.dispatcher.getRoot().addChild(node);
+            dispatcher.getRoot().addChild(node);
             if (command.alias() != null && command.alias().values().size() > 1) {
                 for (String alias : command.alias().values().keySet()) {
                     if (!alias.equals(node.getName())) {
-                        this.dispatcher.register(literal(alias).redirect(node));
+                        dispatcher.register(literal(alias).redirect(node));
                     }
                 }
             }
         }
 
-        if (this.dispatcher.getRoot().getChild("help") == null) {
-            final ResourcePacksStorage resourcePacksStorage = this.user().get(ResourcePacksStorage.class);
-            final Function<String, String> translator = resourcePacksStorage.getTexts().lookup();
+        if (dispatcher.getRoot().getChild("help") == null) {
             final LiteralArgumentBuilder<UserConnection> cmdBuilder = literal("help");
             cmdBuilder.executes(cmd -> {
+                final Function<String, String> translator = cmd.getSource().get(ResourcePacksStorage.class).getTexts().lookup();
                 PacketFactory.sendJavaSystemChat(cmd.getSource(), TextUtil.stringToNbt("§c" + BedrockTranslator.translate("%commands.generic.usage", translator, new Object[]{"/help <command>"})));
                 return RESULT_CANCEL;
             });
-            cmdBuilder.then(argument("command", StringArgumentType.greedyString()).suggests((context, builder) -> SuggestionsUtil.suggestMatching(this.dispatcher.getRoot().getChildren().stream().map(c -> {
-                final String description;
-                if (c instanceof BedrockLiteralCommandNode) {
-                    description = ((BedrockLiteralCommandNode<UserConnection>) c).getCommandData().description();
-                } else if (c.getName().equals("help") || c.getName().equals("?")) {
-                    description = "commands.help.description";
-                } else {
-                    description = null;
-                }
-                return new Pair<>(c.getName(), description != null ? BedrockTranslator.translate(description, translator, new Object[0], TranslatorOptions.IGNORE_STARTING_PERCENT) : null);
-            }), builder)).executes(cmd -> {
+            cmdBuilder.then(argument("command", StringArgumentType.greedyString()).suggests((context, builder) -> {
+                final Function<String, String> translator = context.getSource().get(ResourcePacksStorage.class).getTexts().lookup();
+                return SuggestionsUtil.suggestMatching(dispatcher.getRoot().getChildren().stream().map(c -> {
+                    final String description;
+                    if (c instanceof BedrockLiteralCommandNode) {
+                        description = ((BedrockLiteralCommandNode<UserConnection>) c).getCommandData().description();
+                    } else if (c.getName().equals("help") || c.getName().equals("?")) {
+                        description = "commands.help.description";
+                    } else {
+                        description = null;
+                    }
+                    return new Pair<>(c.getName(), description != null ? BedrockTranslator.translate(description, translator, new Object[0], TranslatorOptions.IGNORE_STARTING_PERCENT) : null);
+                }), builder);
+            }).executes(cmd -> {
+                final ResourcePacksStorage resourcePacksStorage = cmd.getSource().get(ResourcePacksStorage.class);
+                final Function<String, String> translator = resourcePacksStorage.getTexts().lookup();
                 final String commandName = StringArgumentType.getString(cmd, "command");
-                CommandNode<UserConnection> node = this.dispatcher.getRoot().getChild(commandName);
+                CommandNode<UserConnection> node = dispatcher.getRoot().getChild(commandName);
                 final List<String> lines = new ArrayList<>();
                 if (node != null) {
                     while (node.getRedirect() != null) {
                         node = node.getRedirect();
                     }
                     lines.add(resourcePacksStorage.getTexts().get("commands.generic.usage.noparam"));
-                    final String[] usage = this.dispatcher.getAllUsage(node, cmd.getSource(), true);
+                    final String[] usage = dispatcher.getAllUsage(node, cmd.getSource(), true);
                     if (usage.length == 0) {
                         lines.add("- /" + node.getName());
                     } else {
@@ -385,11 +451,16 @@ public class CommandsStorage extends StoredObject {
                 }
                 return RESULT_CANCEL;
             }));
-            this.dispatcher.register(literal("?").redirect(this.dispatcher.register(cmdBuilder)));
+            dispatcher.register(literal("?").redirect(dispatcher.register(cmdBuilder)));
         }
+
+        final Map<CommandNode<UserConnection>, Integer> nodeIndices = getNodeIndices(dispatcher.getRoot());
+        final List<CommandNode<UserConnection>> nodes = new ArrayList<>(nodeIndices.keySet());
+        nodes.sort(Comparator.comparingInt(nodeIndices::get));
+        return new CommandTree(key, dispatcher, nodeIndices, nodes);
     }
 
-    private Map<CommandNode<UserConnection>, Integer> getNodeIndices(final RootCommandNode<UserConnection> root) {
+    private static Map<CommandNode<UserConnection>, Integer> getNodeIndices(final RootCommandNode<UserConnection> root) {
         final Map<CommandNode<UserConnection>, Integer> nodes = new HashMap<>();
         final Queue<CommandNode<UserConnection>> queue = new ArrayDeque<>();
         queue.add(root);
@@ -416,4 +487,47 @@ public class CommandsStorage extends StoredObject {
         return RequiredArgumentBuilder.argument(name, type);
     }
 
+    private static long hash(final CommandData[] commands) {
+        final StringBuilder descriptor = new StringBuilder();
+        for (CommandData command : commands) {
+            descriptor.append(command.name()).append('\0').append(command.description()).append('\0').append(command.flags()).append('\0').append(command.permission()).append('\0');
+            appendEnum(descriptor, command.alias());
+            for (CommandData.OverloadData overload : command.overloads()) {
+                descriptor.append(overload.chaining()).append('\0');
+                for (CommandData.OverloadData.ParamData parameter : overload.parameters()) {
+                    descriptor.append(parameter.name()).append('\0').append(parameter.optional()).append('\0').append(parameter.flags()).append('\0').append(parameter.type()).append('\0').append(parameter.postfix()).append('\0');
+                    appendEnum(descriptor, parameter.enumData());
+                    if (parameter.subCommandData() != null) {
+                        descriptor.append(parameter.subCommandData().name()).append('\0').append(new TreeMap<>(parameter.subCommandData().values())).append('\0');
+                    }
+                    descriptor.append('\1');
+                }
+                descriptor.append('\2');
+            }
+            descriptor.append('\3');
+        }
+        return FNV1.fnv1_64(descriptor.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void appendEnum(final StringBuilder descriptor, final CommandData.EnumData enumData) {
+        if (enumData == null) {
+            descriptor.append('\0');
+            return;
+        }
+
+        descriptor.append(enumData.name()).append('\0').append(enumData.soft()).append('\0');
+        if (!enumData.soft()) { // Soft enum values are resolved per connection
+            for (Map.Entry<String, Set<Byte>> entry : new TreeMap<>(enumData.values()).entrySet()) {
+                descriptor.append(entry.getKey()).append('\0').append(new TreeSet<>(entry.getValue())).append('\0');
+            }
+        }
+        descriptor.append('\1');
+    }
+
+    private record CommandTreeKey(long commandsHash, boolean commandsEnabled, byte playerCommandPermission) {
+    }
+
+    private record CommandTree(CommandTreeKey key, CommandDispatcher<UserConnection> dispatcher, Map<CommandNode<UserConnection>, Integer> nodeIndices, List<CommandNode<UserConnection>> nodes) {
+    }
+
 }
@@ -22,13 +22,25 @@ import com.viaversion.viaversion.api.connection.UserConnection;
 import com.viaversion.viaversion.api.minecraft.BlockPosition;
 import com.viaversion.viaversion.api.minecraft.ChunkPosition;
 import com.viaversion.viaversion.api.minecraft.entities.EntityTypes1_20_5;
+import com.viaversion.viaversion.api.minecraft.entitydata.EntityData;
 import com.viaversion.viaversion.api.protocol.packet.PacketWrapper;
 import com.viaversion.viaversion.api.type.Types;
+import com.viaversion.viaversion.api.type.types.version.Types1_21;
+import com.viaversion.viaversion.libs.fastutil.ints.Int2IntMap;
+import com.viaversion.viaversion.libs.fastutil.ints.Int2IntOpenHashMap;
+import com.viaversion.viaversion.libs.fastutil.ints.Int2ObjectMap;
+import com.viaversion.viaversion.libs.fastutil.ints.Int2ObjectOpenHashMap;
+import com.viaversion.viaversion.libs.fastutil.longs.Long2ObjectMap;
+import com.viaversion.viaversion.libs.fastutil.longs.Long2ObjectOpenHashMap;
+import com.viaversion.viaversion.libs.fastutil.longs.LongArrayFIFOQueue;
 import com.viaversion.viaversion.protocols.v1_20_5to1_21.packet.ClientboundPackets1_21;
 import net.raphimc.viabedrock.ViaBedrock;
 import net.raphimc.viabedrock.api.model.BlockState;
 import net.raphimc.viabedrock.api.model.entity.*;
+import net.raphimc.viabedrock.api.util.MathUtil;
+import net.raphimc.viabedrock.api.util.PacketFactory;
 import net.raphimc.viabedrock.protocol.BedrockProtocol;
+import net.raphimc.viabedrock.protocol.model.Position3f;
 
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -36,15 +48,33 @@ import java.util.logging.Level;
 
 public class EntityTracker extends StoredObject {
 
+    /**
+     * Number of ticks a released java entity id is held back before it is reused. This prevents packets from the client which still reference the old entity from being applied to the new one.
+     */
+    private static final int JAVA_ID_REUSE_DELAY = 200;
+    private static final int EXPECTED_ENTITY_COUNT = 512;
+    private static final int INTEREST_UPDATE_INTERVAL = 10;
+    /**
+     * Additional distance an active entity has to move away before it becomes dormant again. Prevents entities at the border of the interest radius from flapping between both states.
+     */
+    private static final int INTEREST_HYSTERESIS = 8;
+
     private final AtomicInteger ID_COUNTER = new AtomicInteger(1);
+    private final LongArrayFIFOQueue releasedJavaIds = new LongArrayFIFOQueue();
+    private int tickCounter;
 
     private ClientPlayerEntity clientPlayerEntity = null;
-    private final Map<Long, Long> runtimeIdToUniqueId = new HashMap<>();
-    private final Map<Long, Entity> entities = new HashMap<>();
-    private final Map<BlockPosition, Integer> itemFrames = new HashMap<>();
+    private final Long2ObjectMap<Entity> entitiesByRid = new Long2ObjectOpenHashMap<>(EXPECTED_ENTITY_COUNT);
+    private final Long2ObjectMap<Entity> entities = new Long2ObjectOpenHashMap<>(EXPECTED_ENTITY_COUNT);
+    private final Int2ObjectMap<Entity> entitiesByJavaId = new Int2ObjectOpenHashMap<>(EXPECTED_ENTITY_COUNT);
+    private final Long2ObjectMap<Int2IntMap> itemFrames = new Long2ObjectOpenHashMap<>();
+    private final EntityUpdateBuffer updateBuffer;
+    private final int interestRadius;
 
     public EntityTracker(final UserConnection user) {
         super(user);
+        this.updateBuffer = ViaBedrock.getConfig().shouldCoalesceEntityUpdates() ? new EntityUpdateBuffer(user) : null;
+        this.interestRadius = ViaBedrock.getConfig().getEntityInterestRadius();
     }
 
     public Entity addEntity(final long uniqueId, final long runtimeId, final UUID uuid, final EntityTypes1_20_5 type) {
@@ -69,16 +99,25 @@ public class EntityTracker extends StoredObject {
             this.clientPlayerEntity = (ClientPlayerEntity) entity;
         }
 
-        if (this.runtimeIdToUniqueId.putIfAbsent(entity.runtimeId(), entity.uniqueId()) != null) {
+        if (this.entitiesByRid.putIfAbsent(entity.runtimeId(), entity) != null) {
             ViaBedrock.getPlatform().getLogger().log(Level.WARNING, "Duplicate runtime entity ID: " + entity.runtimeId());
         }
+        this.entitiesByJavaId.put(entity.javaId(), entity);
         final Entity prevEntity = this.entities.put(entity.uniqueId(), entity);
         if (prevEntity != null) {
+            if (this.entitiesByRid.get(prevEntity.runtimeId()) == prevEntity) {
+                this.entitiesByRid.put(prevEntity.runtimeId(), entity);
+            }
+            this.entitiesByJavaId.remove(prevEntity.javaId(), prevEntity);
             ViaBedrock.getPlatform().getLogger().log(Level.WARNING, "Duplicate unique entity ID: " + entity.uniqueId());
             final PacketWrapper removeEntities = PacketWrapper.create(ClientboundPackets1_21.REMOVE_ENTITIES, this.user());
             removeEntities.write(Types.VAR_INT_ARRAY_PRIMITIVE, new int[]{prevEntity.javaId()}); // entity ids
             removeEntities.send(BedrockProtocol.class);
+            if (this.updateBuffer != null) {
+                this.updateBuffer.remove(prevEntity);
+            }
             prevEntity.remove();
+            this.releaseJavaEntityId(prevEntity.javaId());
         }
 
         if (updateTeam && entity instanceof PlayerEntity player) {
@@ -93,9 +132,14 @@ public class EntityTracker extends StoredObject {
             throw new IllegalArgumentException("Cannot remove client player entity");
         }
 
-        this.runtimeIdToUniqueId.remove(entity.runtimeId());
-        this.entities.remove(entity.uniqueId());
+        this.entitiesByRid.remove(entity.runtimeId(), entity);
+        this.entities.remove(entity.uniqueId(), entity);
+        this.entitiesByJavaId.remove(entity.javaId(), entity);
+        if (this.updateBuffer != null) {
+            this.updateBuffer.remove(entity);
+        }
         entity.remove();
+        this.releaseJavaEntityId(entity.javaId());
     }
 
     public void spawnItemFrame(final BlockPosition position, final BlockState blockState) {
@@ -106,7 +150,11 @@ public class EntityTracker extends StoredObject {
         }
 
         final int javaId = this.getNextJavaEntityId();
-        this.itemFrames.put(position, javaId);
+        this.itemFrames.computeIfAbsent(ChunkPosition.chunkKey(position.x() >> 4, position.z() >> 4), k -> {
+            final Int2IntMap chunkItemFrames = new Int2IntOpenHashMap();
+            chunkItemFrames.defaultReturnValue(-1);
+            return chunkItemFrames;
+        }).put(packLocalPosition(position), javaId);
 
         final PacketWrapper spawnEntity = PacketWrapper.create(ClientboundPackets1_21.ADD_ENTITY, this.user());
         spawnEntity.write(Types.VAR_INT, javaId); // entity id
@@ -126,37 +174,119 @@ public class EntityTracker extends StoredObject {
     }
 
     public int getItemFrameId(final BlockPosition position) {
-        return this.itemFrames.getOrDefault(position, -1);
+        final Int2IntMap chunkItemFrames = this.itemFrames.get(ChunkPosition.chunkKey(position.x() >> 4, position.z() >> 4));
+        if (chunkItemFrames == null) {
+            return -1;
+        }
+        return chunkItemFrames.get(packLocalPosition(position));
     }
 
     public void removeItemFrame(final BlockPosition position) {
-        final Integer javaId = this.itemFrames.remove(position);
-        if (javaId == null) {
+        final long chunkKey = ChunkPosition.chunkKey(position.x() >> 4, position.z() >> 4);
+        final Int2IntMap chunkItemFrames = this.itemFrames.get(chunkKey);
+        if (chunkItemFrames == null) {
             return;
         }
+        final int javaId = chunkItemFrames.remove(packLocalPosition(position));
+        if (javaId == -1) {
+            return;
+        }
+        if (chunkItemFrames.isEmpty()) {
+            this.itemFrames.remove(chunkKey);
+        }
 
         final PacketWrapper removeEntities = PacketWrapper.create(ClientboundPackets1_21.REMOVE_ENTITIES, this.user());
         removeEntities.write(Types.VAR_INT_ARRAY_PRIMITIVE, new int[]{javaId}); // entity ids
         removeEntities.send(BedrockProtocol.class);
+        this.releaseJavaEntityId(javaId);
     }
 
     public void removeItemFrame(final ChunkPosition chunkPos) {
-        final List<BlockPosition> toRemove = new ArrayList<>();
-        for (final Map.Entry<BlockPosition, Integer> entry : this.itemFrames.entrySet()) {
-            final BlockPosition position = entry.getKey();
-            if (position.x() >> 4 == chunkPos.chunkX() && position.z() >> 4 == chunkPos.chunkZ()) {
-                toRemove.add(position);
-            }
+        final Int2IntMap chunkItemFrames = this.itemFrames.remove(chunkPos.chunkKey());
+        if (chunkItemFrames == null || chunkItemFrames.isEmpty()) {
+            return;
         }
 
-        for (final BlockPosition position : toRemove) {
-            this.removeItemFrame(position);
+        final PacketWrapper removeEntities = PacketWrapper.create(ClientboundPackets1_21.REMOVE_ENTITIES, this.user());
+        final int[] javaIds = chunkItemFrames.values().toIntArray();
+        removeEntities.write(Types.VAR_INT_ARRAY_PRIMITIVE, javaIds); // entity ids
+        removeEntities.send(BedrockProtocol.class);
+        for (int javaId : javaIds) {
+            this.releaseJavaEntityId(javaId);
         }
     }
 
     public void tick() {
+        this.tickCounter++;
+        if (this.interestRadius > 0 && this.tickCounter % INTEREST_UPDATE_INTERVAL == 0) {
+            this.updateInterest();
+        }
         for (Entity entity : this.entities.values()) {
-            entity.tick();
+            if (entity.isDormant()) {
+                entity.tickDormant();
+            } else {
+                entity.tick();
+            }
+        }
+        if (this.updateBuffer != null) {
+            this.updateBuffer.flush();
+        }
+    }
+
+    private void updateInterest() {
+        if (this.clientPlayerEntity == null || this.clientPlayerEntity.position() == null) return;
+
+        final Position3f playerPosition = this.clientPlayerEntity.position();
+        final float activeDistanceSquared = (float) this.interestRadius * this.interestRadius;
+        final float dormantDistanceSquared = (float) (this.interestRadius + INTEREST_HYSTERESIS) * (this.interestRadius + INTEREST_HYSTERESIS);
+        for (Entity entity : this.entities.values()) {
+            if (entity == this.clientPlayerEntity || entity.position() == null) continue;
+
+            final float dx = entity.position().x() - playerPosition.x();
+            final float dy = entity.position().y() - playerPosition.y();
+            final float dz = entity.position().z() - playerPosition.z();
+            final float distanceSquared = dx * dx + dy * dy + dz * dz;
+            if (entity.isDormant() && distanceSquared <= activeDistanceSquared) {
+                entity.setDormant(false);
+                this.resyncEntity(entity);
+            } else if (!entity.isDormant() && distanceSquared > dormantDistanceSquared) {
+                entity.setDormant(true);
+                if (this.updateBuffer != null) {
+                    this.updateBuffer.remove(entity);
+                }
+            }
+        }
+    }
+
+    /**
+     * Sends the full state of an entity which got promoted from dormant to active, because all updates were dropped while it was dormant.
+     */
+    private void resyncEntity(final Entity entity) {
+        final List<EntityData> javaEntityData = new ArrayList<>();
+        entity.updateEntityData(entity.entityData().values().toArray(new EntityData[0]), javaEntityData);
+
+        if (this.updateBuffer != null) {
+            this.updateBuffer.queueMove(entity, true);
+            this.updateBuffer.queueEntityData(entity, javaEntityData);
+            return;
+        }
+
+        final PacketWrapper teleportEntity = PacketWrapper.create(ClientboundPackets1_21.TELEPORT_ENTITY, this.user());
+        teleportEntity.write(Types.VAR_INT, entity.javaId()); // entity id
+        teleportEntity.write(Types.DOUBLE, (double) entity.position().x()); // x
+        teleportEntity.write(Types.DOUBLE, (double) entity.position().y() - entity.eyeOffset()); // y
+        teleportEntity.write(Types.DOUBLE, (double) entity.position().z()); // z
+        teleportEntity.write(Types.BYTE, MathUtil.float2Byte(entity.rotation().y())); // yaw
+        teleportEntity.write(Types.BYTE, MathUtil.float2Byte(entity.rotation().x())); // pitch
+        teleportEntity.write(Types.BOOLEAN, entity.isOnGround()); // on ground
+        teleportEntity.send(BedrockProtocol.class);
+        PacketFactory.sendJavaRotateHead(this.user(), entity);
+
+        if (!javaEntityData.isEmpty()) {
+            final PacketWrapper setEntityData = PacketWrapper.create(ClientboundPackets1_21.SET_ENTITY_DATA, this.user());
+            setEntityData.write(Types.VAR_INT, entity.javaId()); // entity id
+            setEntityData.write(Types1_21.ENTITY_DATA_LIST, javaEntityData); // entity data
+            setEntityData.send(BedrockProtocol.class);
         }
     }
 
@@ -166,14 +296,25 @@ public class EntityTracker extends StoredObject {
         }
     }
 
+    /**
+     * @return The entity update buffer or null if entity updates should be sent immediately
+     */
+    public EntityUpdateBuffer getUpdateBuffer() {
+        return this.updateBuffer;
+    }
+
     public Entity getEntityByRid(final long runtimeId) {
-        return this.entities.get(this.runtimeIdToUniqueId.get(runtimeId));
+        return this.entitiesByRid.get(runtimeId);
     }
 
     public Entity getEntityByUid(final long uniqueId) {
         return this.entities.get(uniqueId);
     }
 
+    public Entity getEntityByJavaId(final int javaId) {
+        return this.entitiesByJavaId.get(javaId);
+    }
+
     public ClientPlayerEntity getClientPlayer() {
         return this.clientPlayerEntity;
     }
@@ -183,7 +324,23 @@ public class EntityTracker extends StoredObject {
     }
 
     public int getNextJavaEntityId() {
+        if (!this.releasedJavaIds.isEmpty() && this.tickCounter - (int) (this.releasedJavaIds.firstLong() >>> 32) >= JAVA_ID_REUSE_DELAY) {
+            return (int) this.releasedJavaIds.dequeueLong();
+        }
         return ID_COUNTER.getAndIncrement();
     }
 
+    /**
+     * Marks a java entity id as free. The id has to be removed on the client before calling this method.
+     *
+     * @param javaId The java entity id
+     */
+    public void releaseJavaEntityId(final int javaId) {
+        this.releasedJavaIds.enqueue((long) this.tickCounter << 32 | (javaId & 0xFFFFFFFFL));
+    }
+
+    private static int packLocalPosition(final BlockPosition position) {
+        return position.y() << 8 | (position.z() & 15) << 4 | (position.x() & 15);
+    }
+
 }
@@ -0,0 +1,234 @@
+/*
+ * This file is part of ViaBedrock - https://github.com/RaphiMC/ViaBedrock
+ * Copyright (C) 2023-2024 RK_01/RaphiMC and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.raphimc.viabedrock.protocol.storage;
+
+import com.viaversion.viaversion.api.connection.UserConnection;
+import com.viaversion.viaversion.api.minecraft.entitydata.EntityData;
+import com.viaversion.viaversion.api.protocol.packet.PacketWrapper;
+import com.viaversion.viaversion.api.type.Types;
+import com.viaversion.viaversion.api.type.types.version.Types1_21;
+import com.viaversion.viaversion.libs.fastutil.ints.Int2ObjectMap;
+import com.viaversion.viaversion.libs.fastutil.ints.Int2ObjectOpenHashMap;
+import com.viaversion.viaversion.protocols.v1_20_5to1_21.packet.ClientboundPackets1_21;
+import net.raphimc.viabedrock.api.model.entity.Entity;
+import net.raphimc.viabedrock.api.util.MathUtil;
+import net.raphimc.viabedrock.protocol.BedrockProtocol;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Buffers entity movement and entity data updates and sends only the latest state of each entity once per tick.
+ */
+public class EntityUpdateBuffer {
+
+    /**
+     * Maximum number of packets the Java client accepts in a single bundle
+     */
+    private static final int MAX_BUNDLE_SIZE = 4096;
+    private static final double POSITION_SCALE = 4096D;
+
+    private final UserConnection user;
+    private final Int2ObjectMap<EntityState> entityStates = new Int2ObjectOpenHashMap<>();
+    private final List<EntityState> dirtyStates = new ArrayList<>();
+    private final List<PacketWrapper> packets = new ArrayList<>();
+
+    public EntityUpdateBuffer(final UserConnection user) {
+        this.user = user;
+    }
+
+    public void queueMove(final Entity entity, final boolean teleported) {
+        final EntityState state = this.getState(entity);
+        state.moved = true;
+        state.teleported |= teleported;
+    }
+
+    public void queueEntityData(final Entity entity, final List<EntityData> javaEntityData) {
+        if (javaEntityData.isEmpty()) return;
+
+        final EntityState state = this.getState(entity);
+        if (state.entityData == null) {
+            state.entityData = new Int2ObjectOpenHashMap<>();
+        }
+        for (EntityData data : javaEntityData) {
+            state.entityData.put(data.id(), data);
+        }
+    }
+
+    public void remove(final Entity entity) {
+        final EntityState state = this.entityStates.remove(entity.javaId());
+        if (state != null && state.dirty) {
+            this.dirtyStates.remove(state);
+        }
+    }
+
+    public void flush() {
+        if (this.dirtyStates.isEmpty()) return;
+
+        for (EntityState state : this.dirtyStates) {
+            state.dirty = false;
+            if (state.moved) {
+                state.moved = false;
+                this.writeMove(state);
+                state.teleported = false;
+            }
+            if (state.entityData != null && !state.entityData.isEmpty()) {
+                final PacketWrapper setEntityData = PacketWrapper.create(ClientboundPackets1_21.SET_ENTITY_DATA, this.user);
+                setEntityData.write(Types.VAR_INT, state.entity.javaId()); // entity id
+                setEntityData.write(Types1_21.ENTITY_DATA_LIST, new ArrayList<>(state.entityData.values())); // entity data
+                this.packets.add(setEntityData);
+                state.entityData.clear();
+            }
+        }
+        this.dirtyStates.clear();
+
+        final boolean bundle = this.packets.size() > 1;
+        for (int i = 0; i < this.packets.size(); i++) {
+            if (bundle && i % MAX_BUNDLE_SIZE == 0) {
+                if (i != 0) {
+                    PacketWrapper.create(ClientboundPackets1_21.BUNDLE_DELIMITER, this.user).send(BedrockProtocol.class);
+                }
+                PacketWrapper.create(ClientboundPackets1_21.BUNDLE_DELIMITER, this.user).send(BedrockProtocol.class);
+            }
+            this.packets.get(i).send(BedrockProtocol.class);
+        }
+        if (bundle) {
+            PacketWrapper.create(ClientboundPackets1_21.BUNDLE_DELIMITER, this.user).send(BedrockProtocol.class);
+        }
+        this.packets.clear();
+    }
+
+    private void writeMove(final EntityState state) {
+        final Entity entity = state.entity;
+        final double x = entity.position().x();
+        final double y = entity.position().y() - entity.eyeOffset();
+        final double z = entity.position().z();
+        final long encodedX = Math.round(x * POSITION_SCALE);
+        final long encodedY = Math.round(y * POSITION_SCALE);
+        final long encodedZ = Math.round(z * POSITION_SCALE);
+        final byte yaw = MathUtil.float2Byte(entity.rotation().y());
+        final byte pitch = MathUtil.float2Byte(entity.rotation().x());
+        final byte headYaw = MathUtil.float2Byte(entity.rotation().z());
+        final boolean onGround = entity.isOnGround();
+
+        final long deltaX = encodedX - state.encodedX;
+        final long deltaY = encodedY - state.encodedY;
+        final long deltaZ = encodedZ - state.encodedZ;
+        final boolean positionChanged = deltaX != 0 || deltaY != 0 || deltaZ != 0 || onGround != state.onGround;
+        final boolean rotationChanged = yaw != state.yaw || pitch != state.pitch;
+
+        if (!state.synced || state.teleported || !fitsShort(deltaX) || !fitsShort(deltaY) || !fitsShort(deltaZ)) {
+            final PacketWrapper teleportEntity = PacketWrapper.create(ClientboundPackets1_21.TELEPORT_ENTITY, this.user);
+            teleportEntity.write(Types.VAR_INT, entity.javaId()); // entity id
+            teleportEntity.write(Types.DOUBLE, x); // x
+            teleportEntity.write(Types.DOUBLE, y); // y
+            teleportEntity.write(Types.DOUBLE, z); // z
+            teleportEntity.write(Types.BYTE, yaw); // yaw
+            teleportEntity.write(Types.BYTE, pitch); // pitch
+            teleportEntity.write(Types.BOOLEAN, onGround); // on ground
+            this.packets.add(teleportEntity);
+        } else if (positionChanged && rotationChanged) {
+            final PacketWrapper moveEntity = PacketWrapper.create(ClientboundPackets1_21.MOVE_ENTITY_POS_ROT, this.user);
+            moveEntity.write(Types.VAR_INT, entity.javaId()); // entity id
+            moveEntity.write(Types.SHORT, (short) deltaX); // delta x
+            moveEntity.write(Types.SHORT, (short) deltaY); // delta y
+            moveEntity.write(Types.SHORT, (short) deltaZ); // delta z
+            moveEntity.write(Types.BYTE, yaw); // yaw
+            moveEntity.write(Types.BYTE, pitch); // pitch
+            moveEntity.write(Types.BOOLEAN, onGround); // on ground
+            this.packets.add(moveEntity);
+        } else if (positionChanged) {
+            final PacketWrapper moveEntity = PacketWrapper.create(ClientboundPackets1_21.MOVE_ENTITY_POS, this.user);
+            moveEntity.write(Types.VAR_INT, entity.javaId()); // entity id
+            moveEntity.write(Types.SHORT, (short) deltaX); // delta x
+            moveEntity.write(Types.SHORT, (short) deltaY); // delta y
+            moveEntity.write(Types.SHORT, (short) deltaZ); // delta z
+            moveEntity.write(Types.BOOLEAN, onGround); // on ground
+            this.packets.add(moveEntity);
+        } else if (rotationChanged) {
+            final PacketWrapper moveEntity = PacketWrapper.create(ClientboundPackets1_21.MOVE_ENTITY_ROT, this.user);
+            moveEntity.write(Types.VAR_INT, entity.javaId()); // entity id
+            moveEntity.write(Types.BYTE, yaw); // yaw
+            moveEntity.write(Types.BYTE, pitch); // pitch
+            moveEntity.write(Types.BOOLEAN, onGround); // on ground
+            this.packets.add(moveEntity);
+        }
+        if (!state.synced || headYaw != state.headYaw) {
+            final PacketWrapper rotateHead = PacketWrapper.create(ClientboundPackets1_21.ROTATE_HEAD, this.user);
+            rotateHead.write(Types.VAR_INT, entity.javaId()); // entity id
+            rotateHead.write(Types.BYTE, headYaw); // head yaw
+            this.packets.add(rotateHead);
+        }
+
+        state.synced = true;
+        state.encodedX = encodedX;
+        state.encodedY = encodedY;
+        state.encodedZ = encodedZ;
+        state.yaw = yaw;
+        state.pitch = pitch;
+        state.headYaw = headYaw;
+        state.onGround = onGround;
+    }
+
+    private EntityState getState(final Entity entity) {
+        EntityState state = this.entityStates.get(entity.javaId());
+        if (state == null || state.entity != entity) {
+            if (state != null && state.dirty) {
+                this.dirtyStates.remove(state);
+            }
+            state = new EntityState(entity);
+            this.entityStates.put(entity.javaId(), state);
+        }
+        if (!state.dirty) {
+            state.dirty = true;
+            this.dirtyStates.add(state);
+        }
+        return state;
+    }
+
+    private static boolean fitsShort(final long value) {
+        return value >= Short.MIN_VALUE && value <= Short.MAX_VALUE;
+    }
+
+    /**
+     * Mutable per entity state. The last sent position is stored in the same fixed point format the Java client uses to decode relative moves.
+     */
+    private static class EntityState {
+
+        private final Entity entity;
+        private boolean dirty;
+        private boolean moved;
+        private boolean teleported;
+        private Int2ObjectMap<EntityData> entityData;
+
+        private boolean synced;
+        private long encodedX;
+        private long encodedY;
+        private long encodedZ;
+        private byte yaw;
+        private byte pitch;
+        private byte headYaw;
+        private boolean onGround;
+
+        private EntityState(final Entity entity) {
+            this.entity = entity;
+        }
+
+    }
+
+}
@@ -161,6 +161,12 @@ public class InventoryTracker extends StoredObject {
         this.closeWhenTickedContainers.add(container);
     }
 
+    public boolean needsTick() {
+        if (!this.closeWhenTickedContainers.isEmpty()) return true;
+        final Container currentContainer = this.getOpenContainer();
+        return currentContainer != null && currentContainer.position() != null && currentContainer.type() != ContainerType.INVENTORY;
+    }
+
     public void tick() {
         final Container currentContainer = this.getOpenContainer();
         if (this.closeWhenTickedContainers.remove(currentContainer)) {
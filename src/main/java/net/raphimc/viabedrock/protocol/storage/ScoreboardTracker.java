@@ -17,17 +17,45 @@
  */
 package net.raphimc.viabedrock.protocol.storage;
 
-import com.viaversion.viaversion.api.connection.StorableObject;
+import com.viaversion.viaversion.api.connection.StoredObject;
+import com.viaversion.viaversion.api.connection.UserConnection;
+import com.viaversion.viaversion.libs.fastutil.longs.Long2ObjectMap;
+import com.viaversion.viaversion.libs.fastutil.longs.Long2ObjectOpenHashMap;
+import com.viaversion.viaversion.libs.fastutil.longs.LongIterator;
 import com.viaversion.viaversion.util.Pair;
 import net.raphimc.viabedrock.api.model.scoreboard.ScoreboardEntry;
 import net.raphimc.viabedrock.api.model.scoreboard.ScoreboardObjective;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
-public class ScoreboardTracker implements StorableObject {
+public class ScoreboardTracker extends StoredObject {
 
     private final Map<String, ScoreboardObjective> objectives = new HashMap<>();
+    private final Long2ObjectMap<ScoreboardObjective> objectivesByScoreboardId = new Long2ObjectOpenHashMap<>();
+
+    public ScoreboardTracker(final UserConnection user) {
+        super(user);
+    }
+
+    public boolean needsTick() {
+        for (ScoreboardObjective objective : this.objectives.values()) {
+            if (objective.hasPendingChanges()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void tick() {
+        for (ScoreboardObjective objective : this.objectives.values()) {
+            if (objective.hasPendingChanges()) {
+                objective.flush(this.user());
+            }
+        }
+    }
 
     public boolean hasObjective(final String name) {
         return this.objectives.containsKey(name);
@@ -42,29 +70,39 @@ public class ScoreboardTracker implements StorableObject {
     }
 
     public void removeObjective(final String name) {
-        this.objectives.remove(name);
+        final ScoreboardObjective objective = this.objectives.remove(name);
+        if (objective == null) return;
+
+        final LongIterator it = objective.scoreboardIds().iterator();
+        while (it.hasNext()) {
+            this.objectivesByScoreboardId.remove(it.nextLong(), objective);
+        }
     }
 
     public Pair<ScoreboardObjective, ScoreboardEntry> getEntry(final long scoreboardId) {
-        for (final ScoreboardObjective objective : this.objectives.values()) {
-            final ScoreboardEntry entry = objective.getEntry(scoreboardId);
-            if (entry != null) {
-                return new Pair<>(objective, entry);
-            }
-        }
+        final ScoreboardObjective objective = this.objectivesByScoreboardId.get(scoreboardId);
+        if (objective == null) return null;
 
-        return null;
+        return new Pair<>(objective, objective.getEntry(scoreboardId));
     }
 
-    public Pair<ScoreboardObjective, ScoreboardEntry> getEntryForPlayer(final long uniqueEntityId) {
-        for (final ScoreboardObjective objective : this.objectives.values()) {
+    public List<Pair<ScoreboardObjective, ScoreboardEntry>> getEntriesForPlayer(final long uniqueEntityId) {
+        final List<Pair<ScoreboardObjective, ScoreboardEntry>> entries = new ArrayList<>();
+        for (ScoreboardObjective objective : this.objectives.values()) {
             final ScoreboardEntry entry = objective.getEntryForPlayer(uniqueEntityId);
             if (entry != null) {
-                return new Pair<>(objective, entry);
+                entries.add(new Pair<>(objective, entry));
             }
         }
+        return entries;
+    }
+
+    public void indexEntry(final long scoreboardId, final ScoreboardObjective objective) {
+        this.objectivesByScoreboardId.put(scoreboardId, objective);
+    }
 
-        return null;
+    public void unindexEntry(final long scoreboardId, final ScoreboardObjective objective) {
+        this.objectivesByScoreboardId.remove(scoreboardId, objective);
     }
 
 }
@@ -0,0 +1,171 @@
+/*
+ * This file is part of ViaBedrock - https://github.com/RaphiMC/ViaBedrock
+ * Copyright (C) 2023-2024 RK_01/RaphiMC and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.raphimc.viabedrock.protocol.task;
+
+import com.viaversion.viaversion.api.connection.StoredObject;
+import com.viaversion.viaversion.api.connection.UserConnection;
+import com.viaversion.viaversion.api.protocol.packet.PacketWrapper;
+import com.viaversion.viaversion.api.protocol.packet.State;
+import com.viaversion.viaversion.api.type.Types;
+import com.viaversion.viaversion.protocols.v1_20_5to1_21.packet.ClientboundConfigurationPackets1_21;
+import com.viaversion.viaversion.protocols.v1_20_5to1_21.packet.ClientboundPackets1_21;
+import net.raphimc.viabedrock.api.util.TickTimeHistogram;
+import net.raphimc.viabedrock.protocol.BedrockProtocol;
+import net.raphimc.viabedrock.protocol.storage.BlobCache;
+import net.raphimc.viabedrock.protocol.storage.ChunkTracker;
+import net.raphimc.viabedrock.protocol.storage.EntityTracker;
+import net.raphimc.viabedrock.protocol.storage.InventoryTracker;
+import net.raphimc.viabedrock.protocol.storage.ScoreboardTracker;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs all per-connection tick work in a single event loop submission.
+ */
+public class ConnectionTickTask extends StoredObject implements Runnable {
+
+    public static final long KEEP_ALIVE_ID = 999; // ID which the server can't possibly send
+
+    private static final Subsystem[] SUBSYSTEMS = Subsystem.values();
+
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+    private long tick;
+
+    public ConnectionTickTask(final UserConnection user) {
+        super(user);
+    }
+
+    public void schedule() {
+        if (this.scheduled.compareAndSet(false, true)) { // Don't queue up ticks if the event loop can't keep up
+            this.user().getChannel().eventLoop().execute(this);
+        }
+    }
+
+    @Override
+    public void run() {
+        this.scheduled.set(false);
+        if (!this.user().getChannel().isActive()) return;
+
+        final long tick = this.tick++;
+        for (Subsystem subsystem : SUBSYSTEMS) {
+            if (tick % subsystem.interval != 0) continue;
+
+            final long start = System.nanoTime();
+            try {
+                if (!subsystem.tick(this.user())) continue;
+            } catch (Throwable e) {
+                BedrockProtocol.kickForIllegalState(this.user(), subsystem.errorMessage + " See console for details.", e);
+                return;
+            }
+            subsystem.tickTimes.record(System.nanoTime() - start);
+        }
+    }
+
+    public enum Subsystem {
+
+        KEEP_ALIVE(20, "Error sending keep alive packet.") {
+            @Override
+            boolean tick(final UserConnection user) {
+                final State state = user.getProtocolInfo().getServerState();
+                if (state != State.PLAY && state != State.CONFIGURATION) return false;
+
+                final PacketWrapper keepAlive = PacketWrapper.create(state == State.PLAY ? ClientboundPackets1_21.KEEP_ALIVE : ClientboundConfigurationPackets1_21.KEEP_ALIVE, user);
+                keepAlive.write(Types.LONG, KEEP_ALIVE_ID); // id
+                keepAlive.send(BedrockProtocol.class);
+                return true;
+            }
+        },
+        CHUNK_TRACKER(1, "Error ticking chunk tracker.") {
+            @Override
+            boolean tick(final UserConnection user) {
+                final ChunkTracker chunkTracker = user.get(ChunkTracker.class);
+                if (chunkTracker == null) return false;
+
+                chunkTracker.tick();
+                return true;
+            }
+        },
+        BLOB_CACHE(2, "Error ticking blob cache.") {
+            @Override
+            boolean tick(final UserConnection user) {
+                final BlobCache blobCache = user.get(BlobCache.class);
+                if (blobCache == null || !blobCache.needsTick()) return false;
+
+                blobCache.tick();
+                return true;
+            }
+        },
+        ENTITY_TRACKER(1, "Error ticking entity tracker.") {
+            @Override
+            boolean tick(final UserConnection user) {
+                final EntityTracker entityTracker = user.get(EntityTracker.class);
+                if (entityTracker == null) return false;
+
+                entityTracker.tick();
+                return true;
+            }
+        },
+        INVENTORY_TRACKER(1, "Error ticking inventory tracker.") {
+            @Override
+            boolean tick(final UserConnection user) {
+                final InventoryTracker inventoryTracker = user.get(InventoryTracker.class);
+                if (inventoryTracker == null || !inventoryTracker.needsTick()) return false;
+
+                inventoryTracker.tick();
+                return true;
+            }
+        },
+        SCOREBOARD_TRACKER(1, "Error ticking scoreboard tracker.") {
+            @Override
+            boolean tick(final UserConnection user) {
+                final ScoreboardTracker scoreboardTracker = user.get(ScoreboardTracker.class);
+                if (scoreboardTracker == null || !scoreboardTracker.needsTick()) return false;
+
+                scoreboardTracker.tick();
+                return true;
+            }
+        };
+
+        private final int interval;
+        private final String errorMessage;
+        private final TickTimeHistogram tickTimes = new TickTimeHistogram();
+
+        Subsystem(final int interval, final String errorMessage) {
+            this.interval = interval;
+            this.errorMessage = errorMessage;
+        }
+
+        /**
+         * @return false if the subsystem had nothing to do
+         */
+        abstract boolean tick(final UserConnection user);
+
+        public int getInterval() {
+            return this.interval;
+        }
+
+        /**
+         * @return The tick time histogram of this subsystem across all connections
+         */
+        public TickTimeHistogram getTickTimes() {
+            return this.tickTimes;
+        }
+
+    }
+
+}
@@ -19,25 +19,15 @@ package net.raphimc.viabedrock.protocol.task;
 
 import com.viaversion.viaversion.api.Via;
 import com.viaversion.viaversion.api.connection.UserConnection;
-import net.raphimc.viabedrock.protocol.BedrockProtocol;
-import net.raphimc.viabedrock.protocol.storage.BlobCache;
 
-public class BlobCacheTickTask implements Runnable {
+public class TickTask implements Runnable {
 
     @Override
     public void run() {
         for (UserConnection info : Via.getManager().getConnectionManager().getConnections()) {
-            final BlobCache blobCache = info.get(BlobCache.class);
-            if (blobCache != null) {
-                info.getChannel().eventLoop().submit(() -> {
-                    if (!info.getChannel().isActive()) return;
-
-                    try {
-                        blobCache.tick();
-                    } catch (Throwable e) {
-                        BedrockProtocol.kickForIllegalState(info, "Error ticking blob cache. See console for details.", e);
-                    }
-                });
+            final ConnectionTickTask connectionTickTask = info.get(ConnectionTickTask.class);
+            if (connectionTickTask != null) {
+                connectionTickTask.schedule();
             }
         }
     }
@@ -29,6 +29,7 @@ import net.raphimc.viabedrock.api.chunk.bitarray.SingletonBitArray;
 import net.raphimc.viabedrock.api.chunk.datapalette.BedrockDataPalette;
 import net.raphimc.viabedrock.protocol.types.BedrockTypes;
 
+import java.nio.ByteOrder;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -56,9 +57,9 @@ public class DataPaletteType extends Type<BedrockDataPalette> {
         final BitArray bitArray = BitArrayVersion.get(bitArrayVersion, true).createArray(ChunkSection.SIZE);
 
         if (!(bitArray instanceof SingletonBitArray)) {
-            for (int i = 0; i < bitArray.getWords().length; i++) {
-                bitArray.getWords()[i] = buffer.readIntLE();
-            }
+            final int[] words = bitArray.getWords();
+            buffer.nioBuffer(buffer.readerIndex(), words.length * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(words);
+            buffer.skipBytes(words.length * Integer.BYTES);
         }
 
         final int size = bitArray instanceof SingletonBitArray ? 1 : BedrockTypes.VAR_INT.readPrimitive(buffer);
@@ -66,7 +67,7 @@ public class DataPaletteType extends Type<BedrockDataPalette> {
         if (isRuntime) {
             final IntList palette = new IntArrayList(size);
             for (int i = 0; i < size; i++) {
-                palette.add(BedrockTypes.VAR_INT.read(buffer).intValue());
+                palette.add(BedrockTypes.VAR_INT.readPrimitive(buffer));
             }
             return new BedrockDataPalette(palette, bitArray);
         } else {
@@ -104,7 +105,7 @@ public class DataPaletteType extends Type<BedrockDataPalette> {
 
         if (isRuntime) {
             for (int i = 0; i < value.size(); i++) {
-                BedrockTypes.VAR_INT.write(buffer, value.idByIndex(i));
+                BedrockTypes.VAR_INT.writePrimitive(buffer, value.idByIndex(i));
             }
         } else {
             for (int i = 0; i < value.size(); i++) {
@@ -37,25 +37,25 @@ public class BedrockItemType extends Type<BedrockItem> {
 
     @Override
     public BedrockItem read(ByteBuf buffer) {
-        final int id = BedrockTypes.VAR_INT.read(buffer);
+        final int id = BedrockTypes.VAR_INT.readPrimitive(buffer);
         if (id == 0) {
             return BedrockItem.empty();
         }
 
         final BedrockItem item = new BedrockItem(id);
         item.setAmount(buffer.readUnsignedShortLE());
-        item.setData(BedrockTypes.UNSIGNED_VAR_INT.read(buffer));
+        item.setData(BedrockTypes.UNSIGNED_VAR_INT.readPrimitive(buffer));
         if (this.hasNetId) {
             item.setUsingNetId(buffer.readBoolean());
             if (item.usingNetId()) {
-                item.setNetId(BedrockTypes.VAR_INT.read(buffer));
+                item.setNetId(BedrockTypes.VAR_INT.readPrimitive(buffer));
             }
         }
-        item.setBlockRuntimeId(BedrockTypes.VAR_INT.read(buffer));
+        item.setBlockRuntimeId(BedrockTypes.VAR_INT.readPrimitive(buffer));
         item.setCanPlace(new String[0]);
         item.setCanBreak(new String[0]);
 
-        final ByteBuf userData = buffer.readSlice(BedrockTypes.UNSIGNED_VAR_INT.read(buffer));
+        final ByteBuf userData = buffer.readSlice(BedrockTypes.UNSIGNED_VAR_INT.readPrimitive(buffer));
         try {
             final short marker = userData.readShortLE();
             if (marker == 0) {
@@ -82,20 +82,20 @@ public class BedrockItemType extends Type<BedrockItem> {
     @Override
     public void write(ByteBuf buffer, BedrockItem value) {
         if (value.isEmpty()) {
-            BedrockTypes.VAR_INT.write(buffer, 0);
+            BedrockTypes.VAR_INT.writePrimitive(buffer, 0);
             return;
         }
 
-        BedrockTypes.VAR_INT.write(buffer, value.identifier());
+        BedrockTypes.VAR_INT.writePrimitive(buffer, value.identifier());
         buffer.writeShortLE(value.amount());
-        BedrockTypes.UNSIGNED_VAR_INT.write(buffer, (int) value.data());
+        BedrockTypes.UNSIGNED_VAR_INT.writePrimitive(buffer, (int) value.data());
         if (this.hasNetId) {
             buffer.writeBoolean(value.usingNetId());
             if (value.usingNetId()) {
-                BedrockTypes.VAR_INT.write(buffer, value.netId());
+                BedrockTypes.VAR_INT.writePrimitive(buffer, value.netId());
             }
         }
-        BedrockTypes.VAR_INT.write(buffer, value.blockRuntimeId());
+        BedrockTypes.VAR_INT.writePrimitive(buffer, value.blockRuntimeId());
 
         final ByteBuf userData = buffer.alloc().buffer();
         if (value.tag() != null) {
@@ -111,7 +111,7 @@ public class BedrockItemType extends Type<BedrockItem> {
             userData.writeLongLE(value.blockingTicks());
         }
 
-        BedrockTypes.UNSIGNED_VAR_INT.write(buffer, userData.readableBytes());
+        BedrockTypes.UNSIGNED_VAR_INT.writePrimitive(buffer, userData.readableBytes());
         buffer.writeBytes(userData);
         userData.release();
     }
@@ -24,6 +24,7 @@ import com.viaversion.viaversion.api.type.Type;
 import io.netty.buffer.ByteBuf;
 import net.raphimc.viabedrock.api.io.NetworkByteBufInputStream;
 import net.raphimc.viabedrock.api.io.NetworkByteBufOutputStream;
+import net.raphimc.viabedrock.api.io.NetworkTagReader;
 import net.raphimc.viabedrock.protocol.types.BedrockTypes;
 
 import java.io.IOException;
@@ -36,6 +37,7 @@ public class TagType extends Type<Tag> {
 
     @Override
     public Tag read(ByteBuf buffer) {
+        NetworkTagReader.checkLimits(buffer); // The decoder is recursive and doesn't limit the size
         final byte id = buffer.readByte();
         if (id == 0) return null;
 
@@ -19,7 +19,6 @@ package net.raphimc.viabedrock.protocol.types.primitive;
 
 import com.viaversion.viaversion.api.type.Type;
 import com.viaversion.viaversion.api.type.TypeConverter;
-import com.viaversion.viaversion.api.type.Types;
 import io.netty.buffer.ByteBuf;
 
 public class UnsignedVarLongType extends Type<Long> implements TypeConverter<Long> {
@@ -29,10 +28,37 @@ public class UnsignedVarLongType extends Type<Long> implements TypeConverter<Lon
     }
 
     public long readPrimitive(final ByteBuf buffer) {
-        long val = 0;
-        int shift = 0;
+        final byte first = buffer.readByte();
+        if (first >= 0) { // Single byte fast path
+            return first;
+        }
+
+        final int startIndex = buffer.readerIndex() - 1;
+        if (buffer.readableBytes() >= Long.BYTES - 1) { // Decode up to 8 bytes from a single read
+            final long word = buffer.getLongLE(startIndex);
+            final long terminators = ~word & 0x8080808080808080L;
+            if (terminators != 0) {
+                final int size = (Long.numberOfTrailingZeros(terminators) + 1) >>> 3;
+                final long bytes = size == Long.BYTES ? word : word & ((1L << (size << 3)) - 1);
+                buffer.readerIndex(startIndex + size);
+                return (bytes & 0x7FL)
+                        | ((bytes >>> 1) & (0x7FL << 7))
+                        | ((bytes >>> 2) & (0x7FL << 14))
+                        | ((bytes >>> 3) & (0x7FL << 21))
+                        | ((bytes >>> 4) & (0x7FL << 28))
+                        | ((bytes >>> 5) & (0x7FL << 35))
+                        | ((bytes >>> 6) & (0x7FL << 42))
+                        | ((bytes >>> 7) & (0x7FL << 49));
+            }
+        }
+
+        long val = first & 0x7F;
+        int shift = 7;
         byte in;
         do {
+            if (shift >= 70) {
+                throw new RuntimeException("VarLong too big");
+            }
             in = buffer.readByte();
             val |= (long) (in & 0x7F) << shift;
             shift += 7;
@@ -41,7 +67,42 @@ public class UnsignedVarLongType extends Type<Long> implements TypeConverter<Lon
     }
 
     public void writePrimitive(final ByteBuf buffer, long value) {
-        Types.VAR_LONG.writePrimitive(buffer, value);
+        if ((value & ~0x7FL) == 0) { // Single byte fast path
+            buffer.writeByte((int) value);
+            return;
+        }
+
+        final int size = getSize(value);
+        if (size <= Long.BYTES && buffer.maxWritableBytes() >= Long.BYTES) { // Encode into a single write
+            final long word = (value & 0x7FL)
+                    | ((value << 1) & (0x7FL << 8))
+                    | ((value << 2) & (0x7FL << 16))
+                    | ((value << 3) & (0x7FL << 24))
+                    | ((value << 4) & (0x7FL << 32))
+                    | ((value << 5) & (0x7FL << 40))
+                    | ((value << 6) & (0x7FL << 48))
+                    | ((value << 7) & (0x7FL << 56))
+                    | (0x8080808080808080L & ((1L << ((size - 1) << 3)) - 1)); // continuation bits
+            final int writerIndex = buffer.writerIndex();
+            buffer.ensureWritable(Long.BYTES);
+            buffer.setLongLE(writerIndex, word);
+            buffer.writerIndex(writerIndex + size);
+            return;
+        }
+
+        while ((value & ~0x7FL) != 0) {
+            buffer.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer.writeByte((int) value);
+    }
+
+    /**
+     * @param value The value
+     * @return The number of bytes the value takes up when encoded
+     */
+    public static int getSize(final long value) {
+        return (70 - Long.numberOfLeadingZeros(value | 1)) / 7;
     }
 
     @Override
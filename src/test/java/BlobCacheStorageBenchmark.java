@@ -0,0 +1,115 @@
+/*
+ * This file is part of ViaBedrock - https://github.com/RaphiMC/ViaBedrock
+ * Copyright (C) 2023-2024 RK_01/RaphiMC and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import net.raphimc.viabedrock.api.io.KeyValueStore;
+import net.raphimc.viabedrock.api.io.LevelDB;
+import net.raphimc.viabedrock.api.io.SegmentStore;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Compares the blob cache storage engines with a workload similar to the one of DiskBlobCacheProvider.<br>
+ * Usage: BlobCacheStorageBenchmark [blob count] [duplicate writes per blob]
+ */
+public class BlobCacheStorageBenchmark {
+
+    public static void main(String[] args) throws Throwable {
+        final int blobCount = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        final int duplicateWrites = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+        final Random random = new Random(1337);
+        final byte[][] keys = new byte[blobCount][];
+        final byte[][] values = new byte[blobCount][];
+        for (int i = 0; i < blobCount; i++) {
+            keys[i] = ("blob_" + random.nextLong()).getBytes();
+            values[i] = new byte[512 + random.nextInt(16 * 1024)]; // Roughly the size of compressed sub chunks
+            random.nextBytes(values[i]);
+        }
+
+        for (int round = 0; round < 2; round++) { // The first round warms up the JIT
+            System.out.println("Round " + (round + 1));
+            run("leveldb", LevelDB::new, keys, values, duplicateWrites);
+            run("segment", SegmentStore::new, keys, values, duplicateWrites);
+        }
+    }
+
+    private static void run(final String name, final StoreFactory factory, final byte[][] keys, final byte[][] values, final int duplicateWrites) throws IOException {
+        final File directory = Files.createTempDirectory("viabedrock_blob_cache_" + name).toFile();
+        try {
+            KeyValueStore store = factory.open(directory);
+
+            long start = System.nanoTime();
+            for (int i = 0; i <= duplicateWrites; i++) {
+                for (int j = 0; j < keys.length; j++) {
+                    if (!store.contains(keys[j])) {
+                        store.put(keys[j], values[j]);
+                    }
+                }
+            }
+            print(name, "put (" + (duplicateWrites + 1) + "x with contains check)", start, keys.length * (duplicateWrites + 1));
+
+            start = System.nanoTime();
+            for (byte[] key : keys) {
+                if (!store.contains(key)) throw new IllegalStateException("Missing key");
+            }
+            print(name, "contains", start, keys.length);
+
+            start = System.nanoTime();
+            for (int i = 0; i < keys.length; i++) {
+                if (store.get(keys[i]).length != values[i].length) throw new IllegalStateException("Value mismatch");
+            }
+            print(name, "get", start, keys.length);
+
+            store.close();
+            start = System.nanoTime();
+            store = factory.open(directory);
+            System.out.printf("%-8s %-40s %10.2f ms%n", name, "reopen", (System.nanoTime() - start) / 1_000_000D);
+            store.close();
+
+            System.out.printf("%-8s %-40s %10.2f MiB%n", name, "disk usage", directoryUsage(directory.toPath()) / 1024D / 1024D);
+        } finally {
+            try (Stream<Path> files = Files.walk(directory.toPath())) {
+                files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+    }
+
+    private static void print(final String name, final String operation, final long start, final int count) {
+        final double millis = (System.nanoTime() - start) / 1_000_000D;
+        System.out.printf("%-8s %-40s %10.2f ms %10.2f us/op%n", name, operation, millis, millis * 1000D / count);
+    }
+
+    private static long directoryUsage(final Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(Files::isRegularFile).mapToLong(file -> file.toFile().length()).sum();
+        }
+    }
+
+    private interface StoreFactory {
+
+        KeyValueStore open(final File directory) throws IOException;
+
+    }
+
+}
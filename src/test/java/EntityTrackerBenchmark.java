@@ -0,0 +1,255 @@
+/*
+ * This file is part of ViaBedrock - https://github.com/RaphiMC/ViaBedrock
+ * Copyright (C) 2023-2024 RK_01/RaphiMC and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import com.viaversion.viaversion.libs.fastutil.ints.Int2ObjectMap;
+import com.viaversion.viaversion.libs.fastutil.ints.Int2ObjectOpenHashMap;
+import com.viaversion.viaversion.libs.fastutil.longs.Long2ObjectMap;
+import com.viaversion.viaversion.libs.fastutil.longs.Long2ObjectOpenHashMap;
+import com.viaversion.viaversion.libs.fastutil.longs.LongArrayFIFOQueue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Compares the entity indexes of EntityTracker with the previous boxed HashMap layout.<br>
+ * EntityTracker itself needs a live connection and sends packets on every change, so this mirrors its map operations: spawning, runtime/unique/java id lookups and despawning with java id recycling.<br>
+ * Usage: EntityTrackerBenchmark [entity count] [lookups per entity]
+ */
+public class EntityTrackerBenchmark {
+
+    private static final int JAVA_ID_REUSE_DELAY = 200;
+    private static final int EXPECTED_ENTITY_COUNT = 512;
+
+    public static void main(String[] args) {
+        final int entityCount = args.length > 0 ? Integer.parseInt(args[0]) : 5_000;
+        final int lookupsPerEntity = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+        final Random random = new Random(1337);
+        final long[] uniqueIds = new long[entityCount];
+        final long[] runtimeIds = new long[entityCount];
+        for (int i = 0; i < entityCount; i++) {
+            uniqueIds[i] = random.nextLong(); // Unique ids are scattered over the whole long range
+            runtimeIds[i] = i * 4L + 1 + random.nextInt(4); // Runtime ids are increasing with small gaps
+        }
+        final int[] lookupOrder = new int[entityCount * lookupsPerEntity];
+        for (int i = 0; i < lookupOrder.length; i++) {
+            lookupOrder[i] = random.nextInt(entityCount);
+        }
+
+        for (int round = 0; round < 3; round++) { // The first rounds warm up the JIT
+            System.out.println("Round " + (round + 1));
+            run("previous", new PreviousIndex(), uniqueIds, runtimeIds, lookupOrder);
+            run("current", new CurrentIndex(), uniqueIds, runtimeIds, lookupOrder);
+        }
+    }
+
+    private static void run(final String name, final EntityIndex index, final long[] uniqueIds, final long[] runtimeIds, final int[] lookupOrder) {
+        final TrackedEntity[] entities = new TrackedEntity[uniqueIds.length];
+
+        long start = System.nanoTime();
+        for (int i = 0; i < entities.length; i++) {
+            entities[i] = new TrackedEntity(uniqueIds[i], runtimeIds[i], index.nextJavaId());
+            index.add(entities[i]);
+        }
+        print(name, "add", start, entities.length);
+
+        long checksum = 0;
+        start = System.nanoTime();
+        for (int i : lookupOrder) {
+            checksum += index.byRid(entities[i].runtimeId).javaId;
+        }
+        print(name, "get by runtime id", start, lookupOrder.length);
+
+        start = System.nanoTime();
+        for (int i : lookupOrder) {
+            checksum -= index.byUid(entities[i].uniqueId).javaId;
+        }
+        print(name, "get by unique id", start, lookupOrder.length);
+
+        start = System.nanoTime();
+        for (int i : lookupOrder) {
+            final TrackedEntity entity = index.byJavaId(entities[i].javaId);
+            if (entity != null) {
+                checksum += entity.javaId;
+            }
+        }
+        print(name, "get by java id", start, lookupOrder.length);
+
+        start = System.nanoTime();
+        for (int i = 0; i < entities.length; i++) { // Despawn and respawn every entity once, one per tick
+            index.remove(entities[i]);
+            index.tick();
+            entities[i] = new TrackedEntity(entities[i].uniqueId, entities[i].runtimeId, index.nextJavaId());
+            index.add(entities[i]);
+        }
+        print(name, "remove and respawn", start, entities.length);
+
+        for (TrackedEntity entity : entities) {
+            if (index.byRid(entity.runtimeId) != entity || index.byUid(entity.uniqueId) != entity || index.byJavaId(entity.javaId) != entity) {
+                throw new IllegalStateException("Index mismatch for " + name);
+            }
+        }
+        System.out.printf("%-8s %-20s %10d (checksum %d)%n", name, "highest java id", index.highestJavaId(), checksum);
+    }
+
+    private static void print(final String name, final String operation, final long start, final int count) {
+        final double millis = (System.nanoTime() - start) / 1_000_000D;
+        System.out.printf("%-8s %-20s %10.2f ms %8.2f ns/op%n", name, operation, millis, millis * 1_000_000D / count);
+    }
+
+    private record TrackedEntity(long uniqueId, long runtimeId, int javaId) {
+    }
+
+    private interface EntityIndex {
+
+        void add(final TrackedEntity entity);
+
+        void remove(final TrackedEntity entity);
+
+        TrackedEntity byRid(final long runtimeId);
+
+        TrackedEntity byUid(final long uniqueId);
+
+        TrackedEntity byJavaId(final int javaId);
+
+        int nextJavaId();
+
+        int highestJavaId();
+
+        default void tick() {
+        }
+
+    }
+
+    /**
+     * The layout before the primitive keyed maps: runtime ids resolved through a second boxed map and java id lookups scanned all entities.
+     */
+    private static class PreviousIndex implements EntityIndex {
+
+        private final Map<Long, Long> runtimeIdToUniqueId = new HashMap<>();
+        private final Map<Long, TrackedEntity> entities = new HashMap<>();
+        private int idCounter = 1;
+
+        @Override
+        public void add(final TrackedEntity entity) {
+            this.runtimeIdToUniqueId.put(entity.runtimeId, entity.uniqueId);
+            this.entities.put(entity.uniqueId, entity);
+        }
+
+        @Override
+        public void remove(final TrackedEntity entity) {
+            this.runtimeIdToUniqueId.remove(entity.runtimeId);
+            this.entities.remove(entity.uniqueId);
+        }
+
+        @Override
+        public TrackedEntity byRid(final long runtimeId) {
+            return this.entities.get(this.runtimeIdToUniqueId.get(runtimeId));
+        }
+
+        @Override
+        public TrackedEntity byUid(final long uniqueId) {
+            return this.entities.get(uniqueId);
+        }
+
+        @Override
+        public TrackedEntity byJavaId(final int javaId) {
+            for (TrackedEntity entity : this.entities.values()) {
+                if (entity.javaId == javaId) {
+                    return entity;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public int nextJavaId() {
+            return this.idCounter++;
+        }
+
+        @Override
+        public int highestJavaId() {
+            return this.idCounter - 1;
+        }
+
+    }
+
+    /**
+     * The layout of EntityTracker: pre-sized primitive keyed maps and delayed java id reuse.
+     */
+    private static class CurrentIndex implements EntityIndex {
+
+        private final Long2ObjectMap<TrackedEntity> entitiesByRid = new Long2ObjectOpenHashMap<>(EXPECTED_ENTITY_COUNT);
+        private final Long2ObjectMap<TrackedEntity> entities = new Long2ObjectOpenHashMap<>(EXPECTED_ENTITY_COUNT);
+        private final Int2ObjectMap<TrackedEntity> entitiesByJavaId = new Int2ObjectOpenHashMap<>(EXPECTED_ENTITY_COUNT);
+        private final LongArrayFIFOQueue releasedJavaIds = new LongArrayFIFOQueue();
+        private int idCounter = 1;
+        private int tickCounter;
+
+        @Override
+        public void add(final TrackedEntity entity) {
+            this.entitiesByRid.put(entity.runtimeId, entity);
+            this.entitiesByJavaId.put(entity.javaId, entity);
+            this.entities.put(entity.uniqueId, entity);
+        }
+
+        @Override
+        public void remove(final TrackedEntity entity) {
+            this.entitiesByRid.remove(entity.runtimeId, entity);
+            this.entities.remove(entity.uniqueId, entity);
+            this.entitiesByJavaId.remove(entity.javaId, entity);
+            this.releasedJavaIds.enqueue((long) this.tickCounter << 32 | entity.javaId & 0xFFFFFFFFL);
+        }
+
+        @Override
+        public TrackedEntity byRid(final long runtimeId) {
+            return this.entitiesByRid.get(runtimeId);
+        }
+
+        @Override
+        public TrackedEntity byUid(final long uniqueId) {
+            return this.entities.get(uniqueId);
+        }
+
+        @Override
+        public TrackedEntity byJavaId(final int javaId) {
+            return this.entitiesByJavaId.get(javaId);
+        }
+
+        @Override
+        public int nextJavaId() {
+            if (!this.releasedJavaIds.isEmpty() && this.tickCounter - (int) (this.releasedJavaIds.firstLong() >>> 32) >= JAVA_ID_REUSE_DELAY) {
+                return (int) this.releasedJavaIds.dequeueLong();
+            }
+            return this.idCounter++;
+        }
+
+        @Override
+        public int highestJavaId() {
+            return this.idCounter - 1;
+        }
+
+        @Override
+        public void tick() {
+            this.tickCounter++;
+        }
+
+    }
+
+}
@@ -0,0 +1,173 @@
+/*
+ * This file is part of ViaBedrock - https://github.com/RaphiMC/ViaBedrock
+ * Copyright (C) 2023-2024 RK_01/RaphiMC and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import com.viaversion.viaversion.api.type.Types;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.compression.Snappy;
+import net.raphimc.viabedrock.api.io.compression.SnappyCompression;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Compares the Snappy compression with the previous implementation, which used Netty's Snappy codec and wrote inputs over 32 KiB as one literal.<br>
+ * The output of SnappyCompression is also decoded with Netty's decoder, to check it against an independent implementation.<br>
+ * Usage: SnappyCompressionBenchmark [iterations per input]
+ */
+public class SnappyCompressionBenchmark {
+
+    public static void main(String[] args) {
+        final int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+
+        final Random random = new Random(1337);
+        final byte[][] inputs = new byte[][]{
+                json(random, 1024),
+                json(random, 30 * 1024),
+                json(random, 256 * 1024),
+                json(random, 2 * 1024 * 1024),
+                palette(random, 32 * 1024),
+                palette(random, 512 * 1024),
+                randomBytes(random, 64 * 1024)
+        };
+        final String[] names = new String[]{"json 1 KiB", "json 30 KiB", "json 256 KiB", "json 2 MiB", "palette 32 KiB", "palette 512 KiB", "random 64 KiB"};
+
+        for (int i = 0; i < inputs.length; i++) {
+            verify(names[i], inputs[i]);
+        }
+        System.out.println("Round trips passed");
+
+        for (int round = 0; round < 2; round++) { // The first round warms up the JIT
+            System.out.println("Round " + (round + 1));
+            for (int i = 0; i < inputs.length; i++) {
+                run(names[i], "previous", inputs[i], iterations, SnappyCompressionBenchmark::compressPrevious, SnappyCompressionBenchmark::decompressNetty);
+                final SnappyCompression snappyCompression = new SnappyCompression();
+                run(names[i], "current", inputs[i], iterations, snappyCompression::compress, snappyCompression::decompress);
+            }
+        }
+    }
+
+    private static void run(final String name, final String implementation, final byte[] input, final int iterations, final Codec compressor, final Codec decompressor) {
+        final ByteBuf in = Unpooled.wrappedBuffer(input);
+        final ByteBuf compressed = Unpooled.buffer();
+        final ByteBuf decompressed = Unpooled.buffer(input.length);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            in.readerIndex(0);
+            compressed.clear();
+            compressor.process(in, compressed);
+        }
+        final double compressSeconds = (System.nanoTime() - start) / 1_000_000_000D;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            compressed.readerIndex(0);
+            decompressed.clear();
+            decompressor.process(compressed, decompressed);
+        }
+        final double decompressSeconds = (System.nanoTime() - start) / 1_000_000_000D;
+
+        final double megabytes = (double) input.length * iterations / 1024D / 1024D;
+        System.out.printf("%-16s %-9s ratio %6.3f  compress %8.1f MiB/s  decompress %8.1f MiB/s%n", name, implementation, (double) compressed.writerIndex() / input.length, megabytes / compressSeconds, megabytes / decompressSeconds);
+    }
+
+    private static void verify(final String name, final byte[] input) {
+        final SnappyCompression snappyCompression = new SnappyCompression();
+        final ByteBuf compressed = Unpooled.buffer();
+        snappyCompression.compress(Unpooled.wrappedBuffer(input), compressed);
+
+        final ByteBuf decompressed = Unpooled.buffer();
+        snappyCompression.decompress(compressed.duplicate(), decompressed);
+        if (!decompressed.equals(Unpooled.wrappedBuffer(input))) {
+            throw new IllegalStateException("Round trip mismatch for " + name);
+        }
+
+        decompressed.clear();
+        decompressNetty(compressed.duplicate(), decompressed);
+        if (!decompressed.equals(Unpooled.wrappedBuffer(input))) {
+            throw new IllegalStateException("Netty's decoder doesn't match for " + name);
+        }
+    }
+
+    /**
+     * The compression before the custom Snappy implementation.
+     */
+    private static void compressPrevious(final ByteBuf in, final ByteBuf out) {
+        if (in.readableBytes() <= Short.MAX_VALUE) {
+            new Snappy().encode(in, out, in.readableBytes());
+        } else {
+            Types.VAR_INT.writePrimitive(out, in.readableBytes());
+
+            int value = in.readableBytes() - 1;
+            int highestOneBit = Integer.highestOneBit(value);
+            int bitLength = 0;
+            while ((highestOneBit >>= 1) != 0) {
+                bitLength++;
+            }
+            int bytesToEncode = 1 + bitLength / 8;
+            out.writeByte(59 + bytesToEncode << 2);
+            for (int i = 0; i < bytesToEncode; i++) {
+                out.writeByte(in.readableBytes() - 1 >> i * 8 & 0x0ff);
+            }
+            out.writeBytes(in);
+        }
+    }
+
+    private static void decompressNetty(final ByteBuf in, final ByteBuf out) {
+        new Snappy().decode(in, out);
+    }
+
+    private static byte[] json(final Random random, final int size) {
+        final StringBuilder builder = new StringBuilder(size + 128).append('[');
+        while (builder.length() < size) {
+            builder.append("{\"name\":\"minecraft:block_").append(random.nextInt(500))
+                    .append("\",\"states\":{\"facing_direction\":").append(random.nextInt(6))
+                    .append(",\"open_bit\":").append(random.nextBoolean())
+                    .append("},\"version\":").append(17959425 + random.nextInt(4)).append("},");
+        }
+        final byte[] bytes = builder.toString().getBytes(StandardCharsets.UTF_8);
+        final byte[] result = new byte[size];
+        System.arraycopy(bytes, 0, result, 0, size);
+        return result;
+    }
+
+    /**
+     * Bit packed palette indices with few distinct values, similar to chunk sections.
+     */
+    private static byte[] palette(final Random random, final int size) {
+        final byte[] result = new byte[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = (byte) (random.nextInt(8) < 6 ? 0 : random.nextInt(4) * 0x11);
+        }
+        return result;
+    }
+
+    private static byte[] randomBytes(final Random random, final int size) {
+        final byte[] result = new byte[size];
+        random.nextBytes(result);
+        return result;
+    }
+
+    private interface Codec {
+
+        void process(final ByteBuf in, final ByteBuf out);
+
+    }
+
+}
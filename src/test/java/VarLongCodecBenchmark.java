@@ -0,0 +1,164 @@
+/*
+ * This file is part of ViaBedrock - https://github.com/RaphiMC/ViaBedrock
+ * Copyright (C) 2023-2024 RK_01/RaphiMC and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import net.raphimc.viabedrock.protocol.types.primitive.UnsignedVarLongType;
+
+import java.util.Random;
+
+/**
+ * Checks the VarLong codec against a byte by byte reference implementation and compares their throughput.<br>
+ * Usage: VarLongCodecBenchmark [round trip check value count] [benchmark corpus size]
+ */
+public class VarLongCodecBenchmark {
+
+    private static final UnsignedVarLongType TYPE = new UnsignedVarLongType();
+
+    public static void main(String[] args) {
+        final int checkCount = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        final int corpusSize = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+
+        roundTripCheck(checkCount);
+        System.out.println("Round trip check with " + checkCount + " values passed");
+
+        final long[] corpus = createCorpus(corpusSize);
+        final ByteBuf buffer = Unpooled.buffer(corpusSize * 10);
+        for (int round = 0; round < 5; round++) { // The first rounds warm up the JIT
+            System.out.println("Round " + (round + 1));
+
+            buffer.clear();
+            long start = System.nanoTime();
+            for (long value : corpus) {
+                writeReference(buffer, value);
+            }
+            print("reference", "write", start, corpusSize);
+            final int encodedSize = buffer.readableBytes();
+
+            long checksum = 0;
+            start = System.nanoTime();
+            while (buffer.isReadable()) {
+                checksum += readReference(buffer);
+            }
+            print("reference", "read", start, corpusSize);
+
+            buffer.clear();
+            start = System.nanoTime();
+            for (long value : corpus) {
+                TYPE.writePrimitive(buffer, value);
+            }
+            print("codec", "write", start, corpusSize);
+            if (buffer.readableBytes() != encodedSize) throw new IllegalStateException("Encoded size mismatch");
+
+            start = System.nanoTime();
+            while (buffer.isReadable()) {
+                checksum -= TYPE.readPrimitive(buffer);
+            }
+            print("codec", "read", start, corpusSize);
+            if (checksum != 0) throw new IllegalStateException("Decoded values mismatch");
+        }
+    }
+
+    /**
+     * Mostly small values like entity ids, counts and palette indices, with a tail of large and negative values like unique entity ids and hashes.
+     */
+    private static long[] createCorpus(final int size) {
+        final Random random = new Random(1337);
+        final long[] corpus = new long[size];
+        for (int i = 0; i < size; i++) {
+            final int kind = random.nextInt(100);
+            if (kind < 50) {
+                corpus[i] = random.nextInt(128);
+            } else if (kind < 80) {
+                corpus[i] = random.nextInt(1 << 14);
+            } else if (kind < 95) {
+                corpus[i] = random.nextInt() & 0xFFFFFFFFL;
+            } else {
+                corpus[i] = random.nextLong();
+            }
+        }
+        return corpus;
+    }
+
+    private static void roundTripCheck(final int count) {
+        final Random random = new Random(42);
+        final ByteBuf expected = Unpooled.buffer();
+        final ByteBuf actual = Unpooled.buffer();
+        for (int i = 0; i < count; i++) {
+            final long value = random.nextLong() >>> random.nextInt(64); // Cover every encoded size
+            final boolean trailingData = random.nextBoolean();
+            expected.clear();
+            actual.clear();
+
+            writeReference(expected, value);
+            TYPE.writePrimitive(actual, value);
+            if (!expected.equals(actual)) {
+                throw new IllegalStateException("Encoding mismatch for " + value);
+            }
+
+            if (trailingData) {
+                actual.writeLong(random.nextLong());
+            }
+            final long decoded = TYPE.readPrimitive(actual);
+            if (decoded != value || actual.readableBytes() != (trailingData ? Long.BYTES : 0)) {
+                throw new IllegalStateException("Decoding mismatch for " + value + " (trailing data: " + trailingData + ")");
+            }
+
+            final ByteBuf exact = Unpooled.wrappedBuffer(new byte[expected.readableBytes()]).clear(); // Writes with no spare capacity can't use the 8 byte path
+            TYPE.writePrimitive(exact, value);
+            if (!expected.equals(exact)) {
+                throw new IllegalStateException("Encoding mismatch for " + value + " into an exactly sized buffer");
+            }
+        }
+
+        final ByteBuf truncated = Unpooled.buffer();
+        writeReference(truncated, Long.MIN_VALUE);
+        truncated.writerIndex(truncated.writerIndex() - 1);
+        try {
+            TYPE.readPrimitive(truncated);
+            throw new IllegalStateException("Truncated value was decoded");
+        } catch (IndexOutOfBoundsException ignored) { // Chunk parsing relies on this exception
+        }
+    }
+
+    private static void writeReference(final ByteBuf buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer.writeByte((int) value);
+    }
+
+    private static long readReference(final ByteBuf buffer) {
+        long value = 0;
+        int shift = 0;
+        byte in;
+        do {
+            in = buffer.readByte();
+            value |= (long) (in & 0x7F) << shift;
+            shift += 7;
+        } while ((in & 0x80) != 0);
+        return value;
+    }
+
+    private static void print(final String name, final String operation, final long start, final int count) {
+        final double millis = (System.nanoTime() - start) / 1_000_000D;
+        System.out.printf("%-10s %-6s %10.2f ms %8.2f ns/op%n", name, operation, millis, millis * 1_000_000D / count);
+    }
+
+}